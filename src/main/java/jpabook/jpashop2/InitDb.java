@@ -3,14 +3,19 @@ package jpabook.jpashop2;
 import jpabook.jpashop2.domain.*;
 import jpabook.jpashop2.domain.item.Book;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 
+/**
+ * 샘플 데이터를 등록한다. fast 프로필처럼 shop.init-db.enabled=false 이면 실행하지 않는다.
+ * */
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "shop.init-db.enabled", havingValue = "true", matchIfMissing = true)
 public class InitDb {
     private final InitService initService;
 
@@ -84,6 +89,7 @@ public class InitDb {
         private Delivery createDelivery(Member member) {
             Delivery delivery = new Delivery();
             delivery.setAddress(member.getAddress());
+            delivery.setStatus(DeliveryStatus.READY);
 
             return delivery;
         }
@@ -0,0 +1,28 @@
+package jpabook.jpashop2;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * AppCDS 클래스 목록을 만들기 위한 training run. 기동이 끝나면 바로 종료한다.
+ * build.gradle의 cdsClassList 태스크에서 shop.training-run=true로 실행된다.
+ * */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "shop.training-run", havingValue = "true")
+public class TrainingRunExit {
+    private final ApplicationContext context;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void exit() {
+        log.info("training run finished");
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -0,0 +1,151 @@
+package jpabook.jpashop2.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.security.Principal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 요청마다 클라이언트의 토큰 버킷과 비용 분류별 동시 실행 수를 확인한다.
+ * 비싼 엔드포인트에 요청이 몰려도 그 분류의 자리만 차지하기 때문에 다른 분류의 요청은 영향을 받지 않고,
+ * 거절은 커넥션이나 메모리를 사용하기 전에 429로 바로 응답한다.
+ * 분류별 대기열 길이/실행 중인 요청 수/거절 횟수를 admission.* 메트릭으로 기록한다.
+ * 클라이언트는 인증된 사용자 또는 remote address로 구분한다. 요청 헤더는 클라이언트가 임의로 바꿀 수 있기 때문에 사용하지 않는다.
+ * (프록시 뒤에서는 server.forward-headers-strategy로 신뢰하는 프록시의 X-Forwarded-For를 remote address로 사용한다)
+ * */
+@Slf4j
+@Component
+public class AdmissionControlInterceptor implements HandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+
+    private final AdmissionProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<CostClass, AdmissionProperties.ClassLimit> classLimits = new EnumMap<>(CostClass.class);
+
+    private final Map<CostClass, ConcurrencyLimiter> limiters = new EnumMap<>(CostClass.class);
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final TokenBucket overflowBucket;
+
+    public AdmissionControlInterceptor(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.overflowBucket = newBucket();
+
+        for (CostClass costClass : CostClass.values()) {
+            AdmissionProperties.ClassLimit limit = properties.limitOf(costClass);
+            classLimits.put(costClass, limit);
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter(limit.getMaxConcurrent(), limit.getQueueSize(), limit.getQueueTimeoutMillis());
+            limiters.put(costClass, limiter);
+
+            String tag = costClass.name().toLowerCase();
+            meterRegistry.gauge("admission.queue.depth", Tags.of("class", tag), limiter, ConcurrencyLimiter::queueDepth);
+            meterRegistry.gauge("admission.inflight", Tags.of("class", tag), limiter, ConcurrencyLimiter::inFlight);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!properties.isEnabled() || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+
+        CostClass costClass = costClassOf((HandlerMethod) handler);
+        AdmissionProperties.ClassLimit limit = limitOf(costClass);
+
+        TokenBucket bucket = bucketOf(clientOf(request));
+        if (!bucket.tryConsume(limit.getTokens())) {
+            return reject(response, costClass, "rate_limit", Math.max(1, bucket.secondsUntil(limit.getTokens())));
+        }
+
+        ConcurrencyLimiter limiter = limiters.get(costClass);
+        ConcurrencyLimiter.Result result = limiter.acquire();
+        if (result != ConcurrencyLimiter.Result.ADMITTED) {
+            bucket.refund(limit.getTokens());
+            return reject(response, costClass, result.name().toLowerCase(), 1);
+        }
+
+        request.setAttribute(PERMIT_ATTRIBUTE, limiter);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ConcurrencyLimiter limiter = (ConcurrencyLimiter) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (limiter != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            limiter.release();
+        }
+    }
+
+    /**
+     * 오래 요청이 없는 클라이언트의 버킷을 정리한다. 정리된 클라이언트는 다음 요청에서 가득 찬 버킷으로 다시 시작한다.
+     * */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        long idleNanos = properties.getBucketIdleMillis() * 1_000_000;
+        buckets.values().removeIf(b -> b.idleNanos() > idleNanos);
+    }
+
+    private boolean reject(HttpServletResponse response, CostClass costClass, String reason, long retryAfterSeconds) {
+        meterRegistry.counter("admission.rejected", "class", costClass.name().toLowerCase(), "reason", reason).increment();
+        log.debug("request rejected. class={}, reason={}", costClass, reason);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        return false;
+    }
+
+    private CostClass costClassOf(HandlerMethod handler) {
+        AdmissionCost cost = handler.getMethodAnnotation(AdmissionCost.class);
+        if (cost == null) {
+            cost = AnnotatedElementUtils.findMergedAnnotation(handler.getBeanType(), AdmissionCost.class);
+        }
+
+        return cost == null ? CostClass.CHEAP : cost.value();
+    }
+
+    /**
+     * 버킷 수가 maxClients에 도달하면 새 클라이언트는 공용 버킷을 사용하기 때문에 메모리 사용량이 제한된다.
+     * */
+    private TokenBucket bucketOf(String client) {
+        TokenBucket bucket = buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= properties.getMaxClients()) {
+            meterRegistry.counter("admission.buckets.overflow").increment();
+            return overflowBucket;
+        }
+
+        return buckets.computeIfAbsent(client, k -> newBucket());
+    }
+
+    private TokenBucket newBucket() {
+        return new TokenBucket(properties.getBucketCapacity(), properties.getRefillPerSecond(), System::nanoTime);
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        return principal != null ? "user:" + principal.getName() : "addr:" + request.getRemoteAddr();
+    }
+
+    private AdmissionProperties.ClassLimit limitOf(CostClass costClass) {
+        return classLimits.get(costClass);
+    }
+}
@@ -0,0 +1,15 @@
+package jpabook.jpashop2.admission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 컨트롤러 메서드의 비용 분류. 선언하지 않은 /api/** 엔드포인트는 CHEAP으로 처리한다.
+ * */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AdmissionCost {
+    CostClass value();
+}
@@ -0,0 +1,88 @@
+package jpabook.jpashop2.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shop.admission")
+public class AdmissionProperties {
+    private static final Map<CostClass, ClassLimit> DEFAULT_CLASSES = Map.of(
+            CostClass.CHEAP, new ClassLimit(1d, 200, 100, 50L),
+            CostClass.MODERATE, new ClassLimit(5d, 16, 32, 100L),
+            CostClass.EXPENSIVE, new ClassLimit(20d, 4, 8, 100L));
+
+    private boolean enabled = true;
+
+    private double bucketCapacity = 100;
+
+    private double refillPerSecond = 20;
+
+    /**
+     * 요청이 없는 클라이언트의 버킷을 정리하기까지의 시간(ms).
+     * */
+    private long bucketIdleMillis = 300_000;
+
+    /**
+     * 클라이언트별 버킷의 최대 개수. 가득 차면 새 클라이언트는 하나의 공용 버킷을 함께 사용한다.
+     * */
+    private int maxClients = 10_000;
+
+    /**
+     * 설정하지 않은 분류나 필드는 DEFAULT_CLASSES의 값을 사용한다.
+     * */
+    private Map<CostClass, ClassLimit> classes = new EnumMap<>(CostClass.class);
+
+    /**
+     * 설정값과 기본값을 합친 분류별 제한. 값이 올바르지 않으면 기동 시 예외가 발생한다.
+     * */
+    public ClassLimit limitOf(CostClass costClass) {
+        ClassLimit defaults = DEFAULT_CLASSES.get(costClass);
+        ClassLimit configured = classes.getOrDefault(costClass, defaults);
+        ClassLimit limit = new ClassLimit(
+                configured.getTokens() != null ? configured.getTokens() : defaults.getTokens(),
+                configured.getMaxConcurrent() != null ? configured.getMaxConcurrent() : defaults.getMaxConcurrent(),
+                configured.getQueueSize() != null ? configured.getQueueSize() : defaults.getQueueSize(),
+                configured.getQueueTimeoutMillis() != null ? configured.getQueueTimeoutMillis() : defaults.getQueueTimeoutMillis());
+
+        if (limit.getTokens() < 0 || limit.getTokens() > bucketCapacity || limit.getMaxConcurrent() < 1
+                || limit.getQueueSize() < 0 || limit.getQueueTimeoutMillis() < 0) {
+            throw new IllegalStateException("shop.admission.classes." + costClass.name().toLowerCase() + " 설정이 올바르지 않습니다. " +
+                    "tokens=" + limit.getTokens() + ", max-concurrent=" + limit.getMaxConcurrent() +
+                    ", queue-size=" + limit.getQueueSize() + ", queue-timeout-millis=" + limit.getQueueTimeoutMillis());
+        }
+
+        return limit;
+    }
+
+    @Getter
+    @Setter
+    public static class ClassLimit {
+        /**
+         * 요청 한번에 사용하는 토큰 수.
+         * */
+        private Double tokens;
+
+        private Integer maxConcurrent;
+
+        private Integer queueSize;
+
+        private Long queueTimeoutMillis;
+
+        public ClassLimit() {
+        }
+
+        public ClassLimit(Double tokens, Integer maxConcurrent, Integer queueSize, Long queueTimeoutMillis) {
+            this.tokens = tokens;
+            this.maxConcurrent = maxConcurrent;
+            this.queueSize = queueSize;
+            this.queueTimeoutMillis = queueTimeoutMillis;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package jpabook.jpashop2.admission;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 동시에 실행되는 요청 수를 제한한다. 자리가 없으면 queueSize 까지만 짧게 대기하고,
+ * 대기열이 가득 찼거나 대기 시간이 지나면 바로 거절한다.
+ * */
+public class ConcurrencyLimiter {
+    public enum Result {
+        ADMITTED, QUEUE_FULL, QUEUE_TIMEOUT
+    }
+
+    private final Semaphore permits;
+
+    private final int maxConcurrent;
+
+    private final int queueSize;
+
+    private final long queueTimeoutMillis;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public ConcurrencyLimiter(int maxConcurrent, int queueSize, long queueTimeoutMillis) {
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.queueSize = queueSize;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    public Result acquire() throws InterruptedException {
+        if (permits.tryAcquire()) {
+            return Result.ADMITTED;
+        }
+
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            return Result.QUEUE_FULL;
+        }
+
+        try {
+            return permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS) ? Result.ADMITTED : Result.QUEUE_TIMEOUT;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int queueDepth() {
+        return queued.get();
+    }
+
+    public int inFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+}
@@ -0,0 +1,21 @@
+package jpabook.jpashop2.admission;
+
+/**
+ * 엔드포인트가 한번 호출될 때 사용하는 커넥션/메모리 비용에 따른 분류.
+ * */
+public enum CostClass {
+    /**
+     * 단건 조회, 수정 등 인덱스로 바로 처리되는 요청.
+     * */
+    CHEAP,
+
+    /**
+     * 페이징되어 있거나 결과 크기가 제한된 목록 조회.
+     * */
+    MODERATE,
+
+    /**
+     * 전체 주문을 메모리로 읽거나 대량으로 처리하는 요청.
+     * */
+    EXPENSIVE
+}
@@ -0,0 +1,66 @@
+package jpabook.jpashop2.admission;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 초당 refillPerSecond 만큼 토큰이 채워지고 capacity를 넘지 않는다.
+ * 요청의 비용만큼 토큰이 남아 있을 때만 통과시킨다.
+ * */
+public class TokenBucket {
+    private final double capacity;
+
+    private final double refillPerNano;
+
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    public TokenBucket(double capacity, double refillPerSecond, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    public synchronized boolean tryConsume(double cost) {
+        refill();
+        if (tokens < cost) {
+            return false;
+        }
+
+        tokens -= cost;
+        return true;
+    }
+
+    /**
+     * 통과시킨 요청이 이후 단계에서 거절되면 사용한 토큰을 되돌린다.
+     * */
+    public synchronized void refund(double cost) {
+        tokens = Math.min(capacity, tokens + cost);
+    }
+
+    /**
+     * cost 만큼 토큰이 채워질 때까지 남은 시간(초). Retry-After 헤더에 사용한다.
+     * */
+    public synchronized long secondsUntil(double cost) {
+        refill();
+        if (tokens >= cost) {
+            return 0;
+        }
+
+        return (long) Math.ceil((cost - tokens) / refillPerNano / 1_000_000_000d);
+    }
+
+    public synchronized long idleNanos() {
+        return nanoClock.getAsLong() - lastRefill;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNano);
+        lastRefill = now;
+    }
+}
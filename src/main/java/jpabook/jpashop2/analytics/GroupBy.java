@@ -0,0 +1,5 @@
+package jpabook.jpashop2.analytics;
+
+public enum GroupBy {
+    NONE, ITEM, MEMBER, CITY, HOUR, DAY
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop2.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 그룹별 집계. key는 그룹 기준 값(상품 id, 회원 id, 시(0~23), yyyy-MM-dd, 도시 이름)
+ * */
+@Data
+@AllArgsConstructor
+public class OrderItemAggregate {
+    private String key;
+
+    private long lines;
+
+    private long quantity;
+
+    private long revenue;
+}
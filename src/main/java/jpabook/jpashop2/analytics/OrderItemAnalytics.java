@@ -0,0 +1,316 @@
+package jpabook.jpashop2.analytics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * OrderItemStore의 snapshot을 fork-join으로 나누어 병렬로 집계한다.
+ * 각 작업은 BATCH_SIZE 행씩 조건을 컬럼 단위로 차례로 적용하여 선택된 행 번호(selection)만 남긴 뒤,
+ * 선택된 행을 그룹 키별로 합산한다. 행마다 객체를 만들지 않고 기본형 배열만 읽는다.
+ * 집계는 CPU 수만큼의 스레드를 가진 전용 pool에서 실행하여 공용 pool(parallel stream, CompletableFuture)과 경쟁하지 않는다.
+ * */
+@Component
+@RequiredArgsConstructor
+public class OrderItemAnalytics {
+    static final int BATCH_SIZE = 1024;
+
+    static final int SPLIT_THRESHOLD = 64 * BATCH_SIZE;
+
+    private final OrderItemStore store;
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), p -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+        thread.setName("order-item-analytics-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public OrderItemQueryResult query(OrderItemQuery query) {
+        long start = System.currentTimeMillis();
+        OrderItemSnapshot snapshot = store.snapshot();
+        Filter filter = new Filter(query);
+
+        Aggregation aggregation = pool.invoke(new ScanTask(snapshot, filter, query.getGroupBy(), 0, snapshot.size));
+
+        List<OrderItemAggregate> groups = new ArrayList<>(aggregation.size);
+        for (int slot = 0; slot < aggregation.keys.length; slot++) {
+            if (aggregation.used[slot]) {
+                groups.add(new OrderItemAggregate(label(snapshot, query.getGroupBy(), aggregation.keys[slot]),
+                        aggregation.lines[slot], aggregation.quantities[slot], aggregation.revenues[slot]));
+            }
+        }
+        groups.sort(Comparator.comparingLong(OrderItemAggregate::getRevenue).reversed()
+                .thenComparing(OrderItemAggregate::getKey));
+        if (groups.size() > query.getLimit()) {
+            groups = new ArrayList<>(groups.subList(0, Math.max(0, query.getLimit())));
+        }
+
+        return new OrderItemQueryResult(groups, snapshot.size, aggregation.matched, System.currentTimeMillis() - start);
+    }
+
+    static long epochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static String label(OrderItemSnapshot snapshot, GroupBy groupBy, long key) {
+        switch (groupBy) {
+            case NONE:
+                return "all";
+            case CITY:
+                return key < 0 ? "unknown" : snapshot.cityNames[(int) key];
+            case DAY:
+                return LocalDate.ofEpochDay(key).toString();
+            default:
+                return String.valueOf(key);
+        }
+    }
+
+    /**
+     * 조회 조건을 기본형으로 풀어 둔다.
+     * */
+    private static class Filter {
+        final boolean hasTime;
+        final long from;
+        final long to;
+        final boolean hasStatus;
+        final byte status;
+        final boolean hasItem;
+        final long itemId;
+        final boolean hasMember;
+        final long memberId;
+
+        Filter(OrderItemQuery query) {
+            hasTime = query.getFrom() != null || query.getTo() != null;
+            from = query.getFrom() == null ? Long.MIN_VALUE : epochSecond(query.getFrom());
+            to = query.getTo() == null ? Long.MAX_VALUE : epochSecond(query.getTo());
+            hasStatus = query.getStatus() != null;
+            status = hasStatus ? (byte) query.getStatus().ordinal() : 0;
+            hasItem = query.getItemId() != null;
+            itemId = hasItem ? query.getItemId() : 0;
+            hasMember = query.getMemberId() != null;
+            memberId = hasMember ? query.getMemberId() : 0;
+        }
+
+        /**
+         * [start, end) 중 조건에 맞는 행 번호를 selection에 채우고 개수를 반환한다.
+         * 분기 없이 다음 위치에 쓰고 조건이 맞을 때만 개수를 늘린다.
+         * */
+        int select(OrderItemSnapshot s, int start, int end, int[] selection) {
+            int n = 0;
+            if (hasTime) {
+                long[] times = s.orderTimes;
+                for (int i = start; i < end; i++) {
+                    selection[n] = i;
+                    n += (times[i] >= from & times[i] < to) ? 1 : 0;
+                }
+            } else {
+                for (int i = start; i < end; i++) {
+                    selection[n++] = i;
+                }
+            }
+
+            if (hasStatus) {
+                byte[] statuses = s.statuses;
+                int m = 0;
+                for (int k = 0; k < n; k++) {
+                    int i = selection[k];
+                    selection[m] = i;
+                    m += statuses[i] == status ? 1 : 0;
+                }
+                n = m;
+            }
+            if (hasItem) {
+                long[] itemIds = s.itemIds;
+                int m = 0;
+                for (int k = 0; k < n; k++) {
+                    int i = selection[k];
+                    selection[m] = i;
+                    m += itemIds[i] == itemId ? 1 : 0;
+                }
+                n = m;
+            }
+            if (hasMember) {
+                long[] memberIds = s.memberIds;
+                int m = 0;
+                for (int k = 0; k < n; k++) {
+                    int i = selection[k];
+                    selection[m] = i;
+                    m += memberIds[i] == memberId ? 1 : 0;
+                }
+                n = m;
+            }
+            return n;
+        }
+    }
+
+    private static class ScanTask extends RecursiveTask<Aggregation> {
+        private final OrderItemSnapshot snapshot;
+        private final Filter filter;
+        private final GroupBy groupBy;
+        private final int from;
+        private final int to;
+
+        ScanTask(OrderItemSnapshot snapshot, Filter filter, GroupBy groupBy, int from, int to) {
+            this.snapshot = snapshot;
+            this.filter = filter;
+            this.groupBy = groupBy;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Aggregation compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(snapshot, filter, groupBy, from, middle);
+                left.fork();
+                Aggregation right = new ScanTask(snapshot, filter, groupBy, middle, to).compute();
+                return left.join().merge(right);
+            }
+
+            Aggregation aggregation = new Aggregation();
+            int[] selection = new int[BATCH_SIZE];
+            for (int start = from; start < to; start += BATCH_SIZE) {
+                int n = filter.select(snapshot, start, Math.min(start + BATCH_SIZE, to), selection);
+                aggregate(aggregation, selection, n);
+            }
+            return aggregation;
+        }
+
+        private void aggregate(Aggregation aggregation, int[] selection, int n) {
+            OrderItemSnapshot s = snapshot;
+            switch (groupBy) {
+                case NONE:
+                    for (int k = 0; k < n; k++) {
+                        int i = selection[k];
+                        aggregation.add(0, s.counts[i], s.orderPrices[i]);
+                    }
+                    break;
+                case ITEM:
+                    for (int k = 0; k < n; k++) {
+                        int i = selection[k];
+                        aggregation.add(s.itemIds[i], s.counts[i], s.orderPrices[i]);
+                    }
+                    break;
+                case MEMBER:
+                    for (int k = 0; k < n; k++) {
+                        int i = selection[k];
+                        aggregation.add(s.memberIds[i], s.counts[i], s.orderPrices[i]);
+                    }
+                    break;
+                case CITY:
+                    for (int k = 0; k < n; k++) {
+                        int i = selection[k];
+                        aggregation.add(s.cities[i], s.counts[i], s.orderPrices[i]);
+                    }
+                    break;
+                case HOUR:
+                    for (int k = 0; k < n; k++) {
+                        int i = selection[k];
+                        aggregation.add(Math.floorMod(Math.floorDiv(s.orderTimes[i], 3600L), 24L), s.counts[i], s.orderPrices[i]);
+                    }
+                    break;
+                case DAY:
+                    for (int k = 0; k < n; k++) {
+                        int i = selection[k];
+                        aggregation.add(Math.floorDiv(s.orderTimes[i], 86400L), s.counts[i], s.orderPrices[i]);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 그룹 키 -> (행 수, 수량, 매출). 기본형 배열의 open addressing으로 구현한다.
+     * */
+    static class Aggregation {
+        long[] keys = new long[16];
+        boolean[] used = new boolean[16];
+        long[] lines = new long[16];
+        long[] quantities = new long[16];
+        long[] revenues = new long[16];
+        int size;
+        long matched;
+
+        void add(long key, int count, int orderPrice) {
+            int slot = slot(key);
+            lines[slot]++;
+            quantities[slot] += count;
+            revenues[slot] += (long) orderPrice * count;
+            matched++;
+        }
+
+        Aggregation merge(Aggregation other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.used[i]) {
+                    int slot = slot(other.keys[i]);
+                    lines[slot] += other.lines[i];
+                    quantities[slot] += other.quantities[i];
+                    revenues[slot] += other.revenues[i];
+                }
+            }
+            matched += other.matched;
+            return this;
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (used[slot]) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+                return slot(key);
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+            return slot;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            long[] oldLines = lines;
+            long[] oldQuantities = quantities;
+            long[] oldRevenues = revenues;
+
+            int capacity = oldKeys.length * 2;
+            keys = new long[capacity];
+            used = new boolean[capacity];
+            lines = new long[capacity];
+            quantities = new long[capacity];
+            revenues = new long[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = slot(oldKeys[i]);
+                    lines[slot] = oldLines[i];
+                    quantities[slot] = oldQuantities[i];
+                    revenues[slot] = oldRevenues[i];
+                }
+            }
+        }
+    }
+}
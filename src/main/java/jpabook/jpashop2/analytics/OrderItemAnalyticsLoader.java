@@ -0,0 +1,139 @@
+package jpabook.jpashop2.analytics;
+
+import jpabook.jpashop2.domain.OrderStatus;
+import jpabook.jpashop2.event.DomainEvent;
+import jpabook.jpashop2.event.DomainEventHandler;
+import jpabook.jpashop2.event.OrderCancelledEvent;
+import jpabook.jpashop2.event.OrderPlacedEvent;
+import jpabook.jpashop2.repository.OrderItemFactRepository;
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.Shards;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 시작 시 shard마다 order_id 범위를 나누어 여러 스레드에서 동시에 적재하고,
+ * 이후에는 커밋된 주문/취소 이벤트로 변경된 주문만 반영한다.
+ * 적재 중에 들어온 이벤트와 겹치는 주문은 OrderItemStore에서 한번만 추가된다.
+ * 아직 적재되지 않은 주문의 취소 이벤트는 주문을 DB에서 다시 읽어 취소된 상태로 추가한다.
+ * 다시 읽는 사이에 적재 스레드가 취소 전에 읽은 행을 먼저 추가하면 다시 읽은 행은 중복으로 건너뛰기 때문에, 추가한 뒤 취소 상태를 한번 더 반영한다.
+ * 보관(archive)된 주문도 분석 대상이다. 시작 시 보관 테이블도 함께 적재하기 때문에 재시작해도 결과가 같다.
+ * 기동을 막지 않도록 별도 스레드에서 적재하고, 적재하는 동안에는 isReady가 false 이다.
+ * */
+@Slf4j
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class OrderItemAnalyticsLoader implements DomainEventHandler {
+    private static final long RANGE_SIZE = 10_000;
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final OrderItemStore store;
+    private final OrderItemFactRepository orderItemFactRepository;
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
+
+    private volatile boolean ready;
+
+    private Thread loader;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void start() {
+        if (loader != null) {
+            return;
+        }
+
+        loader = new Thread(this::load, "order-item-analytics-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        try {
+            loadAll();
+            ready = true;
+        } catch (Exception e) {
+            log.error("order item analytics load failed.", e);
+        }
+    }
+
+    private void loadAll() throws Exception {
+        long start = System.currentTimeMillis();
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger loaded = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int shard = 0; shard < shards.count(); shard++) {
+                int target = shard;
+                long[] range = shardTemplate.executeReadOnly(target, orderItemFactRepository::findOrderIdRange);
+                if (range == null) {
+                    continue;
+                }
+
+                for (long from = range[0]; from <= range[1]; from += RANGE_SIZE) {
+                    long fromId = from;
+                    long toId = Math.min(from + RANGE_SIZE - 1, range[1]);
+                    futures.add(executor.submit(() -> {
+                        OrderItemColumns chunk = shardTemplate.executeReadOnly(target,
+                                () -> orderItemFactRepository.findBetween(fromId, toId, store::cityCode));
+                        loaded.addAndGet(store.append(chunk));
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        log.info("order item analytics loaded. rows={}, threads={}, {}ms",
+                loaded.get(), threads, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void handle(List<DomainEvent> events) {
+        Set<Long> missing = new LinkedHashSet<>();
+        List<Long> missingCancels = new ArrayList<>();
+        for (DomainEvent event : events) {
+            if (event instanceof OrderCancelledEvent) {
+                if (!store.updateStatus(event.getKey(), OrderStatus.CANCEL)) {
+                    missing.add(event.getKey());
+                    missingCancels.add(event.getKey());
+                }
+            } else if (event instanceof OrderPlacedEvent && !store.contains(event.getKey())) {
+                missing.add(event.getKey());
+            }
+        }
+
+        Map<Integer, List<Long>> byShard = new TreeMap<>();
+        for (Long orderId : missing) {
+            byShard.computeIfAbsent(shards.ofOrder(orderId), s -> new ArrayList<>()).add(orderId);
+        }
+        byShard.forEach(this::append);
+
+        missingCancels.forEach(orderId -> store.updateStatus(orderId, OrderStatus.CANCEL));
+    }
+
+    private void append(int shard, List<Long> orderIds) {
+        for (int from = 0; from < orderIds.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + LOAD_CHUNK_SIZE, orderIds.size()));
+            store.append(shardTemplate.executeReadOnly(shard, () -> orderItemFactRepository.findByOrderIds(chunk, store::cityCode)));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package jpabook.jpashop2.analytics;
+
+import java.util.Arrays;
+
+/**
+ * 주문상품 한 행을 객체로 만들지 않고 컬럼별 기본형 배열에 이어 붙인다.
+ * 같은 주문의 행은 연속해서 추가되어야 한다. 스레드에 안전하지 않으며, 조회 결과를 모으는 용도로 사용한다.
+ * 주문 시각은 LocalDateTime을 UTC로 본 epoch 초로 저장하여 시/일 단위 계산을 나눗셈으로 한다.
+ * */
+public class OrderItemColumns {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    long[] orderIds;
+    long[] itemIds;
+    long[] memberIds;
+    int[] orderPrices;
+    int[] counts;
+    long[] orderTimes;
+    byte[] statuses;
+    int[] cities;
+
+    int size;
+
+    public OrderItemColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public OrderItemColumns(int capacity) {
+        orderIds = new long[capacity];
+        itemIds = new long[capacity];
+        memberIds = new long[capacity];
+        orderPrices = new int[capacity];
+        counts = new int[capacity];
+        orderTimes = new long[capacity];
+        statuses = new byte[capacity];
+        cities = new int[capacity];
+    }
+
+    public void add(long orderId, long itemId, long memberId, int orderPrice, int count, long orderTime, byte status, int city) {
+        ensureCapacity(size + 1);
+        orderIds[size] = orderId;
+        itemIds[size] = itemId;
+        memberIds[size] = memberId;
+        orderPrices[size] = orderPrice;
+        counts[size] = count;
+        orderTimes[size] = orderTime;
+        statuses[size] = status;
+        cities[size] = city;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * other의 [from, to) 행을 배열 복사로 이어 붙인다.
+     * */
+    void addAll(OrderItemColumns other, int from, int to) {
+        int length = to - from;
+        ensureCapacity(size + length);
+        System.arraycopy(other.orderIds, from, orderIds, size, length);
+        System.arraycopy(other.itemIds, from, itemIds, size, length);
+        System.arraycopy(other.memberIds, from, memberIds, size, length);
+        System.arraycopy(other.orderPrices, from, orderPrices, size, length);
+        System.arraycopy(other.counts, from, counts, size, length);
+        System.arraycopy(other.orderTimes, from, orderTimes, size, length);
+        System.arraycopy(other.statuses, from, statuses, size, length);
+        System.arraycopy(other.cities, from, cities, size, length);
+        size += length;
+    }
+
+    /**
+     * 배열이 부족하면 1.5배 크기의 새 배열로 복사한다. 이전 배열은 그대로 남기 때문에 이미 공개된 snapshot에 영향이 없다.
+     * */
+    private void ensureCapacity(int required) {
+        if (required <= orderIds.length) {
+            return;
+        }
+
+        int capacity = Math.max(required, orderIds.length + (orderIds.length >> 1));
+        orderIds = Arrays.copyOf(orderIds, capacity);
+        itemIds = Arrays.copyOf(itemIds, capacity);
+        memberIds = Arrays.copyOf(memberIds, capacity);
+        orderPrices = Arrays.copyOf(orderPrices, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        orderTimes = Arrays.copyOf(orderTimes, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        cities = Arrays.copyOf(cities, capacity);
+    }
+}
@@ -0,0 +1,32 @@
+package jpabook.jpashop2.analytics;
+
+import jpabook.jpashop2.domain.OrderStatus;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * 주문상품 집계 조건. 값이 없는 조건은 적용하지 않는다.
+ * 주문 시각은 from 이상 to 미만.
+ * */
+@Getter
+@Setter
+public class OrderItemQuery {
+    private OrderStatus status;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    private Long itemId;
+
+    private Long memberId;
+
+    private GroupBy groupBy = GroupBy.NONE;
+
+    private int limit = 100;
+}
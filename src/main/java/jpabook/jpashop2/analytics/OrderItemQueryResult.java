@@ -0,0 +1,21 @@
+package jpabook.jpashop2.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 매출 순으로 정렬된 그룹별 집계와 검사한 행 수, 조건에 맞는 행 수
+ * */
+@Data
+@AllArgsConstructor
+public class OrderItemQueryResult {
+    private List<OrderItemAggregate> groups;
+
+    private long scannedRows;
+
+    private long matchedRows;
+
+    private long tookMillis;
+}
@@ -0,0 +1,32 @@
+package jpabook.jpashop2.analytics;
+
+/**
+ * 조회 시점의 컬럼 배열과 행 수. 행은 추가만 되기 때문에 [0, size) 범위는 이후의 추가에 영향을 받지 않는다.
+ * 주문 상태만 취소 시 같은 배열에서 변경된다.
+ * */
+class OrderItemSnapshot {
+    final long[] orderIds;
+    final long[] itemIds;
+    final long[] memberIds;
+    final int[] orderPrices;
+    final int[] counts;
+    final long[] orderTimes;
+    final byte[] statuses;
+    final int[] cities;
+    final int size;
+
+    final String[] cityNames;
+
+    OrderItemSnapshot(OrderItemColumns columns, String[] cityNames) {
+        this.orderIds = columns.orderIds;
+        this.itemIds = columns.itemIds;
+        this.memberIds = columns.memberIds;
+        this.orderPrices = columns.orderPrices;
+        this.counts = columns.counts;
+        this.orderTimes = columns.orderTimes;
+        this.statuses = columns.statuses;
+        this.cities = columns.cities;
+        this.size = columns.size;
+        this.cityNames = cityNames;
+    }
+}
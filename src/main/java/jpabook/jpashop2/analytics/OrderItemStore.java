@@ -0,0 +1,165 @@
+package jpabook.jpashop2.analytics;
+
+import jpabook.jpashop2.domain.OrderStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 분석용 주문상품 컬럼 저장소.
+ * 쓰기(주문 추가, 상태 변경)는 synchronized로 직렬화하고, 쓰기가 끝날 때마다 새 snapshot을 공개한다.
+ * 조회는 락 없이 snapshot의 배열을 읽는다.
+ * 같은 주문이 시작 시 적재와 주문 이벤트로 두번 들어올 수 있기 때문에 주문 id로 첫 행의 위치를 색인하여 중복을 건너뛴다.
+ * */
+@Component
+public class OrderItemStore {
+    private final OrderItemColumns columns = new OrderItemColumns();
+
+    private final OrderRowIndex orderRows = new OrderRowIndex();
+
+    private final Map<String, Integer> cityCodes = new HashMap<>();
+
+    private String[] cityNames = new String[0];
+
+    private volatile OrderItemSnapshot snapshot = new OrderItemSnapshot(columns, cityNames);
+
+    OrderItemSnapshot snapshot() {
+        return snapshot;
+    }
+
+    public int size() {
+        return snapshot.size;
+    }
+
+    /**
+     * 도시 이름을 사전 번호로 바꾼다. 배송지가 없으면 -1.
+     * */
+    public synchronized int cityCode(String city) {
+        if (city == null) {
+            return -1;
+        }
+
+        Integer code = cityCodes.get(city);
+        if (code == null) {
+            code = cityNames.length;
+            cityCodes.put(city, code);
+            cityNames = Arrays.copyOf(cityNames, code + 1);
+            cityNames[code] = city;
+        }
+        return code;
+    }
+
+    public synchronized boolean contains(long orderId) {
+        return orderRows.get(orderId) >= 0;
+    }
+
+    /**
+     * 이미 있는 주문은 건너뛰고 추가된 행 수를 반환한다. chunk의 같은 주문 행은 연속되어 있어야 한다.
+     * */
+    public synchronized int append(OrderItemColumns chunk) {
+        int appended = 0;
+        int from = 0;
+        while (from < chunk.size) {
+            long orderId = chunk.orderIds[from];
+            int to = from + 1;
+            while (to < chunk.size && chunk.orderIds[to] == orderId) {
+                to++;
+            }
+
+            if (orderRows.get(orderId) < 0) {
+                orderRows.put(orderId, columns.size);
+                columns.addAll(chunk, from, to);
+                appended += to - from;
+            }
+            from = to;
+        }
+
+        if (appended > 0) {
+            publish();
+        }
+        return appended;
+    }
+
+    /**
+     * 주문의 모든 행의 상태를 변경한다. 주문이 없으면 false.
+     * */
+    public synchronized boolean updateStatus(long orderId, OrderStatus status) {
+        int row = orderRows.get(orderId);
+        if (row < 0) {
+            return false;
+        }
+
+        for (; row < columns.size && columns.orderIds[row] == orderId; row++) {
+            columns.statuses[row] = (byte) status.ordinal();
+        }
+        publish();
+        return true;
+    }
+
+    private void publish() {
+        snapshot = new OrderItemSnapshot(columns, cityNames);
+    }
+
+    /**
+     * 주문 id -> 첫 행 위치. 주문마다 객체를 만들지 않도록 기본형 배열의 open addressing으로 구현한다.
+     * */
+    private static class OrderRowIndex {
+        private long[] keys = new long[1024];
+
+        private int[] rows = new int[1024];
+
+        private boolean[] used = new boolean[1024];
+
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return rows[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int row) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                size++;
+            }
+            rows[slot] = row;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldRows = rows;
+            boolean[] oldUsed = used;
+
+            keys = new long[oldKeys.length * 2];
+            rows = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    put(oldKeys[i], oldRows[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            return Long.hashCode(key * 0x9E3779B97F4A7C15L);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop2.aop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 같은 파라미터로 동시에 호출된 읽기 전용 메서드를 한번만 실행하고 결과를 함께 사용한다.
+ * 결과가 여러 요청에 공유되기 때문에 엔티티가 아닌 DTO를 반환하는 조회 메서드에만 선언한다.
+ * */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesce {
+    /**
+     * 실행이 끝난 뒤에도 결과를 재사용하는 시간(ms). 0이면 실행 중인 호출만 공유한다.
+     * */
+    long ttlMillis() default 0;
+}
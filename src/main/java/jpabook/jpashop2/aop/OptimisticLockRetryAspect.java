@@ -0,0 +1,79 @@
+package jpabook.jpashop2.aop;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.OptimisticLockException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 트랜잭션 advisor(LOWEST_PRECEDENCE)보다 먼저 실행되어야 트랜잭션 전체를 다시 실행할 수 있다.
+ * 메서드별 충돌/재시도/실패 횟수를 optimistic.lock.* 메트릭으로 기록한다.
+ * */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@RequiredArgsConstructor
+public class OptimisticLockRetryAspect {
+    private static final double BUDGET_RATIO = 0.2;
+    private static final double BUDGET_MAX_TOKENS = 10;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+    @Around("@annotation(retry)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnOptimisticLock retry) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        String method = joinPoint.getSignature().toShortString();
+        RetryBudget budget = budgets.computeIfAbsent(method, k -> new RetryBudget(BUDGET_RATIO, BUDGET_MAX_TOKENS));
+        budget.deposit();
+
+        int attempt = 1;
+        while (true) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                counter("optimistic.lock.conflicts", method).increment();
+
+                if (attempt >= retry.maxAttempts() || !budget.tryWithdraw()) {
+                    counter("optimistic.lock.exhausted", method).increment();
+                    log.warn("optimistic lock retry exhausted. method={}, attempts={}", method, attempt);
+                    throw e;
+                }
+
+                counter("optimistic.lock.retries", method).increment();
+                Thread.sleep(backoff(retry, attempt));
+                attempt++;
+            }
+        }
+    }
+
+    /**
+     * full jitter: 0 ~ min(max, base * 2^(attempt - 1)) 사이의 무작위 값.
+     * */
+    private long backoff(RetryOnOptimisticLock retry, int attempt) {
+        long ceiling = Math.min(retry.maxBackoffMillis(), retry.backoffMillis() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private Counter counter(String name, String method) {
+        return meterRegistry.counter(name, "method", method);
+    }
+}
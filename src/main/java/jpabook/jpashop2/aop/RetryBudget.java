@@ -0,0 +1,32 @@
+package jpabook.jpashop2.aop;
+
+/**
+ * 충돌이 몰릴 때 재시도가 부하를 더 키우지 않도록 재시도 횟수를 전체 호출 수의 일정 비율로 제한한다.
+ * 호출마다 ratio 만큼 토큰이 쌓이고, 재시도 한번에 토큰 하나를 사용한다.
+ * */
+public class RetryBudget {
+    private final double ratio;
+
+    private final double maxTokens;
+
+    private double tokens;
+
+    public RetryBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    public synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+
+        tokens -= 1;
+        return true;
+    }
+}
@@ -0,0 +1,27 @@
+package jpabook.jpashop2.aop;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 낙관적 락 충돌이 발생하면 트랜잭션을 처음부터 다시 실행한다.
+ * 트랜잭션 바깥에서 재시도해야 하기 때문에 @Transactional 메서드에 함께 선언하고,
+ * 이미 진행 중인 트랜잭션 안에서 호출되면 재시도하지 않는다.
+ * */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnOptimisticLock {
+    /**
+     * 최초 실행을 포함한 최대 실행 횟수.
+     * */
+    int maxAttempts() default 3;
+
+    /**
+     * 재시도 간격의 기준 값(ms). 시도마다 두배씩 증가한 범위 안에서 무작위로 대기한다.
+     * */
+    long backoffMillis() default 20;
+
+    long maxBackoffMillis() default 500;
+}
@@ -0,0 +1,161 @@
+package jpabook.jpashop2.aop;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jpabook.jpashop2.deadline.RequestDeadline;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 메서드와 파라미터가 같은 호출이 실행 중이면 새로 실행하지 않고 먼저 실행된 호출의 결과를 기다린다.
+ * 결과가 List이면 수정할 수 없는 복사본을 공유하여 한 호출자가 다른 호출자의 결과를 바꾸지 못하게 한다.
+ * 호출 수 대비 공유된 호출의 비율을 singleflight.coalescing.ratio 메트릭으로 기록한다.
+ * 먼저 실행된 호출의 쿼리는 그 호출의 요청 기한(RequestDeadline)으로 취소될 수 있기 때문에,
+ * 클라이언트가 정한 짧은 기한을 가진 호출은 다른 호출이 기다릴 실행을 시작하지 않고 혼자 실행한다.
+ * 기다리는 호출은 자신의 기한까지만 기다리고, 먼저 실행된 호출이 그 호출의 기한으로 실패하면 직접 실행한다.
+ * */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class SingleFlightAspect {
+    private final MeterRegistry meterRegistry;
+
+    private final Map<List<Object>, Flight> flights = new ConcurrentHashMap<>();
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    @Around("@annotation(coalesce)")
+    public Object coalesce(ProceedingJoinPoint joinPoint, Coalesce coalesce) throws Throwable {
+        String method = joinPoint.getSignature().toShortString();
+        List<Object> key = List.of(method, Arrays.asList(joinPoint.getArgs()));
+        Stats methodStats = stats.computeIfAbsent(method, this::register);
+
+        RequestDeadline deadline = RequestDeadline.current();
+        boolean canLead = deadline == null || !deadline.isClientSupplied();
+        Flight mine = new Flight(deadline);
+        long now = System.nanoTime();
+        Flight flight = flights.compute(key, (k, v) -> v != null && v.isLive(now) ? v : canLead ? mine : null);
+        methodStats.calls.incrementAndGet();
+
+        if (flight == null) {
+            return joinPoint.proceed();
+        }
+        if (flight != mine) {
+            methodStats.coalesced.increment();
+            try {
+                return deadline == null ? flight.result.get() : flight.result.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                if (flight.failedByLeaderDeadline(deadline)) {
+                    return joinPoint.proceed();
+                }
+                throw e.getCause();
+            } catch (TimeoutException e) {
+                throw new QueryTimeoutException("요청 처리 시간이 초과되었습니다. method=" + method, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("공유된 조회 결과를 기다리는 중 인터럽트 되었습니다. method=" + method, e);
+            }
+        }
+
+        try {
+            Object result = shareable(joinPoint.proceed());
+            mine.complete(result, coalesce.ttlMillis());
+            if (coalesce.ttlMillis() <= 0) {
+                flights.remove(key, mine);
+            }
+            return result;
+        } catch (Throwable e) {
+            flights.remove(key, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * ttl이 지난 결과를 제거한다. 파라미터가 매번 다른 호출이 있어도 map이 계속 커지지 않는다.
+     * */
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        flights.values().removeIf(f -> !f.isLive(now));
+    }
+
+    private Object shareable(Object result) {
+        if (result instanceof List) {
+            return Collections.unmodifiableList(new ArrayList<>((List<?>) result));
+        }
+
+        return result;
+    }
+
+    private Stats register(String method) {
+        Stats methodStats = new Stats(meterRegistry.counter("singleflight.coalesced", "method", method));
+        meterRegistry.gauge("singleflight.coalescing.ratio", Tags.of("method", method), methodStats, Stats::ratio);
+        return methodStats;
+    }
+
+    private static class Flight {
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        /**
+         * 실행한 호출의 요청 기한. 없으면 null.
+         * */
+        private final RequestDeadline deadline;
+
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        Flight(RequestDeadline deadline) {
+            this.deadline = deadline;
+        }
+
+        void complete(Object value, long ttlMillis) {
+            expiresAt = System.nanoTime() + ttlMillis * 1_000_000;
+            result.complete(value);
+        }
+
+        boolean isLive(long now) {
+            return !result.isDone() || now - expiresAt < 0;
+        }
+
+        /**
+         * 실행한 호출의 기한이 지나 실패했고, 기다린 호출(waiting)의 기한은 아직 남아 있는지 여부.
+         * */
+        boolean failedByLeaderDeadline(RequestDeadline waiting) {
+            return deadline != null && deadline != waiting && deadline.isExpired()
+                    && (waiting == null || !waiting.isExpired());
+        }
+    }
+
+    private static class Stats {
+        private final AtomicLong calls = new AtomicLong();
+
+        private final Counter coalesced;
+
+        Stats(Counter coalesced) {
+            this.coalesced = coalesced;
+        }
+
+        double ratio() {
+            long total = calls.get();
+            return total == 0 ? 0 : coalesced.count() / total;
+        }
+    }
+}
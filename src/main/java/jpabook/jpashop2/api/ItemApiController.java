@@ -0,0 +1,120 @@
+package jpabook.jpashop2.api;
+
+import jpabook.jpashop2.admission.AdmissionCost;
+import jpabook.jpashop2.admission.CostClass;
+import jpabook.jpashop2.deadline.Deadline;
+import jpabook.jpashop2.domain.item.Album;
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.domain.item.Item;
+import jpabook.jpashop2.domain.item.Movie;
+import jpabook.jpashop2.search.ItemSearchIndex;
+import jpabook.jpashop2.search.ItemSearchIndexer;
+import jpabook.jpashop2.search.ItemSearchResult;
+import jpabook.jpashop2.service.ItemImportResult;
+import jpabook.jpashop2.service.ItemImportService;
+import jpabook.jpashop2.service.ItemService;
+import jpabook.jpashop2.service.UpdateItemDto;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import java.io.IOException;
+
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+    private final ItemImportService itemImportService;
+    private final ItemService itemService;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemSearchIndexer itemSearchIndexer;
+
+    /**
+     * 요청 본문을 스트림으로 읽어 상품의 가격과 재고를 일괄 수정한다.
+     * 본문 형식: itemId,price,stockQuantity (첫 줄 헤더는 생략 가능)
+     * */
+    @AdmissionCost(CostClass.EXPENSIVE)
+    @Deadline(millis = 0)
+    @PostMapping(value = "/api/items/import", consumes = {"text/csv", "text/plain"})
+    public ItemImportResult importItems(HttpServletRequest request) throws IOException {
+        return itemImportService.importPriceAndStock(request.getReader());
+    }
+
+    /**
+     * 상품 이름과 저자/ISBN/아티스트/감독 등으로 검색한다. 각 단어는 접두어로도 일치하고 점수 순으로 정렬된다.
+     * db를 조회하지 않고 메모리의 역색인에서 바로 응답한다. 색인을 만드는 중이면 503으로 응답한다.
+     * */
+    @GetMapping("/api/items/search")
+    public ItemSearchResult searchItems(@RequestParam("q") String query,
+                                        @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                        @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (!itemSearchIndexer.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "상품 검색 색인을 만드는 중입니다.");
+        }
+
+        return itemSearchIndex.search(query, Math.max(0, offset), Math.max(1, Math.min(limit, 100)));
+    }
+
+    /**
+     * 요청에 포함된 필드만 변경 감지로 수정한다. merge와 달리 누락된 필드가 null로 덮어써지지 않는다.
+     * 없는 상품이거나 상품 종류에 없는 필드가 전달되면 400으로 응답한다.
+     * version을 함께 보내면 그 이후에 다른 요청이 수정한 상품은 수정하지 않고 409로 응답한다.
+     * */
+    @PatchMapping("/api/items/{id}")
+    public ItemResponse patchItem(@PathVariable("id") Long id, @RequestBody @Valid UpdateItemDto request) {
+        try {
+            return new ItemResponse(itemService.updateItem(id, request));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (ConcurrencyFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    @Data
+    static class ItemResponse {
+        private Long id;
+
+        private String name;
+
+        private int price;
+
+        private int stockQuantity;
+
+        private String author;
+
+        private String isbn;
+
+        private String artist;
+
+        private String etc;
+
+        private String director;
+
+        private String actor;
+
+        private Long version;
+
+        public ItemResponse(Item item) {
+            id = item.getId();
+            version = item.getVersion();
+            name = item.getName();
+            price = item.getPrice();
+            stockQuantity = item.getStockQuantity();
+            if (item instanceof Book) {
+                author = ((Book) item).getAuthor();
+                isbn = ((Book) item).getIsbn();
+            } else if (item instanceof Album) {
+                artist = ((Album) item).getArtist();
+                etc = ((Album) item).getEtc();
+            } else if (item instanceof Movie) {
+                director = ((Movie) item).getDirector();
+                actor = ((Movie) item).getActor();
+            }
+        }
+    }
+}
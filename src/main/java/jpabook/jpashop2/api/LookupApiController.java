@@ -0,0 +1,31 @@
+package jpabook.jpashop2.api;
+
+import jpabook.jpashop2.lookup.LookupEntry;
+import jpabook.jpashop2.lookup.OrderFormLookup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 주문 화면의 회원/상품 자동완성. db를 조회하지 않고 메모리의 정렬된 배열에서 접두어로 찾는다.
+ * */
+@RestController
+@RequiredArgsConstructor
+public class LookupApiController {
+    private final OrderFormLookup orderFormLookup;
+
+    @GetMapping("/api/lookup/members")
+    public List<LookupEntry> members(@RequestParam(value = "prefix", defaultValue = "") String prefix,
+                                     @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return orderFormLookup.findMembers(prefix, Math.max(1, Math.min(limit, 100)));
+    }
+
+    @GetMapping("/api/lookup/items")
+    public List<LookupEntry> items(@RequestParam(value = "prefix", defaultValue = "") String prefix,
+                                   @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return orderFormLookup.findItems(prefix, Math.max(1, Math.min(limit, 100)));
+    }
+}
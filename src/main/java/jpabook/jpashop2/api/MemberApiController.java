@@ -1,25 +1,44 @@
 package jpabook.jpashop2.api;
 
+import jpabook.jpashop2.admission.AdmissionCost;
+import jpabook.jpashop2.admission.CostClass;
+import jpabook.jpashop2.deadline.Deadline;
 import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.repository.MemberRepository;
+import jpabook.jpashop2.service.BulkJoinResult;
+import jpabook.jpashop2.service.MemberBulkJoinService;
+import jpabook.jpashop2.service.MemberCountCache;
 import jpabook.jpashop2.service.MemberService;
+import jpabook.jpashop2.service.UpdateMemberDto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.persistence.Tuple;
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberApiController {
     private final MemberService memberService;
+    private final MemberCountCache memberCountCache;
+    private final MemberBulkJoinService memberBulkJoinService;
 
     /**
      * Entity를 직접 반환하면 Entity의 정보가 모두 노출되고 Entity가 수정된다면
      * api 스펙 자체가 변경되기 때문에 위험하다.
      * */
+    @AdmissionCost(CostClass.MODERATE)
     @GetMapping("/api/v1/members")
     public List<Member> membersV1() {
         return memberService.findMembers();
@@ -29,6 +48,7 @@ public class MemberApiController {
      * Entity가 변경된다해도 api 스펙이 변하지 않고, json의 구조가 확장에 용이하게 변경된다.
      * 별도의 dto로 필요한 정보면 외부에 노출한다.
      * */
+    @AdmissionCost(CostClass.MODERATE)
     @GetMapping("/api/v2/members")
     public Result membersV2() {
         List<Member> findMembers = memberService.findMembers();
@@ -39,6 +59,40 @@ public class MemberApiController {
         return new Result(collect);
     }
 
+    /**
+     * 요청한 필드만 조회하고 member_id 커서로 페이징한다.
+     * 다음 페이지는 응답의 nextCursor를 cursor로 전달하여 조회하고, totalCount는 캐시된 근사값이다.
+     * */
+    @AdmissionCost(CostClass.MODERATE)
+    @GetMapping("/api/v3/members")
+    public MemberPage membersV3(@RequestParam(value = "cursor", required = false) Long cursor,
+                                @RequestParam(value = "size", defaultValue = "100") int size,
+                                @RequestParam(value = "fields", defaultValue = "name") List<String> requestedFields) {
+        List<String> fields = requestedFields.stream().map(String::trim).distinct().collect(Collectors.toList());
+        for (String field : fields) {
+            if (!MemberRepository.PROJECTION_FIELDS.containsKey(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "조회할 수 없는 필드입니다. field=" + field);
+            }
+        }
+        int limit = Math.max(1, Math.min(size, 1000));
+
+        List<Tuple> rows = memberService.findMemberPage(cursor, limit + 1, fields);
+        boolean hasNext = rows.size() > limit;
+        List<Tuple> page = hasNext ? rows.subList(0, limit) : rows;
+
+        List<Map<String, Object>> data = page.stream()
+                .map(t -> {
+                    Map<String, Object> member = new LinkedHashMap<>();
+                    member.put("id", t.get("id"));
+                    fields.forEach(f -> member.put(f, t.get(f)));
+                    return member;
+                })
+                .collect(Collectors.toList());
+        Long nextCursor = hasNext ? (Long) page.get(page.size() - 1).get("id") : null;
+
+        return new MemberPage(data, nextCursor, memberCountCache.approximateCount());
+    }
+
     /**
      * 파라미터로 Entity를 직접 사용하면 추후에 Entity가 수정된다면
      * api 스펙 자체가 변경되기 때문에 위험하다.
@@ -64,13 +118,44 @@ public class MemberApiController {
         return new CreateMemberResponse(id);
     }
 
+    /**
+     * 여러 회원을 한번에 가입시키고, 생성된 id와 가입되지 않은 이름을 사유와 함께 반환한다.
+     * 기한 초과 등으로 중간에 실패하면 이미 커밋된 결과와 처리되지 않은 이름을 503으로 반환한다.
+     * */
+    @AdmissionCost(CostClass.EXPENSIVE)
+    @Deadline(millis = 60_000)
+    @PostMapping("/api/v2/members/bulk")
+    public ResponseEntity<BulkJoinResult> saveMembersV2(@RequestBody @Valid CreateMembersRequest request) {
+        List<String> names = request.getMembers().stream()
+                .map(CreateMemberRequest::getName)
+                .collect(Collectors.toList());
+
+        BulkJoinResult result = memberBulkJoinService.joinAll(names);
+        return ResponseEntity.status(result.isCompleted() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(result);
+    }
+
     @PutMapping("/api/v2/members/{id}")
     public UpdateMemberResponse updateMemberV2(@PathVariable("id") Long id
             , @RequestBody @Valid UpdateMemberRequest request) {
-        memberService.update(id, request.getName());
-        Member findMember = memberService.findOne(id);
+        Member member = memberService.update(id, request.getName());
 
-        return new UpdateMemberResponse(findMember.getId(), findMember.getName());
+        return new UpdateMemberResponse(member.getId(), member.getName());
+    }
+
+    /**
+     * 요청에 포함된 필드만 수정하고, 수정된 상태를 다시 조회하지 않고 반환한다.
+     * */
+    @PatchMapping("/api/v2/members/{id}")
+    public PatchMemberResponse patchMemberV2(@PathVariable("id") Long id
+            , @RequestBody @Valid UpdateMemberDto request) {
+        Member member;
+        try {
+            member = memberService.update(id, request);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        return new PatchMemberResponse(member.getId(), member.getName(), member.getAddress());
     }
 
     @Data
@@ -79,6 +164,14 @@ public class MemberApiController {
         private T data;
     }
 
+    @Data
+    @AllArgsConstructor
+    static class MemberPage {
+        private List<Map<String, Object>> data;
+        private Long nextCursor;
+        private long totalCount;
+    }
+
     @Data
     @AllArgsConstructor
     static class MemberDto {
@@ -96,6 +189,12 @@ public class MemberApiController {
         private String name;
     }
 
+    @Data
+    static class CreateMembersRequest {
+        @NotEmpty
+        private List<CreateMemberRequest> members;
+    }
+
     @Data
     @AllArgsConstructor
     static class UpdateMemberResponse {
@@ -103,6 +202,14 @@ public class MemberApiController {
         private String name;
     }
 
+    @Data
+    @AllArgsConstructor
+    static class PatchMemberResponse {
+        private Long id;
+        private String name;
+        private Address address;
+    }
+
     @Data
     static class UpdateMemberRequest {
         private String name;
@@ -0,0 +1,36 @@
+package jpabook.jpashop2.api;
+
+import jpabook.jpashop2.admission.AdmissionCost;
+import jpabook.jpashop2.admission.CostClass;
+import jpabook.jpashop2.analytics.OrderItemAnalytics;
+import jpabook.jpashop2.analytics.OrderItemAnalyticsLoader;
+import jpabook.jpashop2.analytics.OrderItemQuery;
+import jpabook.jpashop2.analytics.OrderItemQueryResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequiredArgsConstructor
+public class OrderAnalyticsApiController {
+    private final OrderItemAnalytics orderItemAnalytics;
+    private final OrderItemAnalyticsLoader orderItemAnalyticsLoader;
+
+    /**
+     * 주문상품의 수량과 매출을 상품/회원/배송 도시/시간/일 단위로 집계한다.
+     * 예: /api/analytics/order-items?groupBy=HOUR&status=ORDER&from=2026-01-01T00:00:00
+     * db를 조회하지 않고 메모리의 컬럼 저장소에서 바로 응답한다. 적재가 끝나기 전에는 503으로 응답한다.
+     * */
+    @AdmissionCost(CostClass.EXPENSIVE)
+    @GetMapping("/api/analytics/order-items")
+    public OrderItemQueryResult orderItems(OrderItemQuery query) {
+        if (!orderItemAnalyticsLoader.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "주문 분석 데이터를 적재하는 중입니다.");
+        }
+
+        query.setLimit(Math.max(1, Math.min(query.getLimit(), 1000)));
+        return orderItemAnalytics.query(query);
+    }
+}
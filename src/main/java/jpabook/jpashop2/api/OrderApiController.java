@@ -1,24 +1,47 @@
 package jpabook.jpashop2.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop2.admission.AdmissionCost;
+import jpabook.jpashop2.admission.CostClass;
+import jpabook.jpashop2.deadline.Deadline;
 import jpabook.jpashop2.domain.Address;
 import jpabook.jpashop2.domain.Order;
 import jpabook.jpashop2.domain.OrderItem;
 import jpabook.jpashop2.domain.OrderStatus;
 import jpabook.jpashop2.repository.OrderRepository;
 import jpabook.jpashop2.repository.OrderSearch;
+import jpabook.jpashop2.repository.order.query.OrderDetailDto;
+import jpabook.jpashop2.repository.order.query.OrderFieldQueryRepository;
 import jpabook.jpashop2.repository.order.query.OrderFlatDto;
+import jpabook.jpashop2.repository.order.query.OrderHistoryQueryRepository;
 import jpabook.jpashop2.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop2.repository.order.query.OrderJsonQueryRepository;
 import jpabook.jpashop2.repository.order.query.OrderQueryRepository;
 import jpabook.jpashop2.repository.order.query.OrderQueryDto;
+import jpabook.jpashop2.service.BulkCancelResult;
+import jpabook.jpashop2.service.OrderDetailService;
+import jpabook.jpashop2.service.OrderLine;
+import jpabook.jpashop2.service.OrderService;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static java.util.stream.Collectors.*;
 
@@ -27,7 +50,15 @@ import static java.util.stream.Collectors.*;
 public class OrderApiController {
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderService orderService;
+    private final OrderJsonQueryRepository orderJsonQueryRepository;
+    private final OrderHistoryQueryRepository orderHistoryQueryRepository;
+    private final OrderDetailService orderDetailService;
+    private final OrderFieldQueryRepository orderFieldQueryRepository;
+    private final ObjectMapper objectMapper;
 
+    @AdmissionCost(CostClass.EXPENSIVE)
+    @Deadline(millis = 3000)
     @GetMapping("/api/v1/orders")
     public List<Order> orderV1() {
         List<Order> all = orderRepository.findAll(new OrderSearch());
@@ -43,6 +74,8 @@ public class OrderApiController {
         return all;
     }
 
+    @AdmissionCost(CostClass.EXPENSIVE)
+    @Deadline(millis = 3000)
     @GetMapping("/api/v2/orders")
     public List<OrderDto> ordersV2() {
         List<Order> orders = orderRepository.findAll(new OrderSearch());
@@ -61,6 +94,8 @@ public class OrderApiController {
      * 하지만 페이징을 추가하게되면 jpa는 일단 모든 데이터를 불러온 뒤에 메모리 상에서 페이징하기 때문에
      * outofmemory 에러가 발생할 수 있다.
      * */
+    @AdmissionCost(CostClass.EXPENSIVE)
+    @Deadline(millis = 3000)
     @GetMapping("/api/v3/orders")
     public List<OrderDto> ordersV3() {
         List<Order> orders = orderRepository.findAllWithItem();
@@ -77,6 +112,7 @@ public class OrderApiController {
      * 각 엔티티 마다 쿼리 한개씩만 날려서 데이터를 가져옴. 쿼리 개수가 1 + N + M에서 1 + 1 + 1로 줄어듦.
      * v3에서 fetch join으로 쿼리 한번에 데이터를 가져왔지만 중복 데이터가 많아서 네트워크 비용이 더 발생할 수 있음.
      * */
+    @AdmissionCost(CostClass.MODERATE)
     @GetMapping("/api/v3.1/orders")
     public List<OrderDto> ordersV3_page(@RequestParam(value = "offset", defaultValue = "0") int offset,
                                         @RequestParam(value = "limit", defaultValue = "100") int limit) {
@@ -88,9 +124,41 @@ public class OrderApiController {
         return collect;
     }
 
+    /**
+     * 회원의 주문 이력을 최신순으로 조회한다. 회원 이름 검색 대신 member_id로 조회하고,
+     * 다음 페이지는 응답의 nextCursorDate, nextCursorId를 그대로 전달하여 조회한다.
+     * */
+    @AdmissionCost(CostClass.MODERATE)
+    @GetMapping("/api/members/{memberId}/orders")
+    public MemberOrderPage memberOrders(@PathVariable("memberId") Long memberId,
+                                        @RequestParam(value = "cursorDate", required = false)
+                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursorDate,
+                                        @RequestParam(value = "cursorId", required = false) Long cursorId,
+                                        @RequestParam(value = "size", defaultValue = "20") int size) {
+        if ((cursorDate == null) != (cursorId == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursorDate와 cursorId는 함께 전달해야 합니다.");
+        }
+        int limit = Math.max(1, Math.min(size, 100));
+
+        List<Order> orders = orderRepository.findMemberOrderPage(memberId, cursorDate, cursorId, limit + 1);
+        boolean hasNext = orders.size() > limit;
+        List<Order> page = hasNext ? orders.subList(0, limit) : orders;
+
+        List<OrderDto> data = page.stream()
+                .map(o -> new OrderDto(o))
+                .collect(toList());
+        Order last = hasNext ? page.get(page.size() - 1) : null;
+
+        return new MemberOrderPage(data,
+                last == null ? null : last.getOrderDate(),
+                last == null ? null : last.getId());
+    }
+
     /**
      * v3.1의 데이터를 DTO로 조회. ~toMany의 관계 때문에 N + 1 문제가 발생한다.
      * */
+    @AdmissionCost(CostClass.EXPENSIVE)
+    @Deadline(millis = 3000)
     @GetMapping("/api/v4/orders")
     public List<OrderQueryDto> ordersV4() {
         return orderQueryRepository.findOrderQueryDtos();
@@ -100,15 +168,33 @@ public class OrderApiController {
      * in 절을 사용하여 ~toMany 관계의 데이터를 한번에 가져온 뒤 order id를 기준으로 map을 생성하여
      * O(1) 의 시간복잡도로 order와 orderItem 데이터를 합쳐서 전달한다.
      * */
+    @AdmissionCost(CostClass.EXPENSIVE)
+    @Deadline(millis = 3000)
     @GetMapping("/api/v5/orders")
     public List<OrderQueryDto> ordersV5() {
         return orderQueryRepository.findAllByDto_optimization();
     }
 
+    /**
+     * v5와 같은 json을 한번의 쿼리 결과에서 DTO 없이 바로 출력한다.
+     * order id 순으로 정렬하여 주문이 바뀌는 시점에 주문상품 목록을 닫기 때문에 중복 제거를 위한 메모리가 필요 없다.
+     * */
+    @AdmissionCost(CostClass.EXPENSIVE)
+    @Deadline(millis = 30_000)
+    @GetMapping(value = "/api/v5.1/orders", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void ordersV5_stream(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+            orderJsonQueryRepository.writeOrdersWithItems(generator);
+        }
+    }
+
     /**
      * 한번의 쿼리로 ~toMany 데이터를 가져와서 중복을 직접 제거하여 전달하는 방식.
      * 추가 작업이 발생하고 페이징이 불가능하다.
      * */
+    @AdmissionCost(CostClass.EXPENSIVE)
+    @Deadline(millis = 3000)
     @GetMapping("/api/v6/orders")
     public List<OrderQueryDto> ordersV6() {
         List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
@@ -125,6 +211,120 @@ public class OrderApiController {
                 .collect(toList());
     }
 
+    /**
+     * 요청한 필드만 조회하여 응답한다. 예: fields=status,member.name,orderItems.count,orderItems.item.name
+     * 필드에 필요한 연관관계만 조인하고, orderItems 필드가 없으면 주문상품은 조회하지 않는다. id는 항상 포함된다.
+     * 조회할 수 없는 필드가 있으면 400으로 응답한다.
+     * */
+    @AdmissionCost(CostClass.MODERATE)
+    @GetMapping("/api/v7/orders")
+    public List<Map<String, Object>> ordersV7(@RequestParam(value = "fields", defaultValue = "status") List<String> fields,
+                                              @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                              @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        for (String field : fields) {
+            if (!OrderFieldQueryRepository.isSupported(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "조회할 수 없는 필드입니다. field=" + field);
+            }
+        }
+        return orderFieldQueryRepository.findPage(fields, Math.max(0, offset), Math.max(1, Math.min(limit, 1000)));
+    }
+
+    /**
+     * 주문 상세. 조립된 주문을 캐시하고, 주문이 취소되면 캐시에서 제거된다. 없는 주문은 404로 응답한다.
+     * */
+    @AdmissionCost(CostClass.CHEAP)
+    @GetMapping("/api/orders/{orderId}")
+    public OrderDetailDto order(@PathVariable("orderId") Long orderId) {
+        return orderDetailService.findOrder(orderId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "존재하지 않는 주문입니다. orderId=" + orderId));
+    }
+
+    /**
+     * 여러 주문 상세를 한번에 조회한다. 캐시에 없는 주문은 in 절로 한번에 조회하기 때문에
+     * 요청한 주문 수와 관계없이 쿼리는 최대 두번 실행된다. 1000건을 넘으면 400으로 응답한다.
+     * */
+    @AdmissionCost(CostClass.MODERATE)
+    @GetMapping(value = "/api/orders", params = "ids")
+    public List<OrderDetailDto> orders(@RequestParam("ids") List<Long> orderIds) {
+        if (orderIds.size() > 1000) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "한번에 조회할 수 있는 주문은 1000건 입니다.");
+        }
+
+        return orderDetailService.findOrders(orderIds);
+    }
+
+    /**
+     * 보관 테이블로 옮겨진 주문도 함께 조회한다. 없는 주문은 404로 응답한다.
+     * */
+    @GetMapping("/api/orders/history/{orderId}")
+    public OrderQueryDto orderHistory(@PathVariable("orderId") Long orderId) {
+        return orderHistoryQueryRepository.findOrder(orderId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "존재하지 않는 주문입니다. orderId=" + orderId));
+    }
+
+    @AdmissionCost(CostClass.MODERATE)
+    @GetMapping("/api/orders/history")
+    public List<OrderQueryDto> memberOrderHistory(@RequestParam("memberId") Long memberId) {
+        return orderHistoryQueryRepository.findMemberOrders(memberId);
+    }
+
+    /**
+     * 여러 주문을 한번에 취소한다. 취소되지 않은 주문은 사유와 함께 반환된다.
+     * */
+    @AdmissionCost(CostClass.MODERATE)
+    @PostMapping("/api/orders/cancel")
+    public BulkCancelResult cancelOrders(@RequestBody @Valid CancelOrdersRequest request) {
+        return orderService.cancelOrders(request.getOrderIds());
+    }
+
+    @Data
+    static class CancelOrdersRequest {
+        @NotEmpty
+        private List<Long> orderIds;
+    }
+
+    /**
+     * 장바구니의 여러 상품을 하나의 주문으로 생성한다. 재고가 부족한 상품이 있으면 주문되지 않는다.
+     * 없는 회원이나 상품이 포함되면 400으로 응답한다.
+     * */
+    @AdmissionCost(CostClass.MODERATE)
+    @PostMapping("/api/orders/checkout")
+    public CheckoutResponse checkout(@RequestBody @Valid CheckoutRequest request) {
+        List<OrderLine> lines = request.getLines().stream()
+                .map(l -> new OrderLine(l.getItemId(), l.getCount()))
+                .collect(toList());
+        try {
+            return new CheckoutResponse(orderService.checkout(request.getMemberId(), lines));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @Data
+    static class CheckoutRequest {
+        @NotNull
+        private Long memberId;
+
+        @NotEmpty
+        @Valid
+        private List<CheckoutLine> lines;
+    }
+
+    @Data
+    static class CheckoutLine {
+        @NotNull
+        private Long itemId;
+
+        @Min(1)
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CheckoutResponse {
+        private Long orderId;
+    }
+
     @Getter
     static class OrderDto {
         public Long orderId;
@@ -151,6 +351,14 @@ public class OrderApiController {
         }
     }
 
+    @Data
+    @AllArgsConstructor
+    static class MemberOrderPage {
+        private List<OrderDto> data;
+        private LocalDateTime nextCursorDate;
+        private Long nextCursorId;
+    }
+
     @Data
     static class OrderItemDto {
         private String itemName;//상품 명
@@ -1,16 +1,29 @@
 package jpabook.jpashop2.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop2.admission.AdmissionCost;
+import jpabook.jpashop2.admission.CostClass;
 import jpabook.jpashop2.domain.Address;
 import jpabook.jpashop2.domain.Order;
 import jpabook.jpashop2.domain.OrderStatus;
+import jpabook.jpashop2.readmodel.OrderSummaryProjector;
+import jpabook.jpashop2.readmodel.OrderSummaryStore;
 import jpabook.jpashop2.repository.OrderRepository;
 import jpabook.jpashop2.repository.OrderSearch;
 import jpabook.jpashop2.repository.OrderSimpleQueryDto;
+import jpabook.jpashop2.repository.order.query.OrderJsonQueryRepository;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -25,6 +38,10 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OrderSimpleApiController {
     private final OrderRepository orderRepository;
+    private final OrderJsonQueryRepository orderJsonQueryRepository;
+    private final ObjectMapper objectMapper;
+    private final OrderSummaryStore orderSummaryStore;
+    private final OrderSummaryProjector orderSummaryProjector;
 
     /**
      * 객체를 json으로 만드는 jackson 입장에서는
@@ -35,6 +52,7 @@ public class OrderSimpleApiController {
      * 성능 상에도 문제가 있고 entity를 직접 반환하기 때문에 좋지 않음.
      * -------------DTO를 사용하자-------------
      */
+    @AdmissionCost(CostClass.EXPENSIVE)
     @GetMapping("/api/v1/simple-orders")
     public List<Order> ordersV1() {
         List<Order> all = orderRepository.findAll(new OrderSearch());
@@ -45,6 +63,7 @@ public class OrderSimpleApiController {
      * DTO를 사용하여 필요한 데이터만 외부에 노출하기 때문에 장점이다.
      * 하지만 LAZY 로딩으로 인해 쿼리가 여러번 발생된다.
      * */
+    @AdmissionCost(CostClass.EXPENSIVE)
     @GetMapping("/api/v2/simple-orders")
     public List<SimpleOrderDto> ordersV2() {
         List<Order> orders = orderRepository.findAll(new OrderSearch());
@@ -58,6 +77,7 @@ public class OrderSimpleApiController {
     /**
      * Fetch Join을 사용하여 쿼리 하나로 데이터를 가져온다.
      * */
+    @AdmissionCost(CostClass.EXPENSIVE)
     @GetMapping("/api/v3/simple-orders")
     public List<SimpleOrderDto> orderV3() {
         List<Order> orders = orderRepository.findAllWithMemberDelivery();
@@ -74,11 +94,43 @@ public class OrderSimpleApiController {
      * 오로지 Entity만 조회하는 Repository와는 별도로 사용하여
      * 유지보수를 용이하게 하는게 좋다.
      * */
+    @AdmissionCost(CostClass.EXPENSIVE)
     @GetMapping("/api/v4/simple-orders")
     public List<OrderSimpleQueryDto> orderV4() {
         return orderRepository.findOrderDtos();
     }
 
+    /**
+     * v4와 같은 json을 DTO 목록 없이 조회 결과에서 바로 응답 스트림으로 출력한다.
+     * 행 수와 관계없이 DTO와 리스트를 메모리에 들고 있지 않는다.
+     * */
+    @AdmissionCost(CostClass.EXPENSIVE)
+    @GetMapping(value = "/api/v4.1/simple-orders", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void orderV4_stream(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream())) {
+            orderJsonQueryRepository.writeOrderSimpleRows(generator);
+        }
+    }
+
+    /**
+     * 커밋된 변경으로 갱신되는 메모리 읽기 모델에서 바로 응답한다. db를 조회하지 않는다.
+     * 회원 id와 주문 상태로 거를 수 있고, 커밋 직후의 변경은 잠시 늦게 반영될 수 있다.
+     * */
+    @AdmissionCost(CostClass.MODERATE)
+    @GetMapping("/api/v5/simple-orders")
+    public List<OrderSimpleQueryDto> orderV5(@RequestParam(value = "memberId", required = false) Long memberId,
+                                             @RequestParam(value = "status", required = false) OrderStatus status) {
+        if (!orderSummaryProjector.isReady()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "주문 읽기 모델을 불러오는 중입니다.");
+        }
+
+        return orderSummaryStore.find(memberId, status).stream()
+                .map(s -> new OrderSimpleQueryDto(s.getOrderId(), s.getName(), s.getOrderDate(),
+                        s.getOrderStatus(), s.getAddress()))
+                .collect(Collectors.toList());
+    }
+
     @Data
     static class SimpleOrderDto {
         private Long orderId;
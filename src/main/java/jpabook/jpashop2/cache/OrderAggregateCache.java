@@ -0,0 +1,167 @@
+package jpabook.jpashop2.cache;
+
+import jpabook.jpashop2.event.*;
+import jpabook.jpashop2.repository.order.query.OrderDetailDto;
+import jpabook.jpashop2.repository.order.query.OrderItemQueryDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 조립이 끝난 주문 상세를 order id로 보관하는 LRU 캐시.
+ * 주문 취소/보관, 회원 정보 변경, 상품 정보 변경이 커밋되면 이벤트로 해당 주문을 제거한다.
+ * 같은 주문이 동시에 다시 조회되어도 version이 낮은 값이 최신 값을 덮어쓰지 않는다.
+ * 회원/상품 변경은 주문의 version을 올리지 않기 때문에, 조회를 시작할 때 받은 ticket 이후에
+ * 해당 주문/회원/상품이 제거되었다면 그 조회 결과는 캐시에 넣지 않는다.
+ * */
+@Component
+public class OrderAggregateCache implements DomainEventHandler {
+    private final int maxSize;
+
+    private final LinkedHashMap<Long, OrderDetailDto> entries;
+
+    private final Tombstones evictedOrders;
+
+    private final Tombstones evictedMembers;
+
+    private final Tombstones evictedItems;
+
+    private long generation;
+
+    public OrderAggregateCache(@Value("${shop.order-cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, OrderDetailDto> eldest) {
+                return size() > OrderAggregateCache.this.maxSize;
+            }
+        };
+        this.evictedOrders = new Tombstones(maxSize);
+        this.evictedMembers = new Tombstones(maxSize);
+        this.evictedItems = new Tombstones(maxSize);
+    }
+
+    /**
+     * db에서 조회하기 전에 받아서 put에 전달한다.
+     * */
+    public synchronized long ticket() {
+        return generation;
+    }
+
+    /**
+     * 캐시에 있는 주문만 반환한다.
+     * */
+    public synchronized Map<Long, OrderDetailDto> getAll(Collection<Long> orderIds) {
+        Map<Long, OrderDetailDto> found = new HashMap<>();
+        for (Long orderId : orderIds) {
+            OrderDetailDto order = entries.get(orderId);
+            if (order != null) {
+                found.put(orderId, order);
+            }
+        }
+
+        return found;
+    }
+
+    public synchronized void put(OrderDetailDto order, long ticket) {
+        if (evictedSince(order, ticket)) {
+            return;
+        }
+
+        OrderDetailDto cached = entries.get(order.getOrderId());
+        if (cached != null && compareVersion(cached.getVersion(), order.getVersion()) > 0) {
+            return;
+        }
+
+        entries.put(order.getOrderId(), order);
+    }
+
+    public synchronized void evict(Long orderId) {
+        evictedOrders.mark(orderId, ++generation);
+        entries.remove(orderId);
+    }
+
+    public synchronized void evictMember(Long memberId) {
+        evictedMembers.mark(memberId, ++generation);
+        entries.values().removeIf(o -> memberId.equals(o.getMemberId()));
+    }
+
+    public synchronized void evictItem(Long itemId) {
+        evictedItems.mark(itemId, ++generation);
+        entries.values().removeIf(o -> o.getOrderItems().stream().anyMatch(oi -> itemId.equals(oi.getItemId())));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 주문 상세에는 상품의 재고가 없기 때문에 재고만 변경된 이벤트는 무시한다.
+     * */
+    @Override
+    public void handle(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            if (event instanceof OrderCancelledEvent || event instanceof OrderArchivedEvent) {
+                evict(event.getKey());
+            } else if (event instanceof MemberUpdatedEvent) {
+                evictMember(event.getKey());
+            } else if (event instanceof ItemChangedEvent && !((ItemChangedEvent) event).isStockOnly()) {
+                evictItem(event.getKey());
+            }
+        }
+    }
+
+    private boolean evictedSince(OrderDetailDto order, long ticket) {
+        if (evictedOrders.since(order.getOrderId(), ticket) || evictedMembers.since(order.getMemberId(), ticket)) {
+            return true;
+        }
+        for (OrderItemQueryDto orderItem : order.getOrderItems()) {
+            if (evictedItems.since(orderItem.getItemId(), ticket)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private int compareVersion(Long a, Long b) {
+        return Long.compare(a == null ? -1 : a, b == null ? -1 : b);
+    }
+
+    /**
+     * key별로 마지막으로 제거된 generation을 최대 maxSize 건까지 기록한다.
+     * 오래된 기록이 밀려나면 그 generation을 floor로 남겨, 그 이전에 받은 ticket은 모두 제거된 것으로 판단한다.
+     * */
+    private static class Tombstones {
+        private final LinkedHashMap<Long, Long> generations;
+
+        private long floor;
+
+        Tombstones(int maxSize) {
+            this.generations = new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                    if (size() > maxSize) {
+                        floor = Math.max(floor, eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        void mark(Long key, long generation) {
+            generations.remove(key);
+            generations.put(key, generation);
+        }
+
+        boolean since(Long key, long ticket) {
+            if (ticket < floor) {
+                return true;
+            }
+            Long generation = generations.get(key);
+            return generation != null && generation > ticket;
+        }
+    }
+}
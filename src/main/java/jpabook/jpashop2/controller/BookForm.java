@@ -17,4 +17,6 @@ public class BookForm {
     private String author;
 
     private String isbn;
+
+    private Long version;
 }
\ No newline at end of file
@@ -3,9 +3,12 @@ package jpabook.jpashop2.controller;
 import jpabook.jpashop2.domain.item.Book;
 import jpabook.jpashop2.domain.item.Item;
 import jpabook.jpashop2.service.ItemService;
+import jpabook.jpashop2.service.UpdateItemDto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -58,23 +61,38 @@ public class ItemController {
         bookForm.setStockQuantity(book.getStockQuantity());
         bookForm.setAuthor(book.getAuthor());
         bookForm.setIsbn(book.getIsbn());
+        bookForm.setVersion(book.getVersion());
 
         model.addAttribute("form", bookForm);
 
         return "items/updateItemForm";
     }
 
+    /**
+     * 준영속 엔티티를 merge 하지 않고 변경 감지로 수정한다.
+     * 화면을 연 이후에 다른 사용자가 수정했다면 덮어쓰지 않고 수정 화면에 오류를 표시한다.
+     * */
     @PostMapping(value = "/items/{itemId}/edit")
-    public String updateItem(@ModelAttribute("form") BookForm form) {
-        Book book = new Book();
-        book.setId(form.getId());
-        book.setName(form.getName());
-        book.setPrice(form.getPrice());
-        book.setStockQuantity(form.getStockQuantity());
-        book.setAuthor(form.getAuthor());
-        book.setIsbn(form.getIsbn());
-
-        itemService.saveItem(book);
+    public String updateItem(@PathVariable("itemId") Long itemId, @ModelAttribute("form") BookForm form, BindingResult result) {
+        if (form.getVersion() == null) {
+            result.reject("version", "상품 정보를 다시 불러온 뒤 수정하세요.");
+            return "items/updateItemForm";
+        }
+
+        UpdateItemDto dto = new UpdateItemDto();
+        dto.setName(form.getName());
+        dto.setPrice(form.getPrice());
+        dto.setStockQuantity(form.getStockQuantity());
+        dto.setAuthor(form.getAuthor());
+        dto.setIsbn(form.getIsbn());
+        dto.setVersion(form.getVersion());
+
+        try {
+            itemService.updateItem(itemId, dto);
+        } catch (ConcurrencyFailureException e) {
+            result.reject("version", "다른 사용자가 먼저 수정한 상품입니다. 다시 불러온 뒤 수정하세요.");
+            return "items/updateItemForm";
+        }
 
         return "redirect:/items";
     }
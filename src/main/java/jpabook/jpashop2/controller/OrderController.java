@@ -1,11 +1,8 @@
 package jpabook.jpashop2.controller;
 
-import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.deadline.Deadline;
 import jpabook.jpashop2.domain.Order;
-import jpabook.jpashop2.domain.item.Item;
 import jpabook.jpashop2.repository.OrderSearch;
-import jpabook.jpashop2.service.ItemService;
-import jpabook.jpashop2.service.MemberService;
 import jpabook.jpashop2.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
@@ -18,17 +15,13 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OrderController {
     private final OrderService orderService;
-    private final MemberService memberService;
-    private final ItemService itemService;
 
+    /**
+     * 회원과 상품 목록을 화면에 모두 그리지 않고, 입력한 이름으로 자동완성 api를 호출하여 선택한다.
+     * 회원/상품 수와 관계없이 화면을 그리는 비용이 일정하다.
+     * */
     @GetMapping(value = "/order")
-    public String createForm(Model model) {
-        List<Member> members = memberService.findMembers();
-        List<Item> items = itemService.findItems();
-
-        model.addAttribute("members", members);
-        model.addAttribute("items", items);
-
+    public String createForm() {
         return "order/orderForm";
     }
 
@@ -40,6 +33,7 @@ public class OrderController {
         return "redirect:/orders";
     }
 
+    @Deadline(millis = 5000)
     @GetMapping(value = "/orders")
     public String orderList(@ModelAttribute("orderSearch") OrderSearch
                                     orderSearch, Model model) {
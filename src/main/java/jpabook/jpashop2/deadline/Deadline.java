@@ -0,0 +1,16 @@
+package jpabook.jpashop2.deadline;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 컨트롤러 메서드의 처리 제한 시간(ms). 0 이하면 제한하지 않는다.
+ * 선언하지 않은 엔드포인트는 shop.deadline.default-millis를 사용한다.
+ * */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Deadline {
+    long millis();
+}
@@ -0,0 +1,101 @@
+package jpabook.jpashop2.deadline;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+/**
+ * 요청 기한이 있는 스레드에서 만든 statement에 남은 시간을 query timeout으로 설정하고,
+ * 기한이 되면 취소할 수 있도록 실행 중인 statement로 등록한다(close 시 해제).
+ * EntityManager, JdbcTemplate 모두 이 DataSource의 커넥션을 사용하기 때문에 쿼리마다 따로 설정할 필요가 없다.
+ * 기한이 이미 지났으면 statement를 만들지 않고 SQLTimeoutException을 던진다.
+ * */
+public class DeadlineDataSource extends DelegatingDataSource implements AutoCloseable {
+    public DeadlineDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    /**
+     * 컨테이너 종료 시 원래 DataSource(커넥션 풀)를 닫는다.
+     * */
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable) {
+            ((AutoCloseable) getTargetDataSource()).close();
+        }
+    }
+
+    private static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(proxy, connection, method, args);
+                    if (result instanceof Statement) {
+                        RequestDeadline deadline = RequestDeadline.current();
+                        if (deadline != null) {
+                            return track((Statement) result, deadline);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    private static Statement track(Statement statement, RequestDeadline deadline) throws SQLException {
+        if (deadline.isExpired()) {
+            statement.close();
+            throw new SQLTimeoutException("요청 처리 시간이 초과되었습니다. endpoint=" + deadline.getEndpoint());
+        }
+
+        int remaining = deadline.remainingSeconds();
+        if (statement.getQueryTimeout() == 0 || statement.getQueryTimeout() > remaining) {
+            statement.setQueryTimeout(remaining);
+        }
+        deadline.register(statement);
+
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(DeadlineDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close")) {
+                        deadline.unregister(statement);
+                    }
+                    return invoke(proxy, statement, method, args);
+                });
+    }
+
+    /**
+     * equals/hashCode는 프록시 자신을 기준으로 하고, 나머지는 원래 객체에 위임한다.
+     * */
+    private static Object invoke(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+            return proxy == args[0];
+        }
+        if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+            return System.identityHashCode(proxy);
+        }
+
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
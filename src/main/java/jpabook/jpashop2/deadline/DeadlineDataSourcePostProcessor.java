@@ -0,0 +1,27 @@
+package jpabook.jpashop2.deadline;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * 애플리케이션의 DataSource(shard를 사용하면 ShardRoutingDataSource)를 DeadlineDataSource로 감싼다.
+ * */
+@Component
+public class DeadlineDataSourcePostProcessor implements BeanPostProcessor {
+    private final boolean enabled;
+
+    public DeadlineDataSourcePostProcessor(Environment environment) {
+        this.enabled = environment.getProperty("shop.deadline.enabled", Boolean.class, true);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof DataSource && !(bean instanceof DeadlineDataSource)) {
+            return new DeadlineDataSource((DataSource) bean);
+        }
+        return bean;
+    }
+}
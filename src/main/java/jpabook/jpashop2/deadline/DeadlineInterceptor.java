@@ -0,0 +1,102 @@
+package jpabook.jpashop2.deadline;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청마다 엔드포인트의 제한 시간과 클라이언트가 보낸 대기 시간 중 짧은 쪽으로 기한을 시작한다.
+ * 클라이언트가 이미 응답을 기다리지 않는 요청의 쿼리를 끝까지 실행하지 않도록, 클라이언트는 자신의 timeout을 헤더로 보낸다.
+ * 기한을 넘겨 실패한 요청은 503으로 응답한다.
+ * */
+@Component
+@RequiredArgsConstructor
+public class DeadlineInterceptor implements HandlerInterceptor, HandlerExceptionResolver {
+    private static final String DEADLINE_ATTRIBUTE = DeadlineInterceptor.class.getName() + ".deadline";
+
+    private final DeadlineProperties properties;
+
+    private final RequestDeadlines requestDeadlines;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!properties.isEnabled() || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+
+        long millis = deadlineOf((HandlerMethod) handler);
+        String source = "endpoint";
+        long clientMillis = clientTimeoutOf(request);
+        if (clientMillis > 0 && (millis <= 0 || clientMillis < millis)) {
+            millis = clientMillis;
+            source = "client";
+        }
+        if (millis <= 0) {
+            return true;
+        }
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern == null ? request.getRequestURI() : pattern);
+        request.setAttribute(DEADLINE_ATTRIBUTE, requestDeadlines.start(endpoint, source, millis));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestDeadline deadline = (RequestDeadline) request.getAttribute(DEADLINE_ATTRIBUTE);
+        if (deadline != null) {
+            request.removeAttribute(DEADLINE_ATTRIBUTE);
+            requestDeadlines.finish(deadline);
+        }
+    }
+
+    /**
+     * 기한이 지난 요청의 예외(취소된 쿼리, query timeout)만 처리하고 나머지는 다음 resolver에 넘긴다.
+     * */
+    @Override
+    public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestDeadline deadline = (RequestDeadline) request.getAttribute(DEADLINE_ATTRIBUTE);
+        if (deadline == null || !deadline.isExpired() || response.isCommitted()) {
+            return null;
+        }
+
+        try {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "요청 처리 시간이 초과되었습니다.");
+        } catch (IOException e) {
+            // 클라이언트 연결이 이미 끊어진 경우
+        }
+        return new ModelAndView();
+    }
+
+    private long deadlineOf(HandlerMethod handler) {
+        Deadline deadline = handler.getMethodAnnotation(Deadline.class);
+        if (deadline == null) {
+            deadline = AnnotatedElementUtils.findMergedAnnotation(handler.getBeanType(), Deadline.class);
+        }
+
+        return deadline == null ? properties.getDefaultMillis() : deadline.millis();
+    }
+
+    private long clientTimeoutOf(HttpServletRequest request) {
+        String value = request.getHeader(properties.getClientTimeoutHeader());
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
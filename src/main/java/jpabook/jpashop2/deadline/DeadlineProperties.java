@@ -0,0 +1,24 @@
+package jpabook.jpashop2.deadline;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shop.deadline")
+public class DeadlineProperties {
+    private boolean enabled = true;
+
+    /**
+     * @Deadline이 없는 엔드포인트의 제한 시간(ms). 0 이하면 제한하지 않는다.
+     * */
+    private long defaultMillis = 10_000;
+
+    /**
+     * 클라이언트가 응답을 기다리는 시간(ms)을 보내는 헤더. 엔드포인트의 제한 시간보다 짧으면 이 값을 사용한다.
+     * */
+    private String clientTimeoutHeader = "X-Request-Timeout";
+}
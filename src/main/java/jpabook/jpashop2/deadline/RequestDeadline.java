@@ -0,0 +1,119 @@
+package jpabook.jpashop2.deadline;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 요청의 처리 기한과 그 요청에서 실행 중인 JDBC statement.
+ * 요청 스레드에 묶여 있고, 요청을 나누어 처리하는 스레드는 callWith로 같은 기한을 사용한다.
+ * 기한이 지나면 실행 중인 statement를 모두 취소하고, 이후에 만드는 statement는 바로 실패한다.
+ * */
+public class RequestDeadline {
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final String endpoint;
+
+    private final String source;
+
+    private final long expiresAtNanos;
+
+    private final Set<Statement> running = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean expired;
+
+    RequestDeadline(String endpoint, String source, long expiresAtNanos) {
+        this.endpoint = endpoint;
+        this.source = source;
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static RequestDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * deadline을 현재 스레드에 설정하고 task를 실행한다. deadline이 null이면 그대로 실행한다.
+     * */
+    public static <T> T callWith(RequestDeadline deadline, Supplier<T> task) {
+        RequestDeadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    static void bind(RequestDeadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * 제한 시간을 정한 쪽. endpoint 또는 client.
+     * */
+    public String getSource() {
+        return source;
+    }
+
+    public boolean isClientSupplied() {
+        return "client".equals(source);
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expired || System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    /**
+     * JDBC query timeout은 초 단위이기 때문에 남은 시간을 올림한다.
+     * */
+    int remainingSeconds() {
+        long remaining = expiresAtNanos - System.nanoTime();
+        return (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    void register(Statement statement) {
+        running.add(statement);
+    }
+
+    void unregister(Statement statement) {
+        running.remove(statement);
+    }
+
+    /**
+     * 기한이 지난 것으로 표시하고 실행 중인 statement를 취소한다. 취소한 statement 수를 반환한다.
+     * */
+    int expire() {
+        expired = true;
+
+        int cancelled = 0;
+        for (Statement statement : running) {
+            try {
+                statement.cancel();
+                cancelled++;
+            } catch (SQLException e) {
+                // 이미 끝났거나 닫힌 statement
+            }
+        }
+        return cancelled;
+    }
+}
@@ -0,0 +1,72 @@
+package jpabook.jpashop2.deadline;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청 기한을 시작하고, 기한이 되면 실행 중인 statement를 취소하는 작업을 예약한다.
+ * 엔드포인트별로 기한을 넘긴 요청 수(deadline.exceeded)와 취소한 statement 수(deadline.statements.cancelled)를 기록한다.
+ * */
+@Slf4j
+@Component
+public class RequestDeadlines {
+    private final MeterRegistry meterRegistry;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final Map<RequestDeadline, ScheduledFuture<?>> expirations = new ConcurrentHashMap<>();
+
+    public RequestDeadlines(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "request-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * 현재 스레드에 기한을 설정한다. 반드시 finish를 호출해야 한다.
+     * */
+    public RequestDeadline start(String endpoint, String source, long millis) {
+        RequestDeadline deadline = new RequestDeadline(endpoint, source, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+        RequestDeadline.bind(deadline);
+        expirations.put(deadline, scheduler.schedule(() -> expire(deadline), millis, TimeUnit.MILLISECONDS));
+        return deadline;
+    }
+
+    public void finish(RequestDeadline deadline) {
+        RequestDeadline.unbind();
+        ScheduledFuture<?> expiration = expirations.remove(deadline);
+        if (expiration != null) {
+            expiration.cancel(false);
+        }
+
+        if (deadline.isExpired()) {
+            meterRegistry.counter("deadline.exceeded", "endpoint", deadline.getEndpoint(), "source", deadline.getSource()).increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void expire(RequestDeadline deadline) {
+        int cancelled = deadline.expire();
+        if (cancelled > 0) {
+            meterRegistry.counter("deadline.statements.cancelled", "endpoint", deadline.getEndpoint(), "source", deadline.getSource())
+                    .increment(cancelled);
+            log.debug("deadline exceeded. endpoint={}, cancelled statements={}", deadline.getEndpoint(), cancelled);
+        }
+    }
+}
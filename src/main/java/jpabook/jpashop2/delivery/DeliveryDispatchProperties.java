@@ -0,0 +1,23 @@
+package jpabook.jpashop2.delivery;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shop.delivery.dispatch")
+public class DeliveryDispatchProperties {
+    private boolean enabled = false;
+
+    private int workerThreads = 4;
+
+    private int batchSize = 100;
+
+    /**
+     * 처리할 배송이 없을 때 다시 조회하기까지 대기 시간(ms).
+     * */
+    private long idleMillis = 1000;
+}
@@ -0,0 +1,81 @@
+package jpabook.jpashop2.delivery;
+
+import jpabook.jpashop2.service.DeliveryDispatchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * shop.delivery.dispatch.enabled=true 이면 workerThreads 개의 워커가 READY 배송을 나눠서 처리한다.
+ * 각 워커는 skip locked로 서로 다른 배치를 가져가기 때문에 워커 수(프로세스 수)를 늘리면 처리량이 함께 증가한다.
+ * */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeliveryDispatcher {
+    private final DeliveryDispatchService deliveryDispatchService;
+    private final DeliveryDispatchProperties properties;
+
+    private ExecutorService executor;
+
+    private volatile boolean running;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        running = true;
+        AtomicInteger sequence = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(properties.getWorkerThreads(), r -> {
+            Thread thread = new Thread(r, "delivery-dispatch-" + sequence.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < properties.getWorkerThreads(); i++) {
+            executor.submit(this::work);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                if (deliveryDispatchService.dispatchBatch(properties.getBatchSize()) == 0) {
+                    Thread.sleep(properties.getIdleMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("delivery dispatch failed", e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(properties.getIdleMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package jpabook.jpashop2.delivery;
+
+import jpabook.jpashop2.domain.Delivery;
+
+import java.util.List;
+
+/**
+ * 워커가 가져온 배송을 실제로 처리(택배사 전송 등)한다.
+ * 배송 행이 잠긴 트랜잭션 안에서 호출되고, 예외가 발생하면 배치 전체가 롤백되어 다른 워커가 다시 가져간다.
+ * */
+public interface DeliveryProcessor {
+    void process(List<Delivery> deliveries);
+}
@@ -3,6 +3,9 @@ package jpabook.jpashop2.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.LazyToOne;
+import org.hibernate.annotations.LazyToOneOption;
 
 import javax.persistence.*;
 
@@ -10,13 +13,22 @@ import javax.persistence.*;
 @Getter
 @Setter
 public class Delivery {
+    /**
+     * 주문과 같이 shard 번호를 포함한 id를 사용하여 shard 간에 id가 겹치지 않게 한다.
+     * */
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "delivery_id_generator")
+    @GenericGenerator(name = "delivery_id_generator", strategy = "jpabook.jpashop2.sharding.ShardedSequenceGenerator")
     @Column(name = "delivery_id")
     private Long id;
 
+    /**
+     * 연관관계의 주인이 아닌 OneToOne은 프록시로 만들 수 없어서 LAZY로 설정해도 즉시 로딩된다.
+     * 바이트코드 향상(build.gradle의 hibernate.enhance)과 NO_PROXY를 사용하여 실제로 접근할 때 로딩한다.
+     * */
     @JsonIgnore
     @OneToOne(fetch = FetchType.LAZY, mappedBy = "delivery")
+    @LazyToOne(LazyToOneOption.NO_PROXY)
     private Order order;
 
     @Embedded
@@ -3,6 +3,8 @@ package jpabook.jpashop2.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.OptimisticLock;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
@@ -10,21 +12,33 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@DynamicUpdate
 @Getter
 @Setter
 public class Member {
+    /**
+     * 일괄 가입 시 insert 마다 시퀀스를 조회하지 않도록 allocationSize 만큼 id를 미리 할당받는다.
+     * */
     @Id
-    @GeneratedValue
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
     @Column(name = "member_id")
     private Long id;
 
+    @Version
+    private Long version;
+
     @NotEmpty
     private String name;
 
     @Embedded
     private Address address;
 
+    /**
+     * 주문이 추가되어도 회원 정보가 변경된 것은 아니기 때문에 version을 올리지 않는다.
+     * */
     @JsonIgnore
     @OneToMany(mappedBy = "member")
+    @OptimisticLock(excluded = true)
     private List<Order> orders = new ArrayList<>();
 }
@@ -4,7 +4,8 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.aspectj.weaver.ast.Or;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -14,14 +15,23 @@ import java.util.List;
 @Entity
 @Getter
 @Setter
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_member_date", columnList = "member_id, order_date desc, order_id desc"),
+        @Index(name = "idx_orders_stock_reservation", columnList = "stock_reservation_key")})
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
+    /**
+     * shard를 사용하면 id에 주문이 저장된 shard 번호가 포함된다.
+     * */
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "order_id_generator")
+    @GenericGenerator(name = "order_id_generator", strategy = "jpabook.jpashop2.sharding.ShardedSequenceGenerator")
     @Column(name = "order_id")
     private Long id;
 
+    @Version
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "member_id")
     private Member member;
@@ -38,9 +48,22 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
 
+    /**
+     * shard를 사용할 때 이 주문(또는 취소)과 함께 커밋된 home shard의 재고 예약(StockReservation) key.
+     * */
+    @Column(length = 36)
+    private String stockReservationKey;
+
+    /**
+     * 회원의 주문 목록이 아직 로딩되지 않았다면 추가하지 않는다.
+     * 주문 목록은 연관관계의 주인이 아니기 때문에 db에 반영되지 않고,
+     * 추가하기 위해 회원의 전체 주문 이력을 로딩하거나 회원의 version을 올릴 필요가 없다.
+     * */
     public void setMember(Member member) {
         this.member = member;
-        member.getOrders().add(this);
+        if (Hibernate.isInitialized(member.getOrders())) {
+            member.getOrders().add(this);
+        }
     }
     public void addOrderItem(OrderItem orderItem) {
         orderItems.add(orderItem);
@@ -67,15 +90,22 @@ public class Order {
     }
 
     public void cancel() {
+        cancelReserved();
+
+        for (OrderItem orderItem : orderItems) {
+            orderItem.cancel();
+        }
+    }
+
+    /**
+     * 재고가 다른 곳(home shard)에서 관리되는 주문을 취소한다. 주문상품의 상품 재고는 변경하지 않는다.
+     * */
+    public void cancelReserved() {
         if (delivery.getStatus() == DeliveryStatus.COMP) {
             throw new IllegalStateException("이미 배송완료된 상품은 취소가 불가능합니다.");
         }
 
         this.setStatus(OrderStatus.CANCEL);
-
-        for (OrderItem orderItem : orderItems) {
-            orderItem.cancel();
-        }
     }
 
     public int getTotalPrice() {
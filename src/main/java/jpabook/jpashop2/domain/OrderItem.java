@@ -6,6 +6,7 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 
@@ -14,8 +15,12 @@ import javax.persistence.*;
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class OrderItem {
+    /**
+     * 주문과 같이 shard 번호를 포함한 id를 사용하여 shard 간에 id가 겹치지 않게 한다.
+     * */
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "order_item_id_generator")
+    @GenericGenerator(name = "order_item_id_generator", strategy = "jpabook.jpashop2.sharding.ShardedSequenceGenerator")
     @Column(name = "order_item_id")
     private Long id;
 
@@ -43,6 +48,18 @@ public class OrderItem {
         return orderItem;
     }
 
+    /**
+     * 재고가 이미 다른 곳에서 차감된 경우(home shard의 재고 예약) 상품의 재고를 변경하지 않고 생성한다.
+     * */
+    public static OrderItem createReservedOrderItem(Item item, int orderPrice, int count) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setItem(item);
+        orderItem.setOrderPrice(orderPrice);
+        orderItem.setCount(count);
+
+        return orderItem;
+    }
+
     public void cancel() {
         getItem().addStock(count);
     }
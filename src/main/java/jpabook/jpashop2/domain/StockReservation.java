@@ -0,0 +1,55 @@
+package jpabook.jpashop2.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * shard를 사용할 때 home shard의 재고 변경과 주문 shard의 트랜잭션을 맞추기 위해 home shard에 남기는 기록.
+ * 같은 reservationKey의 행들은 하나의 주문(또는 취소) 트랜잭션에 속하고, 그 트랜잭션이 커밋되면 주문의 stockReservationKey에 남는다.
+ * 재고를 먼저 차감한 예약(restock = false)은 주문이 롤백되면 재고를 되돌리고,
+ * 커밋된 뒤 되돌릴 재고(restock = true)는 취소가 커밋되면 재고를 더한다. 처리가 끝난 행은 삭제한다.
+ * */
+@Entity
+@Getter
+@Table(name = "stock_reservation", indexes = {
+        @Index(name = "idx_stock_reservation_key", columnList = "reservation_key"),
+        @Index(name = "idx_stock_reservation_created", columnList = "created_at")})
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class StockReservation {
+    @Id
+    @GeneratedValue
+    @Column(name = "stock_reservation_id")
+    private Long id;
+
+    @Column(name = "reservation_key", nullable = false, length = 36)
+    private String reservationKey;
+
+    private Long itemId;
+
+    private int quantity;
+
+    /**
+     * 주문이 저장되는 shard. 트랜잭션이 커밋되었는지 확인할 때 조회한다.
+     * */
+    private int orderShard;
+
+    private boolean restock;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public static StockReservation create(String reservationKey, Long itemId, int quantity, int orderShard, boolean restock) {
+        StockReservation reservation = new StockReservation();
+        reservation.reservationKey = reservationKey;
+        reservation.itemId = itemId;
+        reservation.quantity = quantity;
+        reservation.orderShard = orderShard;
+        reservation.restock = restock;
+        reservation.createdAt = LocalDateTime.now();
+        return reservation;
+    }
+}
@@ -0,0 +1,25 @@
+package jpabook.jpashop2.domain.archive;
+
+import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.domain.DeliveryStatus;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+@Entity
+@Getter
+@Table(name = "delivery_archive")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class DeliveryArchive {
+    @Id
+    @Column(name = "delivery_id")
+    private Long id;
+
+    @Embedded
+    private Address address;
+
+    @Enumerated(EnumType.STRING)
+    private DeliveryStatus status;
+}
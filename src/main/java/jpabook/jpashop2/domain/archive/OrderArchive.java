@@ -0,0 +1,36 @@
+package jpabook.jpashop2.domain.archive;
+
+import jpabook.jpashop2.domain.OrderStatus;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 보관 기간이 지난 주문. orders 테이블의 행을 그대로 옮겨오기 때문에 식별자를 생성하지 않고,
+ * 다른 테이블과의 연관관계 대신 id 값만 가진다.
+ * */
+@Entity
+@Getter
+@Table(name = "orders_archive", indexes = @Index(name = "idx_orders_archive_member", columnList = "member_id"))
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderArchive {
+    @Id
+    @Column(name = "order_id")
+    private Long id;
+
+    @Column(name = "member_id")
+    private Long memberId;
+
+    @Column(name = "delivery_id")
+    private Long deliveryId;
+
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private LocalDateTime archivedAt;
+}
@@ -2,11 +2,13 @@ package jpabook.jpashop2.domain.item;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
 
 @Entity
+@DynamicUpdate
 @Getter
 @Setter
 @DiscriminatorValue("A")
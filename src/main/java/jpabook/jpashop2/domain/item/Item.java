@@ -4,12 +4,14 @@ import jpabook.jpashop2.domain.Category;
 import jpabook.jpashop2.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@DynamicUpdate
 @Getter
 @Setter
 @DiscriminatorColumn(name = "dtype")
@@ -20,6 +22,9 @@ public abstract class Item {
     @Column(name = "item_id")
     private Long id;
 
+    @Version
+    private Long version;
+
     private String name;
 
     private int price;
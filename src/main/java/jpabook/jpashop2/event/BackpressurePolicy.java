@@ -0,0 +1,26 @@
+package jpabook.jpashop2.event;
+
+/**
+ * 링 버퍼가 가득 찼을 때 발행 스레드의 동작.
+ * */
+public enum BackpressurePolicy {
+    /**
+     * 공간이 생길 때까지 발행 스레드가 대기한다.
+     * */
+    BLOCK,
+
+    /**
+     * 새 이벤트를 버린다.
+     * */
+    DROP_NEWEST,
+
+    /**
+     * 가장 오래된 이벤트를 버리고 새 이벤트를 넣는다.
+     * */
+    DROP_OLDEST,
+
+    /**
+     * 발행 스레드에서 바로 처리한다.
+     * */
+    CALLER_RUNS
+}
@@ -0,0 +1,9 @@
+package jpabook.jpashop2.event;
+
+/**
+ * 트랜잭션 커밋 이후 비동기로 처리되는 도메인 이벤트.
+ * 같은 key를 가진 이벤트는 같은 consumer 스레드에서 발행된 순서대로 처리된다.
+ * */
+public interface DomainEvent {
+    Long getKey();
+}
@@ -0,0 +1,11 @@
+package jpabook.jpashop2.event;
+
+import java.util.List;
+
+/**
+ * 빈으로 등록하면 consumer 스레드에서 최대 maxBatchSize 개씩 묶어서 호출된다.
+ * 트랜잭션이 없는 스레드에서 실행되기 때문에 db 작업이 필요하면 별도의 트랜잭션을 시작해야 한다.
+ * */
+public interface DomainEventHandler {
+    void handle(List<DomainEvent> events);
+}
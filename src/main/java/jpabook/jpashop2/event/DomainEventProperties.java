@@ -0,0 +1,26 @@
+package jpabook.jpashop2.event;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shop.events")
+public class DomainEventProperties {
+    /**
+     * consumer 스레드 수. 스레드마다 별도의 링 버퍼를 가진다.
+     * */
+    private int consumerThreads = 2;
+
+    /**
+     * 스레드당 링 버퍼 크기. 2의 거듭제곱.
+     * */
+    private int bufferSize = 8192;
+
+    private int maxBatchSize = 256;
+
+    private BackpressurePolicy backpressure = BackpressurePolicy.BLOCK;
+}
@@ -0,0 +1,201 @@
+package jpabook.jpashop2.event;
+
+import io.micrometer.core.instrument.Counter;
+import jpabook.jpashop2.deadline.RequestDeadline;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * 트랜잭션 안에서 발행된 이벤트는 커밋된 이후에 링 버퍼에 넣고, 롤백되면 버린다.
+ * 요청 스레드는 버퍼에 넣는 비용만 부담하고, 처리는 consumer 스레드에서 배치 단위로 실행된다.
+ * 이벤트는 key의 해시로 consumer를 선택하기 때문에 같은 key의 이벤트는 순서대로 처리된다.
+ * (CALLER_RUNS 정책으로 발행 스레드에서 처리된 이벤트는 예외)
+ * 커밋 이후의 처리는 요청 기한(RequestDeadline)과 관계없이 실행되도록 기한을 해제하고 버퍼에 넣는다.
+ * */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DomainEventPublisher {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final DomainEventProperties properties;
+    private final ObjectProvider<DomainEventHandler> handlerProvider;
+    private final MeterRegistry meterRegistry;
+
+    private volatile List<DomainEventHandler> handlers;
+
+    private Partition[] partitions;
+
+    private Counter published;
+
+    private Counter dropped;
+
+    private Counter failed;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        published = meterRegistry.counter("domain.events.published");
+        dropped = meterRegistry.counter("domain.events.dropped");
+        failed = meterRegistry.counter("domain.events.failed");
+
+        running = true;
+        partitions = new Partition[properties.getConsumerThreads()];
+        for (int i = 0; i < partitions.length; i++) {
+            Partition partition = new Partition(i);
+            partitions[i] = partition;
+            Gauge.builder("domain.events.lag", partition.ring, RingBuffer::size)
+                    .tag("consumer", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 핸들러가 모두 생성된 이후에 consumer 스레드를 시작한다. 그 전에 발행된 이벤트는 버퍼에 쌓여 있다.
+     * */
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void start() {
+        if (handlers != null) {
+            return;
+        }
+
+        handlers = handlerProvider.orderedStream().collect(Collectors.toList());
+        for (Partition partition : partitions) {
+            partition.thread.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Partition partition : partitions) {
+            partition.thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public void publish(DomainEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(event);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<DomainEvent> pending = (List<DomainEvent>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<DomainEvent> events = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DomainEventPublisher.this);
+                    if (status == STATUS_COMMITTED) {
+                        RequestDeadline.callWith(null, () -> {
+                            events.forEach(DomainEventPublisher.this::enqueue);
+                            return null;
+                        });
+                    }
+                }
+            });
+            pending = events;
+        }
+        pending.add(event);
+    }
+
+    private void enqueue(DomainEvent event) {
+        Long key = event.getKey();
+        int hash = key == null ? 0 : Long.hashCode(key);
+        RingBuffer<DomainEvent> ring = partitions[Math.floorMod(hash, partitions.length)].ring;
+
+        if (ring.offer(event)) {
+            published.increment();
+            return;
+        }
+
+        switch (properties.getBackpressure()) {
+            case BLOCK:
+                while (!ring.offer(event)) {
+                    if (!running) {
+                        dropped.increment();
+                        return;
+                    }
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+                published.increment();
+                break;
+            case DROP_NEWEST:
+                dropped.increment();
+                break;
+            case DROP_OLDEST:
+                while (!ring.offer(event)) {
+                    if (ring.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                published.increment();
+                break;
+            case CALLER_RUNS:
+                if (handlers == null) {
+                    dropped.increment();
+                    break;
+                }
+                published.increment();
+                dispatch(Collections.singletonList(event));
+                break;
+        }
+    }
+
+    private void dispatch(List<DomainEvent> events) {
+        List<DomainEvent> batch = Collections.unmodifiableList(events);
+        for (DomainEventHandler handler : handlers) {
+            try {
+                handler.handle(batch);
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.error("domain event handler failed. handler={}, size={}", handler.getClass().getSimpleName(), batch.size(), e);
+            }
+        }
+    }
+
+    private class Partition {
+        private final RingBuffer<DomainEvent> ring = new RingBuffer<>(properties.getBufferSize());
+
+        private final Thread thread;
+
+        Partition(int index) {
+            thread = new Thread(this::consume, "domain-event-" + index);
+            thread.setDaemon(true);
+        }
+
+        private void consume() {
+            List<DomainEvent> batch = new ArrayList<>(properties.getMaxBatchSize());
+            while (running || ring.size() > 0) {
+                if (ring.drainTo(batch, properties.getMaxBatchSize()) == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+
+                dispatch(batch);
+                batch.clear();
+            }
+        }
+    }
+}
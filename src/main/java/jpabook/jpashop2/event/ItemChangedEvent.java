@@ -0,0 +1,34 @@
+package jpabook.jpashop2.event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 상품 정보(이름, 가격 등)나 재고가 변경되면 커밋 후 발행된다. 주문, 주문 취소로 재고가 변경되는 경우도 포함한다.
+ * */
+@Getter
+@ToString
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class ItemChangedEvent implements DomainEvent {
+    private final Long itemId;
+
+    /**
+     * 주문, 주문 취소로 재고만 변경되었으면 true. 이름, 가격 등 상품 정보는 변경되지 않았다.
+     * */
+    private final boolean stockOnly;
+
+    public ItemChangedEvent(Long itemId) {
+        this(itemId, false);
+    }
+
+    public static ItemChangedEvent stock(Long itemId) {
+        return new ItemChangedEvent(itemId, true);
+    }
+
+    @Override
+    public Long getKey() {
+        return itemId;
+    }
+}
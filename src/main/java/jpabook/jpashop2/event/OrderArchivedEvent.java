@@ -0,0 +1,17 @@
+package jpabook.jpashop2.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class OrderArchivedEvent implements DomainEvent {
+    private final Long orderId;
+
+    @Override
+    public Long getKey() {
+        return orderId;
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop2.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class OrderPlacedEvent implements DomainEvent {
+    private final Long orderId;
+
+    private final Long memberId;
+
+    @Override
+    public Long getKey() {
+        return orderId;
+    }
+}
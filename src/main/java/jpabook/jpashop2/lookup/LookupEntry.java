@@ -0,0 +1,12 @@
+package jpabook.jpashop2.lookup;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class LookupEntry {
+    private final long id;
+
+    private final String name;
+}
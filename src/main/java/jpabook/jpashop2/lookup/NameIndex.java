@@ -0,0 +1,100 @@
+package jpabook.jpashop2.lookup;
+
+import java.util.*;
+
+/**
+ * 이름순으로 정렬된 id/이름 배열. 접두어 검색은 이진 탐색으로 시작 위치를 찾은 뒤 limit 개만 읽는다.
+ * 만들어진 뒤에는 변경되지 않기 때문에 여러 스레드에서 락 없이 읽는다.
+ * */
+public class NameIndex {
+    public static final NameIndex EMPTY = new NameIndex(new long[0], new String[0]);
+
+    private final long[] ids;
+
+    private final String[] names;
+
+    private final String[] keys;
+
+    private NameIndex(long[] ids, String[] names) {
+        this.ids = ids;
+        this.names = names;
+        this.keys = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = key(names[i]);
+        }
+    }
+
+    /**
+     * rows: [id, name]
+     * */
+    public static NameIndex of(List<Object[]> rows) {
+        Object[][] sorted = rows.stream()
+                .filter(r -> r[1] != null)
+                .sorted(Comparator.comparing((Object[] r) -> key((String) r[1])).thenComparing(r -> (Long) r[0]))
+                .toArray(Object[][]::new);
+
+        long[] ids = new long[sorted.length];
+        String[] names = new String[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            ids[i] = (Long) sorted[i][0];
+            names[i] = (String) sorted[i][1];
+        }
+
+        return new NameIndex(ids, names);
+    }
+
+    /**
+     * ids에 해당하는 항목을 rows로 바꾼 목록. rows에 없는 id는 제거된다.
+     * 바뀐 항목이 없으면 다시 정렬하지 않고 자기 자신을 반환한다.
+     * */
+    public NameIndex patch(Collection<Long> ids, List<Object[]> rows) {
+        Map<Long, String> changed = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                changed.put((Long) row[0], (String) row[1]);
+            }
+        }
+
+        Set<Long> targets = new HashSet<>(ids);
+        Map<Long, String> current = new HashMap<>();
+        List<Object[]> merged = new ArrayList<>(this.ids.length + changed.size());
+        for (int i = 0; i < this.ids.length; i++) {
+            if (targets.contains(this.ids[i])) {
+                current.put(this.ids[i], names[i]);
+            } else {
+                merged.add(new Object[]{this.ids[i], names[i]});
+            }
+        }
+        if (current.equals(changed)) {
+            return this;
+        }
+
+        changed.forEach((id, name) -> merged.add(new Object[]{id, name}));
+        return of(merged);
+    }
+
+    public List<LookupEntry> findByPrefix(String prefix, int limit) {
+        String key = key(prefix == null ? "" : prefix);
+        int index = Arrays.binarySearch(keys, key);
+        // 같은 이름이 여러개일 수 있으므로 일치하는 첫번째 위치로 이동한다.
+        int from = index >= 0 ? index : -index - 1;
+        while (from > 0 && keys[from - 1].equals(key)) {
+            from--;
+        }
+
+        List<LookupEntry> result = new ArrayList<>();
+        for (int i = from; i < keys.length && result.size() < limit && keys[i].startsWith(key); i++) {
+            result.add(new LookupEntry(ids[i], names[i]));
+        }
+
+        return result;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,121 @@
+package jpabook.jpashop2.lookup;
+
+import jpabook.jpashop2.event.*;
+import jpabook.jpashop2.repository.ItemRepository;
+import jpabook.jpashop2.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 주문 화면에서 회원과 재고가 있는 상품을 선택하기 위한 id/이름 목록.
+ * 엔티티 대신 두 컬럼만 조회하여 정렬된 배열로 보관하고, 다음 갱신 주기에 변경된 내용만 반영한다.
+ * 회원 목록은 회원이 가입/변경되면 다시 만든다. 상품 목록은 변경된 상품만 다시 조회하여 바꾸고,
+ * 주문/취소로 재고만 변경되어 재고 유무가 그대로이면 목록을 다시 만들지 않는다.
+ * */
+@Slf4j
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class OrderFormLookup implements DomainEventHandler {
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final MemberRepository memberRepository;
+    private final ItemRepository itemRepository;
+
+    private volatile NameIndex members = NameIndex.EMPTY;
+
+    private volatile NameIndex items = NameIndex.EMPTY;
+
+    private volatile boolean membersDirty = true;
+
+    private volatile boolean itemsDirty = true;
+
+    private final Set<Long> changedItemIds = ConcurrentHashMap.newKeySet();
+
+    public List<LookupEntry> findMembers(String prefix, int limit) {
+        return members.findByPrefix(prefix, limit);
+    }
+
+    public List<LookupEntry> findItems(String prefix, int limit) {
+        return items.findByPrefix(prefix, limit);
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    /**
+     * 주문/취소로 재고가 변경되면 OrderService가 ItemChangedEvent를 함께 발행하기 때문에 주문 이벤트는 따로 처리하지 않는다.
+     * */
+    @Override
+    public void handle(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            if (event instanceof MemberJoinedEvent || event instanceof MemberUpdatedEvent) {
+                membersDirty = true;
+            } else if (event instanceof ItemChangedEvent) {
+                changedItemIds.add(event.getKey());
+            }
+        }
+    }
+
+    /**
+     * 이벤트마다 다시 만들지 않고 주기적으로 변경된 목록만 다시 만든다.
+     * 조회에 실패하면 변경 표시를 되돌려 다음 주기에 다시 시도한다.
+     * */
+    @Scheduled(fixedDelayString = "${shop.order-form.refresh-millis:1000}")
+    public synchronized void refresh() {
+        if (membersDirty) {
+            membersDirty = false;
+            try {
+                members = NameIndex.of(memberRepository.findIdNames());
+            } catch (RuntimeException e) {
+                membersDirty = true;
+                throw e;
+            }
+            log.debug("member lookup refreshed. size={}", members.size());
+        }
+        if (itemsDirty) {
+            itemsDirty = false;
+            changedItemIds.clear();
+            try {
+                items = NameIndex.of(itemRepository.findInStockIdNames());
+            } catch (RuntimeException e) {
+                itemsDirty = true;
+                throw e;
+            }
+            log.debug("item lookup refreshed. size={}", items.size());
+        } else if (!changedItemIds.isEmpty()) {
+            List<Long> itemIds = new ArrayList<>(changedItemIds);
+            changedItemIds.removeAll(itemIds);
+            try {
+                patchItems(itemIds);
+            } catch (RuntimeException e) {
+                changedItemIds.addAll(itemIds);
+                throw e;
+            }
+        }
+    }
+
+    private void patchItems(List<Long> itemIds) {
+        NameIndex patched = items;
+        for (int from = 0; from < itemIds.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = itemIds.subList(from, Math.min(from + LOAD_CHUNK_SIZE, itemIds.size()));
+            patched = patched.patch(chunk, itemRepository.findInStockIdNames(chunk));
+        }
+        if (patched != items) {
+            items = patched;
+            log.debug("item lookup patched. changed={}, size={}", itemIds.size(), items.size());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package jpabook.jpashop2.readmodel;
+
+import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.domain.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * OrderSimpleQueryDto와 같은 정보에 변경 여부를 비교하기 위한 주문/회원의 version을 더한 불변 객체.
+ * */
+@Getter
+@AllArgsConstructor
+public class OrderSummary {
+    private final Long orderId;
+
+    private final Long orderVersion;
+
+    private final Long memberId;
+
+    private final Long memberVersion;
+
+    private final String name;
+
+    private final LocalDateTime orderDate;
+
+    private final OrderStatus orderStatus;
+
+    private final Address address;
+
+    /**
+     * version이 같거나 더 최신이면 true. 오래된 스냅샷이 최신 값을 덮어쓰지 않도록 사용한다.
+     * */
+    boolean isNotOlderThan(OrderSummary other) {
+        return compare(orderVersion, other.orderVersion) >= 0 && compare(memberVersion, other.memberVersion) >= 0;
+    }
+
+    boolean sameVersion(Long orderVersion, Long memberVersion) {
+        return compare(this.orderVersion, orderVersion) == 0 && compare(this.memberVersion, memberVersion) == 0;
+    }
+
+    private static int compare(Long a, Long b) {
+        return Long.compare(a == null ? -1 : a, b == null ? -1 : b);
+    }
+}
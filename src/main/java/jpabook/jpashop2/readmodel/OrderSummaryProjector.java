@@ -0,0 +1,188 @@
+package jpabook.jpashop2.readmodel;
+
+import jpabook.jpashop2.event.*;
+import jpabook.jpashop2.repository.order.query.OrderSummaryQueryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * 커밋된 주문/회원 변경 이벤트로 OrderSummaryStore를 최신 상태로 유지한다.
+ * 시작 시에는 스냅샷을 읽은 뒤 db의 version과 비교하여 달라진 주문만 다시 조회하기 때문에
+ * 재시작할 때마다 전체 주문을 join 하여 다시 만들 필요가 없다.
+ * 기동을 막지 않도록 별도 스레드에서 불러오고, 불러오는 동안에는 isReady가 false 이다.
+ * */
+@Slf4j
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class OrderSummaryProjector implements DomainEventHandler {
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final OrderSummaryStore store;
+    private final OrderSummaryQueryRepository orderSummaryQueryRepository;
+
+    @Value("${shop.read-model.snapshot-path:}")
+    private String snapshotPath;
+
+    private volatile boolean ready;
+
+    private Thread loader;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void start() {
+        if (loader != null) {
+            return;
+        }
+
+        loader = new Thread(this::load, "order-summary-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        try {
+            long start = System.currentTimeMillis();
+            int fromSnapshot = loadSnapshot();
+            int reloaded = reconcile();
+            ready = true;
+
+            log.info("order summary read model loaded. snapshot={}, reloaded={}, size={}, {}ms",
+                    fromSnapshot, reloaded, store.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.error("order summary read model load failed.", e);
+        }
+    }
+
+    @Override
+    public void handle(List<DomainEvent> events) {
+        Set<Long> reloadIds = new LinkedHashSet<>();
+        for (DomainEvent event : events) {
+            if (event instanceof OrderPlacedEvent || event instanceof OrderCancelledEvent) {
+                reloadIds.add(event.getKey());
+            } else if (event instanceof MemberUpdatedEvent) {
+                reloadIds.addAll(store.orderIdsOfMember(event.getKey()));
+            } else if (event instanceof OrderArchivedEvent) {
+                store.remove(event.getKey());
+                reloadIds.remove(event.getKey());
+            }
+        }
+
+        reload(new ArrayList<>(reloadIds));
+    }
+
+    @Scheduled(fixedDelayString = "${shop.read-model.snapshot-interval-millis:60000}")
+    public void scheduledSnapshot() {
+        snapshot();
+    }
+
+    @PreDestroy
+    public void snapshot() {
+        if (!ready || !StringUtils.hasText(snapshotPath)) {
+            return;
+        }
+
+        try {
+            OrderSummarySnapshot.write(Paths.get(snapshotPath), store.all());
+        } catch (IOException e) {
+            log.warn("order summary snapshot failed. path={}", snapshotPath, e);
+        }
+    }
+
+    private int loadSnapshot() {
+        if (!StringUtils.hasText(snapshotPath)) {
+            return 0;
+        }
+
+        Path path = Paths.get(snapshotPath);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        try {
+            List<OrderSummary> summaries = OrderSummarySnapshot.read(path);
+            summaries.forEach(store::upsert);
+            return summaries.size();
+        } catch (IOException e) {
+            log.warn("order summary snapshot ignored. path={}", path, e);
+            return 0;
+        }
+    }
+
+    /**
+     * db와 메모리의 order id를 정렬된 순서로 함께 읽으면서
+     * 새로 생긴 주문과 version이 달라진 주문은 다시 조회하고, db에 없는 주문은 제거한다.
+     * */
+    private int reconcile() {
+        long[] storeIds = store.all().stream()
+                .mapToLong(OrderSummary::getOrderId)
+                .sorted()
+                .toArray();
+        int cursor = 0;
+        int reloaded = 0;
+        List<Long> stale = new ArrayList<>();
+
+        long afterId = Long.MIN_VALUE;
+        List<Object[]> page;
+        while (!(page = orderSummaryQueryRepository.findVersionPage(afterId, LOAD_CHUNK_SIZE)).isEmpty()) {
+            for (Object[] row : page) {
+                long orderId = (Long) row[0];
+                while (cursor < storeIds.length && storeIds[cursor] < orderId) {
+                    store.remove(storeIds[cursor++]);
+                }
+
+                OrderSummary current = store.get(orderId);
+                if (current == null || !current.sameVersion((Long) row[1], (Long) row[2])) {
+                    stale.add(orderId);
+                }
+                if (cursor < storeIds.length && storeIds[cursor] == orderId) {
+                    cursor++;
+                }
+                afterId = orderId;
+            }
+
+            if (stale.size() >= LOAD_CHUNK_SIZE) {
+                reloaded += stale.size();
+                reload(stale);
+                stale = new ArrayList<>();
+            }
+        }
+        while (cursor < storeIds.length) {
+            store.remove(storeIds[cursor++]);
+        }
+
+        reloaded += stale.size();
+        reload(stale);
+
+        return reloaded;
+    }
+
+    private void reload(List<Long> orderIds) {
+        for (int from = 0; from < orderIds.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + LOAD_CHUNK_SIZE, orderIds.size()));
+            Set<Long> missing = new HashSet<>(chunk);
+            for (OrderSummary summary : orderSummaryQueryRepository.findSummaries(chunk)) {
+                store.upsert(summary);
+                missing.remove(summary.getOrderId());
+            }
+            missing.forEach(store::remove);
+        }
+    }
+}
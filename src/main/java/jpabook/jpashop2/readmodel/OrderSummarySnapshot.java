@@ -0,0 +1,119 @@
+package jpabook.jpashop2.readmodel;
+
+import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.domain.OrderStatus;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 주문 요약을 고정된 순서의 바이너리 형식으로 저장한다.
+ * 임시 파일에 기록한 뒤 교체하기 때문에 저장 중에 종료되어도 이전 스냅샷은 손상되지 않는다.
+ * */
+public class OrderSummarySnapshot {
+    private static final int MAGIC = 0x4F535331;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private OrderSummarySnapshot() {
+    }
+
+    public static void write(Path path, Collection<OrderSummary> summaries) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+
+        List<OrderSummary> rows = new ArrayList<>(summaries);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(rows.size());
+            for (OrderSummary s : rows) {
+                out.writeLong(s.getOrderId());
+                writeNullableLong(out, s.getOrderVersion());
+                out.writeLong(s.getMemberId());
+                writeNullableLong(out, s.getMemberVersion());
+                writeNullableString(out, s.getName());
+                if (s.getOrderDate() == null) {
+                    out.writeBoolean(false);
+                } else {
+                    out.writeBoolean(true);
+                    out.writeLong(s.getOrderDate().toEpochSecond(ZoneOffset.UTC));
+                    out.writeInt(s.getOrderDate().getNano());
+                }
+                out.writeByte(s.getOrderStatus() == null ? -1 : s.getOrderStatus().ordinal());
+                Address address = s.getAddress();
+                out.writeBoolean(address != null);
+                if (address != null) {
+                    writeNullableString(out, address.getCity());
+                    writeNullableString(out, address.getStreet());
+                    writeNullableString(out, address.getZipcode());
+                }
+            }
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static List<OrderSummary> read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("지원하지 않는 스냅샷 형식입니다. path=" + path);
+            }
+
+            int size = in.readInt();
+            List<OrderSummary> rows = new ArrayList<>(size);
+            OrderStatus[] statuses = OrderStatus.values();
+            for (int i = 0; i < size; i++) {
+                long orderId = in.readLong();
+                Long orderVersion = readNullableLong(in);
+                long memberId = in.readLong();
+                Long memberVersion = readNullableLong(in);
+                String name = readNullableString(in);
+                LocalDateTime orderDate = in.readBoolean()
+                        ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC)
+                        : null;
+                byte status = in.readByte();
+                Address address = in.readBoolean()
+                        ? new Address(readNullableString(in), readNullableString(in), readNullableString(in))
+                        : null;
+
+                rows.add(new OrderSummary(orderId, orderVersion, memberId, memberVersion, name, orderDate,
+                        status < 0 ? null : statuses[status], address));
+            }
+
+            return rows;
+        }
+    }
+
+    private static void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,101 @@
+package jpabook.jpashop2.readmodel;
+
+import jpabook.jpashop2.domain.OrderStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 요약을 order id, member id, 주문 상태로 색인하여 메모리에 보관한다.
+ * 조회는 잠금 없이 실행되고, 변경은 consumer 스레드에서 synchronized로 직렬화한다.
+ * */
+@Component
+public class OrderSummaryStore {
+    private final Map<Long, OrderSummary> byId = new ConcurrentHashMap<>();
+
+    private final Map<Long, Set<Long>> byMember = new ConcurrentHashMap<>();
+
+    private final Map<OrderStatus, Set<Long>> byStatus = new EnumMap<>(OrderStatus.class);
+
+    public OrderSummaryStore() {
+        for (OrderStatus status : OrderStatus.values()) {
+            byStatus.put(status, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    public synchronized void upsert(OrderSummary summary) {
+        OrderSummary old = byId.get(summary.getOrderId());
+        if (old != null && !summary.isNotOlderThan(old)) {
+            return;
+        }
+        if (old != null) {
+            unindex(old);
+        }
+
+        byId.put(summary.getOrderId(), summary);
+        byMember.computeIfAbsent(summary.getMemberId(), k -> ConcurrentHashMap.newKeySet()).add(summary.getOrderId());
+        if (summary.getOrderStatus() != null) {
+            byStatus.get(summary.getOrderStatus()).add(summary.getOrderId());
+        }
+    }
+
+    public synchronized void remove(Long orderId) {
+        OrderSummary old = byId.remove(orderId);
+        if (old != null) {
+            unindex(old);
+        }
+    }
+
+    private void unindex(OrderSummary summary) {
+        Set<Long> memberOrders = byMember.get(summary.getMemberId());
+        if (memberOrders != null) {
+            memberOrders.remove(summary.getOrderId());
+            if (memberOrders.isEmpty()) {
+                byMember.remove(summary.getMemberId());
+            }
+        }
+        if (summary.getOrderStatus() != null) {
+            byStatus.get(summary.getOrderStatus()).remove(summary.getOrderId());
+        }
+    }
+
+    public OrderSummary get(Long orderId) {
+        return byId.get(orderId);
+    }
+
+    public Set<Long> orderIdsOfMember(Long memberId) {
+        return Set.copyOf(byMember.getOrDefault(memberId, Collections.emptySet()));
+    }
+
+    public Collection<OrderSummary> all() {
+        return byId.values();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * 조건에 맞는 주문을 order id 순으로 반환한다. null인 조건은 무시한다.
+     * 더 작은 색인에서 시작하여 나머지 조건으로 거른다.
+     * */
+    public List<OrderSummary> find(Long memberId, OrderStatus status) {
+        Collection<Long> candidates;
+        if (memberId != null) {
+            candidates = byMember.getOrDefault(memberId, Collections.emptySet());
+        } else if (status != null) {
+            candidates = byStatus.get(status);
+        } else {
+            candidates = byId.keySet();
+        }
+
+        return candidates.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .filter(s -> status == null || s.getOrderStatus() == status)
+                .sorted(Comparator.comparing(OrderSummary::getOrderId))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,76 @@
+package jpabook.jpashop2.repository;
+
+import jpabook.jpashop2.domain.Delivery;
+import jpabook.jpashop2.domain.DeliveryStatus;
+import jpabook.jpashop2.domain.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.LockOptions;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class DeliveryRepository {
+    private final EntityManager em;
+
+    /**
+     * 취소되지 않은 주문의 READY 배송을 select ... for update skip locked 로 가져온다.
+     * 다른 트랜잭션이 잠근 행은 기다리지 않고 건너뛰기 때문에 여러 워커가 동시에 조회해도 서로 다른 배송을 가져간다.
+     * skip locked를 지원하지 않는 dialect(H2 1.4 등)에서는 일반 for update로 동작한다.
+     * */
+    public List<Delivery> claimReady(int limit) {
+        return em.createQuery(
+                "select d from Delivery d" +
+                        " where d.status = :ready" +
+                        " and exists (select o.id from Order o where o.delivery = d and o.status = :order)" +
+                        " order by d.id", Delivery.class)
+                .setParameter("ready", DeliveryStatus.READY)
+                .setParameter("order", OrderStatus.ORDER)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("javax.persistence.lock.timeout", LockOptions.SKIP_LOCKED)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 벌크 연산으로 한번에 배송 완료 처리한다.
+     * 가져온 뒤 취소된 주문의 배송은 완료 처리하지 않는다.
+     * */
+    public int completeAll(List<Long> deliveryIds) {
+        return em.createQuery(
+                "update Delivery d set d.status = :comp" +
+                        " where d.id in :deliveryIds" +
+                        " and d.status = :ready" +
+                        " and exists (select o.id from Order o where o.delivery = d and o.status = :order)")
+                .setParameter("comp", DeliveryStatus.COMP)
+                .setParameter("ready", DeliveryStatus.READY)
+                .setParameter("order", OrderStatus.ORDER)
+                .setParameter("deliveryIds", deliveryIds)
+                .executeUpdate();
+    }
+
+    /**
+     * 주문을 취소하기 전에 배송 행을 잠그고 최신 상태를 다시 읽는다.
+     * 배송을 가져간(claimReady) 워커가 있으면 그 트랜잭션이 끝날 때까지 기다리기 때문에 완료된 배송의 주문은 취소되지 않는다.
+     * refresh는 flush하지 않기 때문에 같은 트랜잭션에서 저장한 주문도 다시 읽을 수 있도록 먼저 flush한다.
+     * */
+    public void lockForCancel(Delivery delivery) {
+        em.flush();
+        em.refresh(delivery, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * 주문들의 배송 행을 잠근다. 이후 배송 상태는 잠근 뒤의 값으로 조회해야 한다.
+     * */
+    public void lockByOrderIds(List<Long> orderIds) {
+        em.createQuery(
+                "select d from Delivery d" +
+                        " where d.id in (select o.delivery.id from Order o where o.id in :orderIds)", Delivery.class)
+                .setParameter("orderIds", orderIds)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+}
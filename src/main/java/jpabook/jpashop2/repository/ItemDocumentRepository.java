@@ -0,0 +1,69 @@
+package jpabook.jpashop2.repository;
+
+import jpabook.jpashop2.search.ItemDocument;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 검색 색인에 필요한 컬럼만 엔티티 없이 조회한다.
+ * 상품 종류별 필드는 SINGLE_TABLE 전략으로 item 테이블에 함께 있기 때문에 한번에 읽는다.
+ * */
+@Repository
+@RequiredArgsConstructor
+public class ItemDocumentRepository {
+    private static final String SELECT_DOCUMENT =
+            "select item_id, version, dtype, name, price, stock_quantity, author, isbn, artist, etc, director, actor from item";
+
+    private static final String[] ATTRIBUTES = {"author", "isbn", "artist", "etc", "director", "actor"};
+
+    private static final Map<String, String> TYPES = Map.of("B", "BOOK", "A", "ALBUM", "M", "MOVIE");
+
+    private static final RowMapper<ItemDocument> DOCUMENT_MAPPER = (rs, rowNum) -> {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (String attribute : ATTRIBUTES) {
+            String value = rs.getString(attribute);
+            if (value != null) {
+                attributes.put(attribute, value);
+            }
+        }
+
+        long version = rs.getLong("version");
+        return new ItemDocument(rs.getLong("item_id"), rs.wasNull() ? null : version,
+                TYPES.getOrDefault(rs.getString("dtype"), rs.getString("dtype")), rs.getString("name"),
+                rs.getInt("price"), rs.getInt("stock_quantity"), attributes);
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<ItemDocument> findDocuments(List<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return List.of();
+        }
+
+        return new NamedParameterJdbcTemplate(jdbcTemplate).query(SELECT_DOCUMENT + " where item_id in (:itemIds)",
+                new MapSqlParameterSource("itemIds", itemIds), DOCUMENT_MAPPER);
+    }
+
+    public List<ItemDocument> findDocumentsBetween(long fromId, long toId) {
+        return jdbcTemplate.query(SELECT_DOCUMENT + " where item_id between ? and ?", DOCUMENT_MAPPER, fromId, toId);
+    }
+
+    /**
+     * [min item id, max item id]. 상품이 없으면 null.
+     * */
+    public long[] findIdRange() {
+        return jdbcTemplate.query("select min(item_id), max(item_id) from item", rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package jpabook.jpashop2.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * merge는 select 이후 모든 컬럼을 update 하기 때문에 대량 수정에는 적합하지 않다.
+ * 변경할 컬럼만 JDBC batch로 한번에 전송한다.
+ * */
+@Repository
+@RequiredArgsConstructor
+public class ItemJdbcRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public int[] updatePriceAndStock(List<ItemPriceStock> rows) {
+        if (rows.isEmpty()) {
+            return new int[0];
+        }
+
+        return jdbcTemplate.batchUpdate(
+                "update item set price = ?, stock_quantity = ?, version = version + 1 where item_id = ?",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setInt(1, row.getPrice());
+                    ps.setInt(2, row.getStockQuantity());
+                    ps.setLong(3, row.getItemId());
+                })[0];
+    }
+
+    /**
+     * 전달된 상품 중 존재하지 않는 상품의 id를 오름차순으로 반환한다.
+     * */
+    public Set<Long> findMissingIds(Collection<Long> itemIds) {
+        Set<Long> missing = new TreeSet<>(itemIds);
+        if (missing.isEmpty()) {
+            return missing;
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(missing.size(), "?"));
+        missing.removeAll(jdbcTemplate.queryForList(
+                "select item_id from item where item_id in (" + placeholders + ")", Long.class, missing.toArray()));
+        return missing;
+    }
+
+    /**
+     * 재고가 충분한 상품만 재고를 감소시키고 상품별 변경된 행 수(0 또는 1)를 반환한다.
+     * 여러 트랜잭션이 같은 상품들을 서로 다른 순서로 잠그면 교착 상태가 생길 수 있기 때문에
+     * rows는 item id 오름차순이어야 하며, 그 순서대로 한번의 batch로 전송한다.
+     * 드라이버가 행 수를 알려주지 않으면(SUCCESS_NO_INFO) 재고 부족을 구분할 수 없기 때문에 실패로 처리한다.
+     * */
+    public int[] removeStocks(List<ItemStockDto> rows) {
+        if (rows.isEmpty()) {
+            return new int[0];
+        }
+        for (int i = 1; i < rows.size(); i++) {
+            if (rows.get(i - 1).getItemId() >= rows.get(i).getItemId()) {
+                throw new IllegalArgumentException("상품은 중복 없이 id 오름차순이어야 합니다.");
+            }
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(
+                "update item set stock_quantity = stock_quantity - ?, version = version + 1" +
+                        " where item_id = ? and stock_quantity >= ?",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setLong(1, row.getQuantity());
+                    ps.setLong(2, row.getItemId());
+                    ps.setLong(3, row.getQuantity());
+                })[0];
+        for (int count : updated) {
+            if (count == Statement.SUCCESS_NO_INFO || count == Statement.EXECUTE_FAILED) {
+                throw new IllegalStateException("재고 감소 결과를 확인할 수 없습니다. count=" + count);
+            }
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,16 @@
+package jpabook.jpashop2.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ItemPriceStock {
+    private int line;
+
+    private Long itemId;
+
+    private int price;
+
+    private int stockQuantity;
+}
@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,11 +13,23 @@ import java.util.List;
 public class ItemRepository {
     private final EntityManager em;
 
+    /**
+     * version이 null인 준영속 상품을 merge 하면 새 엔티티로 판단되어 다른 id로 insert 되기 때문에 거부한다.
+     * 영속 상태의 상품을 먼저 조회하고 전달된 version으로 merge 하여, 그 사이에 다른 트랜잭션이 수정했다면
+     * OptimisticLockException이 발생한다.
+     * */
     public void save(Item item) {
         if (item.getId() == null) {
             em.persist(item);
         }
         else {
+            Item managed = em.find(Item.class, item.getId());
+            if (managed == null) {
+                throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + item.getId());
+            }
+            if (item.getVersion() == null) {
+                throw new IllegalArgumentException("수정할 상품의 version이 필요합니다. itemId=" + item.getId());
+            }
             em.merge(item);
         }
     }
@@ -25,8 +38,55 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    public List<Item> findByIds(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     public List<Item> findAll() {
         return em.createQuery("select i from Item i", Item.class)
                 .getResultList();
     }
+
+    /**
+     * [item id, name]
+     * */
+    public List<Object[]> findInStockIdNames() {
+        return em.createQuery("select i.id, i.name from Item i where i.stockQuantity > 0", Object[].class)
+                .getResultList();
+    }
+
+    /**
+     * 전달된 상품 중 재고가 있는 상품의 [item id, name]
+     * */
+    public List<Object[]> findInStockIdNames(Collection<Long> ids) {
+        return em.createQuery("select i.id, i.name from Item i where i.id in :ids and i.stockQuantity > 0", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * 엔티티를 로딩하지 않고 재고를 증가시킨다. 벌크 연산이므로 영속성 컨텍스트는 갱신되지 않는다.
+     * */
+    public int addStock(Long itemId, int quantity) {
+        return em.createQuery(
+                "update Item i set i.stockQuantity = i.stockQuantity + :quantity, i.version = i.version + 1" +
+                        " where i.id = :itemId")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
+
+    /**
+     * 재고가 충분할 때만 재고를 감소시킨다. 재고가 부족하면 0을 반환한다.
+     * */
+    public int removeStock(Long itemId, int quantity) {
+        return em.createQuery(
+                "update Item i set i.stockQuantity = i.stockQuantity - :quantity, i.version = i.version + 1" +
+                        " where i.id = :itemId and i.stockQuantity >= :quantity")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
 }
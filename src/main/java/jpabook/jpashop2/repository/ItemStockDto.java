@@ -0,0 +1,12 @@
+package jpabook.jpashop2.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ItemStockDto {
+    private Long itemId;
+
+    private Long quantity;
+}
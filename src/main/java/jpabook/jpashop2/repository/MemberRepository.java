@@ -5,13 +5,36 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Repository
 @RequiredArgsConstructor
 public class MemberRepository {
+    /**
+     * 조회 가능한 필드와 jpql 경로. id는 커서로 사용하기 때문에 항상 조회한다.
+     * */
+    public static final Map<String, String> PROJECTION_FIELDS = new LinkedHashMap<>();
+
+    static {
+        PROJECTION_FIELDS.put("name", "m.name");
+        PROJECTION_FIELDS.put("city", "m.address.city");
+        PROJECTION_FIELDS.put("street", "m.address.street");
+        PROJECTION_FIELDS.put("zipcode", "m.address.zipcode");
+    }
+
     private final EntityManager em;
 
+    /**
+     * 필드 조합(+ 커서 사용 여부)별로 만든 jpql. 필드는 PROJECTION_FIELDS 안에서만 고를 수 있어 조합의 수가 제한된다.
+     * */
+    private final Map<String, String> projectionQueries = new ConcurrentHashMap<>();
+
     public void save(Member member) {
         em.persist(member);
     }
@@ -25,6 +48,23 @@ public class MemberRepository {
                 .getResultList();
     }
 
+    /**
+     * [member id, name]
+     * */
+    public List<Object[]> findIdNames() {
+        return em.createQuery("select m.id, m.name from Member m", Object[].class)
+                .getResultList();
+    }
+
+    /**
+     * 전달된 이름 중 이미 가입된 이름.
+     * */
+    public List<String> findExistingNames(Collection<String> names) {
+        return em.createQuery("select distinct m.name from Member m where m.name in :names", String.class)
+                .setParameter("names", names)
+                .getResultList();
+    }
+
     public List<Member> findByName(String name) {
         return em.createQuery("select m from Member m where m.name = :name",
                 Member.class)
@@ -32,4 +72,35 @@ public class MemberRepository {
                 .getResultList();
 
     }
+
+    /**
+     * 요청한 컬럼만 조회하고, offset 대신 member_id 커서로 페이징하여 뒤쪽 페이지도 인덱스로 바로 찾는다.
+     * fields는 PROJECTION_FIELDS에 포함된 중복 없는 값이어야 한다.
+     * */
+    public List<Tuple> findProjectionPage(Long cursor, int limit, List<String> fields) {
+        String jpql = projectionQueries.computeIfAbsent((cursor != null) + ":" + String.join(",", fields), k -> {
+            StringBuilder builder = new StringBuilder("select m.id as id");
+            for (String field : fields) {
+                builder.append(", ").append(PROJECTION_FIELDS.get(field)).append(" as ").append(field);
+            }
+            builder.append(" from Member m");
+            if (cursor != null) {
+                builder.append(" where m.id > :cursor");
+            }
+            builder.append(" order by m.id");
+            return builder.toString();
+        });
+
+        TypedQuery<Tuple> query = em.createQuery(jpql, Tuple.class);
+        if (cursor != null) {
+            query.setParameter("cursor", cursor);
+        }
+
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    public long count() {
+        return em.createQuery("select count(m) from Member m", Long.class)
+                .getSingleResult();
+    }
 }
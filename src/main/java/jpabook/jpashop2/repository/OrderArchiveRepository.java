@@ -0,0 +1,89 @@
+package jpabook.jpashop2.repository;
+
+import jpabook.jpashop2.domain.DeliveryStatus;
+import jpabook.jpashop2.domain.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 운영 테이블(orders, order_item, delivery)의 행을 보관 테이블로 옮긴다.
+ * 엔티티를 로딩하지 않도록 insert ... select 와 delete를 native 쿼리로 실행한다.
+ * */
+@Repository
+@RequiredArgsConstructor
+public class OrderArchiveRepository {
+    private final EntityManager em;
+
+    /**
+     * 주문일이 cutoff 이전이면서 취소되었거나 배송이 완료된 주문.
+     * */
+    public List<Long> findArchivableOrderIds(LocalDateTime cutoff, int limit) {
+        return em.createQuery(
+                "select o.id from Order o" +
+                        " join o.delivery d" +
+                        " where o.orderDate < :cutoff" +
+                        " and (o.status = :cancel or d.status = :comp)" +
+                        " order by o.id", Long.class)
+                .setParameter("cutoff", cutoff)
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("comp", DeliveryStatus.COMP)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 주문, 주문상품, 배송을 보관 테이블에 복사한 뒤 운영 테이블에서 삭제한다.
+     * 외래키 순서대로 order_item -> orders -> delivery 순으로 삭제.
+     * */
+    public int moveToArchive(List<Long> orderIds) {
+        @SuppressWarnings("unchecked")
+        List<Number> deliveryIds = em.createNativeQuery(
+                "select delivery_id from orders where order_id in (:orderIds) and delivery_id is not null")
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+        List<Long> deliveryIdList = deliveryIds.stream()
+                .map(Number::longValue)
+                .collect(Collectors.toList());
+
+        em.createNativeQuery(
+                "insert into orders_archive (order_id, member_id, delivery_id, order_date, status, archived_at)" +
+                        " select order_id, member_id, delivery_id, order_date, status, :now" +
+                        " from orders where order_id in (:orderIds)")
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        em.createNativeQuery(
+                "insert into order_item_archive (order_item_id, order_id, item_id, order_price, count)" +
+                        " select order_item_id, order_id, item_id, order_price, count" +
+                        " from order_item where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        if (!deliveryIdList.isEmpty()) {
+            em.createNativeQuery(
+                    "insert into delivery_archive (delivery_id, city, street, zipcode, status)" +
+                            " select delivery_id, city, street, zipcode, status" +
+                            " from delivery where delivery_id in (:deliveryIds)")
+                    .setParameter("deliveryIds", deliveryIdList)
+                    .executeUpdate();
+        }
+
+        em.createNativeQuery("delete from order_item where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        int moved = em.createNativeQuery("delete from orders where order_id in (:orderIds)")
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+        if (!deliveryIdList.isEmpty()) {
+            em.createNativeQuery("delete from delivery where delivery_id in (:deliveryIds)")
+                    .setParameter("deliveryIds", deliveryIdList)
+                    .executeUpdate();
+        }
+
+        return moved;
+    }
+}
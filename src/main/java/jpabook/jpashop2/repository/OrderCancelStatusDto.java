@@ -0,0 +1,16 @@
+package jpabook.jpashop2.repository;
+
+import jpabook.jpashop2.domain.DeliveryStatus;
+import jpabook.jpashop2.domain.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class OrderCancelStatusDto {
+    private Long orderId;
+
+    private OrderStatus orderStatus;
+
+    private DeliveryStatus deliveryStatus;
+}
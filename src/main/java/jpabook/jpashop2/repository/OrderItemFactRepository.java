@@ -0,0 +1,88 @@
+package jpabook.jpashop2.repository;
+
+import jpabook.jpashop2.analytics.OrderItemColumns;
+import jpabook.jpashop2.domain.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * 분석용 주문상품 행을 엔티티나 행 객체 없이 ResultSet에서 바로 컬럼 배열에 옮긴다.
+ * 같은 주문의 행이 연속되도록 주문 id 순으로 조회한다.
+ * 보관(archive)된 주문도 분석 대상이기 때문에 보관 테이블을 함께 조회한다. 주문은 두 테이블 중 한곳에만 있으므로
+ * 운영 테이블을 먼저 읽고 보관 테이블을 읽으면, 그 사이에 보관된 주문도 빠지지 않는다.
+ * */
+@Repository
+@RequiredArgsConstructor
+public class OrderItemFactRepository {
+    private static final String SELECT_FACT =
+            "select oi.order_id, oi.item_id, o.member_id, oi.order_price, oi.count, o.order_date, o.status, d.city" +
+                    " from order_item oi" +
+                    " join orders o on o.order_id = oi.order_id" +
+                    " left join delivery d on d.delivery_id = o.delivery_id";
+
+    private static final String SELECT_ARCHIVED_FACT =
+            "select oi.order_id, oi.item_id, o.member_id, oi.order_price, oi.count, o.order_date, o.status, d.city" +
+                    " from order_item_archive oi" +
+                    " join orders_archive o on o.order_id = oi.order_id" +
+                    " left join delivery_archive d on d.delivery_id = o.delivery_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderItemColumns findBetween(long fromOrderId, long toOrderId, ToIntFunction<String> cityCodes) {
+        OrderItemColumns columns = new OrderItemColumns();
+        RowCallbackHandler collector = collector(columns, cityCodes);
+        for (String select : List.of(SELECT_FACT, SELECT_ARCHIVED_FACT)) {
+            jdbcTemplate.query(select + " where oi.order_id between ? and ? order by oi.order_id",
+                    collector, fromOrderId, toOrderId);
+        }
+        return columns;
+    }
+
+    public OrderItemColumns findByOrderIds(List<Long> orderIds, ToIntFunction<String> cityCodes) {
+        OrderItemColumns columns = new OrderItemColumns();
+        if (!orderIds.isEmpty()) {
+            RowCallbackHandler collector = collector(columns, cityCodes);
+            for (String select : List.of(SELECT_FACT, SELECT_ARCHIVED_FACT)) {
+                new NamedParameterJdbcTemplate(jdbcTemplate).query(select + " where oi.order_id in (:orderIds) order by oi.order_id",
+                        new MapSqlParameterSource("orderIds", orderIds), collector);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * 운영/보관 테이블을 합친 [min order id, max order id]. 주문이 없으면 null.
+     * */
+    public long[] findOrderIdRange() {
+        return jdbcTemplate.query("select min(order_id), max(order_id) from" +
+                " (select order_id from orders union all select order_id from orders_archive) o", rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        });
+    }
+
+    private static RowCallbackHandler collector(OrderItemColumns columns, ToIntFunction<String> cityCodes) {
+        Map<String, Integer> localCityCodes = new HashMap<>();
+        return rs -> {
+            Timestamp orderDate = rs.getTimestamp("order_date");
+            String city = rs.getString("city");
+            columns.add(rs.getLong("order_id"), rs.getLong("item_id"), rs.getLong("member_id"),
+                    rs.getInt("order_price"), rs.getInt("count"),
+                    orderDate == null ? 0 : orderDate.toLocalDateTime().toEpochSecond(ZoneOffset.UTC),
+                    (byte) OrderStatus.valueOf(rs.getString("status")).ordinal(),
+                    city == null ? -1 : localCityCodes.computeIfAbsent(city, cityCodes::applyAsInt));
+        };
+    }
+}
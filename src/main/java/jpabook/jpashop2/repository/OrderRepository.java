@@ -1,31 +1,58 @@
 package jpabook.jpashop2.repository;
 
+import jpabook.jpashop2.aop.Coalesce;
 import jpabook.jpashop2.domain.Member;
 import jpabook.jpashop2.domain.Order;
+import jpabook.jpashop2.domain.OrderItem;
+import jpabook.jpashop2.domain.OrderStatus;
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.Shards;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderRepository {
     private final EntityManager em;
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
 
     public void save(Order order) {
         em.persist(order);
     }
 
+    /**
+     * shard를 사용하면 호출하는 쪽에서 @ShardBy(ShardKey.ORDER_ID)로 주문의 shard를 정해야 한다.
+     * */
     public Order findOne(Long id) {
         return em.find(Order.class, id);
     }
 
+    /**
+     * shard를 사용하면 모든 shard에서 조회한 결과를 주문 id 순으로 합친다.
+     * 목록 조회는 모두 같은 방식이며, shard의 트랜잭션 밖에서 사용하는 연관관계는 shard 안에서 초기화한다.
+     * */
     public List<Order> findAll(OrderSearch orderSearch) {
+        if (shards.isSharded()) {
+            List<Order> orders = shardTemplate.gather(() -> initialize(findAllOnShard(orderSearch)), Comparator.comparing(Order::getId));
+            return orders.size() > 1000 ? new ArrayList<>(orders.subList(0, 1000)) : orders;
+        }
+        return findAllOnShard(orderSearch);
+    }
+
+    private List<Order> findAllOnShard(OrderSearch orderSearch) {
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<Order> cq = cb.createQuery(Order.class);
         Root<Order> o = cq.from(Order.class);
@@ -45,43 +72,215 @@ public class OrderRepository {
             criteria.add(name);
         }
         cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
+        cq.orderBy(cb.asc(o.get("id")));
         TypedQuery<Order> query = em.createQuery(cq).setMaxResults(1000); //최대 1000건
         return query.getResultList();
     }
 
     public List<Order> findAllWithMemberDelivery() {
-        return em.createQuery(
-                "select o from Order o" +
-                        " join fetch o.member m" +
-                        " join fetch o.delivery d", Order.class
-        ).getResultList();
+        if (shards.isSharded()) {
+            return shardTemplate.gather(() -> initialize(findAllWithMemberDeliveryOnShard(0, Integer.MAX_VALUE)), Comparator.comparing(Order::getId));
+        }
+        return findAllWithMemberDeliveryOnShard(0, Integer.MAX_VALUE);
     }
 
+    /**
+     * shard를 사용하면 각 shard에서 offset + limit 건을 읽어 합친 뒤 offset만큼 건너뛴다.
+     * */
     public List<Order> findAllWithMemberDelivery(int offset, int limit) {
+        if (shards.isSharded()) {
+            int perShard = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+            List<Order> orders = shardTemplate.gather(() -> initialize(findAllWithMemberDeliveryOnShard(0, perShard)), Comparator.comparing(Order::getId));
+            return orders.size() <= offset ? new ArrayList<>() : new ArrayList<>(orders.subList(offset, Math.min(orders.size(), perShard)));
+        }
+        return findAllWithMemberDeliveryOnShard(offset, limit);
+    }
+
+    private List<Order> findAllWithMemberDeliveryOnShard(int offset, int limit) {
         return em.createQuery(
                 "select o from Order o" +
                         " join fetch o.member m" +
-                        " join fetch o.delivery d", Order.class
+                        " join fetch o.delivery d" +
+                        " order by o.id", Order.class
         ).setFirstResult(offset).setMaxResults(limit).getResultList();
     }
 
+    /**
+     * 회원의 주문을 최신순으로 (order_date, order_id) 키셋 페이징한다.
+     * offset을 사용하지 않기 때문에 (member_id, order_date desc) 인덱스에서 커서 위치부터 바로 읽어
+     * 오래된 페이지도 첫 페이지와 같은 비용으로 조회된다. 주문상품은 batch fetch로 가져온다.
+     * shard를 사용하면 회원의 주문이 저장된 shard에서만 조회한다.
+     * */
+    public List<Order> findMemberOrderPage(Long memberId, LocalDateTime cursorDate, Long cursorId, int limit) {
+        if ((cursorDate == null) != (cursorId == null)) {
+            throw new IllegalArgumentException("cursorDate와 cursorId는 함께 전달해야 합니다.");
+        }
+
+        if (shards.isSharded()) {
+            return shardTemplate.executeReadOnly(shards.ofMember(memberId),
+                    () -> initialize(findMemberOrderPageOnShard(memberId, cursorDate, cursorId, limit)));
+        }
+        return findMemberOrderPageOnShard(memberId, cursorDate, cursorId, limit);
+    }
+
+    private List<Order> findMemberOrderPageOnShard(Long memberId, LocalDateTime cursorDate, Long cursorId, int limit) {
+        String jpql = "select o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d" +
+                " where m.id = :memberId";
+        if (cursorDate != null && cursorId != null) {
+            jpql += " and (o.orderDate < :cursorDate or (o.orderDate = :cursorDate and o.id < :cursorId))";
+        }
+        jpql += " order by o.orderDate desc, o.id desc";
+
+        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
+                .setParameter("memberId", memberId)
+                .setMaxResults(limit);
+        if (cursorDate != null && cursorId != null) {
+            query.setParameter("cursorDate", cursorDate)
+                    .setParameter("cursorId", cursorId);
+        }
+
+        return query.getResultList();
+    }
+
+    @Coalesce
     public List<OrderSimpleQueryDto> findOrderDtos() {
+        if (shards.isSharded()) {
+            return shardTemplate.gather(this::findOrderDtosOnShard, Comparator.comparing(OrderSimpleQueryDto::getOrderId));
+        }
+        return findOrderDtosOnShard();
+    }
+
+    private List<OrderSimpleQueryDto> findOrderDtosOnShard() {
         return em.createQuery(
                 "select new jpabook.jpashop2.repository.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address)"
                         +" from Order o" +
                         " join o.member m" +
-                        " join o.delivery d", OrderSimpleQueryDto.class
+                        " join o.delivery d" +
+                        " order by o.id", OrderSimpleQueryDto.class
         ).getResultList();
     }
 
 
     public List<Order> findAllWithItem() {
+        if (shards.isSharded()) {
+            return shardTemplate.gather(this::findAllWithItemOnShard, Comparator.comparing(Order::getId));
+        }
+        return findAllWithItemOnShard();
+    }
+
+    private List<Order> findAllWithItemOnShard() {
         return em.createQuery(
                 "select distinct o from Order o" +
                         " join fetch o.member m" +
                         " join fetch o.delivery d" +
                         " join fetch o.orderItems oi" +
-                        " join fetch oi.item i", Order.class)
+                        " join fetch oi.item i" +
+                        " order by o.id", Order.class)
+                .getResultList();
+    }
+
+    /**
+     * shard의 트랜잭션이 끝나기 전에 화면과 API에서 사용하는 연관관계를 초기화한다.
+     * */
+    private List<Order> initialize(List<Order> orders) {
+        for (Order order : orders) {
+            Hibernate.initialize(order.getMember());
+            Hibernate.initialize(order.getDelivery());
+            for (OrderItem orderItem : order.getOrderItems()) {
+                Hibernate.initialize(orderItem.getItem());
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * 일괄 취소 대상의 주문 상태와 배송 상태를 한번의 쿼리로 조회한다.
+     * 배송 정보가 없는 주문도 확인할 수 있도록 left join을 사용.
+     * 아래의 일괄 취소 쿼리들은 현재 shard에서 실행되므로 shard를 사용하면 주문의 shard 안에서 호출해야 한다.
+     * */
+    public List<OrderCancelStatusDto> findCancelStatuses(List<Long> orderIds) {
+        return em.createQuery(
+                "select new jpabook.jpashop2.repository.OrderCancelStatusDto(o.id, o.status, d.status)" +
+                        " from Order o" +
+                        " left join o.delivery d" +
+                        " where o.id in :orderIds", OrderCancelStatusDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 취소할 주문들의 상품별 주문 수량 합계를 조회한다.
+     * */
+    public List<ItemStockDto> findOrderedQuantities(List<Long> orderIds) {
+        return em.createQuery(
+                "select new jpabook.jpashop2.repository.ItemStockDto(oi.item.id, sum(oi.count))" +
+                        " from OrderItem oi" +
+                        " where oi.order.id in :orderIds" +
+                        " group by oi.item.id", ItemStockDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 재고 예약과 함께 커밋된 주문(또는 취소)이 현재 shard에 있는지 확인한다.
+     * */
+    public boolean existsByStockReservationKey(String reservationKey) {
+        return !em.createQuery("select o.id from Order o where o.stockReservationKey = :key", Long.class)
+                .setParameter("key", reservationKey)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    public List<String> findStockReservationKeys(List<Long> orderIds) {
+        return em.createQuery(
+                "select o.stockReservationKey from Order o" +
+                        " where o.id in :orderIds" +
+                        " and o.stockReservationKey is not null", String.class)
+                .setParameter("orderIds", orderIds)
                 .getResultList();
     }
+
+    public int updateStockReservationKey(List<Long> orderIds, String reservationKey) {
+        return em.createQuery("update Order o set o.stockReservationKey = :key where o.id in :orderIds")
+                .setParameter("key", reservationKey)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
+
+    /**
+     * 주문 중 아직 ORDER 상태인 주문을 잠그고 id를 반환한다.
+     * 잠근 주문은 트랜잭션이 끝날 때까지 다른 트랜잭션에서 변경할 수 없기 때문에 이어지는 cancelAll이 모두 변경한다.
+     * */
+    public List<Long> lockOrdered(List<Long> orderIds) {
+        return em.createQuery(
+                "select o from Order o" +
+                        " where o.id in :orderIds" +
+                        " and o.status = :order", Order.class)
+                .setParameter("orderIds", orderIds)
+                .setParameter("order", OrderStatus.ORDER)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList()
+                .stream()
+                .map(Order::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 벌크 연산으로 주문 상태를 한번에 취소로 변경한다.
+     * 조회 이후 다른 트랜잭션에서 취소된 주문은 제외되도록 ORDER 상태인 주문만 변경.
+     * 벌크 연산은 영속성 컨텍스트를 거치지 않기 때문에 이미 로딩된 엔티티와 값이 달라질 수 있다.
+     * */
+    public int cancelAll(List<Long> orderIds) {
+        return em.createQuery(
+                "update Order o set o.status = :cancel, o.version = o.version + 1" +
+                        " where o.id in :orderIds" +
+                        " and o.status = :order")
+                .setParameter("cancel", OrderStatus.CANCEL)
+                .setParameter("order", OrderStatus.ORDER)
+                .setParameter("orderIds", orderIds)
+                .executeUpdate();
+    }
 }
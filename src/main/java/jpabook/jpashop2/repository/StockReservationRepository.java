@@ -0,0 +1,47 @@
+package jpabook.jpashop2.repository;
+
+import jpabook.jpashop2.domain.StockReservation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class StockReservationRepository {
+    private final EntityManager em;
+
+    public void save(StockReservation reservation) {
+        em.persist(reservation);
+    }
+
+    public List<StockReservation> findByKeys(Collection<String> reservationKeys) {
+        return em.createQuery("select r from StockReservation r where r.reservationKey in :keys", StockReservation.class)
+                .setParameter("keys", reservationKeys)
+                .getResultList();
+    }
+
+    /**
+     * cutoff 이전에 만들어져 아직 처리되지 않은 예약의 [reservation key, order shard]
+     * */
+    public List<Object[]> findPendingKeys(LocalDateTime cutoff, int limit) {
+        return em.createQuery(
+                "select distinct r.reservationKey, r.orderShard from StockReservation r" +
+                        " where r.createdAt < :cutoff", Object[].class)
+                .setParameter("cutoff", cutoff)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 다른 트랜잭션이 먼저 삭제했으면 0을 반환한다. 같은 예약이 두번 처리되지 않도록 삭제된 경우에만 재고를 변경한다.
+     * */
+    public int delete(Long reservationId) {
+        return em.createQuery("delete from StockReservation r where r.id = :id")
+                .setParameter("id", reservationId)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,37 @@
+package jpabook.jpashop2.repository.order.query;
+
+import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.domain.OrderStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class OrderDetailDto {
+    private Long orderId;
+
+    private Long version;
+
+    private Long memberId;
+
+    private String name;
+
+    private LocalDateTime orderDate;
+
+    private OrderStatus orderStatus;
+
+    private Address address;
+
+    private List<OrderItemQueryDto> orderItems;
+
+    public OrderDetailDto(Long orderId, Long version, Long memberId, String name, LocalDateTime orderDate, OrderStatus orderStatus, Address address) {
+        this.orderId = orderId;
+        this.version = version;
+        this.memberId = memberId;
+        this.name = name;
+        this.orderDate = orderDate;
+        this.orderStatus = orderStatus;
+        this.address = address;
+    }
+}
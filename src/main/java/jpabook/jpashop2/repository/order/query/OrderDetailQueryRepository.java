@@ -0,0 +1,60 @@
+package jpabook.jpashop2.repository.order.query;
+
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.Shards;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderDetailQueryRepository {
+    private final EntityManager em;
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
+
+    /**
+     * 주문 여러건을 쿼리 두번(주문 + 회원 + 배송, 주문상품 + 상품)으로 조회하여 조립한다.
+     * shard를 사용하면 주문 id를 shard별로 나누어 각 shard에서 조회한다.
+     * */
+    public List<OrderDetailDto> findOrderDetails(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        if (shards.isSharded()) {
+            return shardTemplate.gatherByOrderIds(orderIds, this::findOrderDetailsOnShard);
+        }
+        return findOrderDetailsOnShard(orderIds);
+    }
+
+    private List<OrderDetailDto> findOrderDetailsOnShard(List<Long> orderIds) {
+        List<OrderDetailDto> result = em.createQuery(
+                "select new jpabook.jpashop2.repository.order.query.OrderDetailDto(o.id, o.version, m.id, m.name, o.orderDate, o.status, d.address)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " where o.id in :orderIds", OrderDetailDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = em.createQuery(
+                "select new jpabook.jpashop2.repository.order.query.OrderItemQueryDto(oi.order.id, i.id, i.name, oi.orderPrice, oi.count)" +
+                        " from OrderItem oi" +
+                        " join oi.item i" +
+                        " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList()
+                .stream()
+                .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId));
+
+        result.forEach(o -> o.setOrderItems(orderItemMap.getOrDefault(o.getOrderId(), new ArrayList<>())));
+
+        return result;
+    }
+}
@@ -0,0 +1,195 @@
+package jpabook.jpashop2.repository.order.query;
+
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.Shards;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 요청한 필드만 조회하는 주문 projection 쿼리를 만들어 실행한다.
+ * 요청한 필드에 필요한 연관관계만 조인하고, orderItems.* 필드가 있을 때만 주문상품을 in 절로 한번 더 조회한다.
+ * 엔티티를 로딩하지 않고 요청한 필드만 중첩된 map으로 반환하기 때문에 응답에도 요청한 필드만 포함된다.
+ * 만들어진 쿼리는 필드 조합마다 캐시한다. 필드는 ORDER_FIELDS, ITEM_FIELDS 안에서만 고를 수 있어 조합의 수가 제한된다.
+ * */
+@Repository
+@RequiredArgsConstructor
+public class OrderFieldQueryRepository {
+    /**
+     * 주문 필드와 jpql 경로. id는 정렬과 주문상품 매칭에 사용하기 때문에 항상 조회한다.
+     * */
+    public static final Map<String, String> ORDER_FIELDS = new LinkedHashMap<>();
+
+    /**
+     * 주문상품 필드(orderItems. 이후의 경로)와 jpql 경로.
+     * */
+    public static final Map<String, String> ITEM_FIELDS = new LinkedHashMap<>();
+
+    private static final String ITEMS_PREFIX = "orderItems.";
+
+    static {
+        ORDER_FIELDS.put("orderDate", "o.orderDate");
+        ORDER_FIELDS.put("status", "o.status");
+        ORDER_FIELDS.put("member.id", "o.member.id");
+        ORDER_FIELDS.put("member.name", "m.name");
+        ORDER_FIELDS.put("delivery.status", "d.status");
+        ORDER_FIELDS.put("delivery.city", "d.address.city");
+        ORDER_FIELDS.put("delivery.street", "d.address.street");
+        ORDER_FIELDS.put("delivery.zipcode", "d.address.zipcode");
+
+        ITEM_FIELDS.put("orderPrice", "oi.orderPrice");
+        ITEM_FIELDS.put("count", "oi.count");
+        ITEM_FIELDS.put("item.id", "oi.item.id");
+        ITEM_FIELDS.put("item.name", "i.name");
+        ITEM_FIELDS.put("item.price", "i.price");
+    }
+
+    private final EntityManager em;
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
+
+    private final Map<String, Plan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * 지원하지 않는 필드가 있으면 IllegalArgumentException.
+     * */
+    public List<Map<String, Object>> findPage(Collection<String> fields, int offset, int limit) {
+        Plan plan = planOf(fields);
+        if (shards.isSharded()) {
+            int perShard = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+            List<Map<String, Object>> orders = shardTemplate.gather(() -> findPage(plan, 0, perShard),
+                    Comparator.comparing(o -> (Long) o.get("id")));
+            return orders.size() <= offset ? new ArrayList<>() : new ArrayList<>(orders.subList(offset, Math.min(orders.size(), perShard)));
+        }
+        return findPage(plan, offset, limit);
+    }
+
+    /**
+     * 조회할 수 있는 필드인지 확인한다. id와 빈 값은 항상 허용된다.
+     * */
+    public static boolean isSupported(String field) {
+        String name = field.trim();
+        return name.isEmpty() || name.equals("id") || ORDER_FIELDS.containsKey(name)
+                || (name.startsWith(ITEMS_PREFIX) && ITEM_FIELDS.containsKey(name.substring(ITEMS_PREFIX.length())));
+    }
+
+    int cachedPlans() {
+        return plans.size();
+    }
+
+    private Plan planOf(Collection<String> fields) {
+        SortedSet<String> normalized = new TreeSet<>();
+        for (String field : fields) {
+            String name = field.trim();
+            if (!name.isEmpty() && !name.equals("id")) {
+                normalized.add(name);
+            }
+        }
+
+        return plans.computeIfAbsent(String.join(",", normalized), k -> new Plan(normalized));
+    }
+
+    private List<Map<String, Object>> findPage(Plan plan, int offset, int limit) {
+        List<Tuple> rows = em.createQuery(plan.orderJpql, Tuple.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+
+        Map<Long, Map<String, Object>> orders = new LinkedHashMap<>();
+        for (Tuple row : rows) {
+            Map<String, Object> order = new LinkedHashMap<>();
+            order.put("id", row.get(0));
+            for (int i = 0; i < plan.orderFields.size(); i++) {
+                put(order, plan.orderFields.get(i), row.get(i + 1));
+            }
+            orders.put((Long) row.get(0), order);
+        }
+
+        if (plan.itemJpql != null && !orders.isEmpty()) {
+            orders.values().forEach(o -> o.put("orderItems", new ArrayList<>()));
+            List<Tuple> itemRows = em.createQuery(plan.itemJpql, Tuple.class)
+                    .setParameter("orderIds", orders.keySet())
+                    .getResultList();
+            for (Tuple row : itemRows) {
+                Map<String, Object> orderItem = new LinkedHashMap<>();
+                for (int i = 0; i < plan.itemFields.size(); i++) {
+                    put(orderItem, plan.itemFields.get(i), row.get(i + 1));
+                }
+                @SuppressWarnings("unchecked")
+                List<Object> orderItems = (List<Object>) orders.get((Long) row.get(0)).get("orderItems");
+                orderItems.add(orderItem);
+            }
+        }
+
+        return new ArrayList<>(orders.values());
+    }
+
+    /**
+     * member.name 같은 경로를 중첩된 map에 넣는다.
+     * */
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> target, String path, Object value) {
+        String[] names = path.split("\\.");
+        Map<String, Object> current = target;
+        for (int i = 0; i < names.length - 1; i++) {
+            current = (Map<String, Object>) current.computeIfAbsent(names[i], k -> new LinkedHashMap<>());
+        }
+        current.put(names[names.length - 1], value);
+    }
+
+    /**
+     * 필드 조합으로 만든 주문 쿼리와 주문상품 쿼리.
+     * */
+    private static class Plan {
+        private final List<String> orderFields = new ArrayList<>();
+
+        private final List<String> itemFields = new ArrayList<>();
+
+        private final String orderJpql;
+
+        private final String itemJpql;
+
+        Plan(SortedSet<String> fields) {
+            for (String field : fields) {
+                if (field.startsWith(ITEMS_PREFIX) && ITEM_FIELDS.containsKey(field.substring(ITEMS_PREFIX.length()))) {
+                    itemFields.add(field.substring(ITEMS_PREFIX.length()));
+                } else if (ORDER_FIELDS.containsKey(field)) {
+                    orderFields.add(field);
+                } else {
+                    throw new IllegalArgumentException("조회할 수 없는 필드입니다. field=" + field);
+                }
+            }
+
+            List<String> orderPaths = orderFields.stream().map(ORDER_FIELDS::get).collect(Collectors.toList());
+            StringBuilder jpql = new StringBuilder("select o.id");
+            orderFields.forEach(f -> jpql.append(", ").append(ORDER_FIELDS.get(f)));
+            jpql.append(" from Order o");
+            if (orderPaths.stream().anyMatch(p -> p.startsWith("m."))) {
+                jpql.append(" join o.member m");
+            }
+            if (orderPaths.stream().anyMatch(p -> p.startsWith("d."))) {
+                jpql.append(" left join o.delivery d");
+            }
+            jpql.append(" order by o.id");
+            orderJpql = jpql.toString();
+
+            if (itemFields.isEmpty()) {
+                itemJpql = null;
+            } else {
+                StringBuilder items = new StringBuilder("select oi.order.id");
+                itemFields.forEach(f -> items.append(", ").append(ITEM_FIELDS.get(f)));
+                items.append(" from OrderItem oi");
+                if (itemFields.stream().map(ITEM_FIELDS::get).anyMatch(p -> p.startsWith("i."))) {
+                    items.append(" join oi.item i");
+                }
+                items.append(" where oi.order.id in :orderIds order by oi.order.id, oi.id");
+                itemJpql = items.toString();
+            }
+        }
+    }
+}
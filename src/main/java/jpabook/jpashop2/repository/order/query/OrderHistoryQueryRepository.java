@@ -0,0 +1,144 @@
+package jpabook.jpashop2.repository.order.query;
+
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.Shards;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * 운영 테이블과 보관 테이블을 모두 조회하여 주문 이력을 반환한다.
+ * 호출하는 쪽에서는 주문이 보관되었는지 알 필요가 없다.
+ * shard를 사용하면 주문 id 또는 회원 id로 정해지는 shard에서 두 테이블을 조회한다.
+ * */
+@Repository
+@RequiredArgsConstructor
+public class OrderHistoryQueryRepository {
+    private final EntityManager em;
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
+
+    /**
+     * 운영 테이블을 먼저 조회하고, 없으면 보관 테이블에서 조회한다.
+     * */
+    public Optional<OrderQueryDto> findOrder(Long orderId) {
+        if (shards.isSharded()) {
+            return shardTemplate.executeReadOnly(shards.ofOrder(orderId), () -> findOrderOnShard(orderId));
+        }
+        return findOrderOnShard(orderId);
+    }
+
+    private Optional<OrderQueryDto> findOrderOnShard(Long orderId) {
+        List<OrderQueryDto> hot = em.createQuery(
+                "select new jpabook.jpashop2.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " where o.id = :orderId", OrderQueryDto.class)
+                .setParameter("orderId", orderId)
+                .getResultList();
+        if (!hot.isEmpty()) {
+            setOrderItems(hot, findHotOrderItems(List.of(orderId)));
+            return Optional.of(hot.get(0));
+        }
+
+        List<OrderQueryDto> archived = em.createQuery(
+                "select new jpabook.jpashop2.repository.order.query.OrderQueryDto(a.id, m.name, a.orderDate, a.status, d.address)" +
+                        " from OrderArchive a, Member m, DeliveryArchive d" +
+                        " where m.id = a.memberId" +
+                        " and d.id = a.deliveryId" +
+                        " and a.id = :orderId", OrderQueryDto.class)
+                .setParameter("orderId", orderId)
+                .getResultList();
+        setOrderItems(archived, findArchivedOrderItems(List.of(orderId)));
+
+        return archived.stream().findFirst();
+    }
+
+    /**
+     * 회원의 전체 주문 이력을 최신 주문 순으로 반환한다.
+     * */
+    public List<OrderQueryDto> findMemberOrders(Long memberId) {
+        if (shards.isSharded()) {
+            return shardTemplate.executeReadOnly(shards.ofMember(memberId), () -> findMemberOrdersOnShard(memberId));
+        }
+        return findMemberOrdersOnShard(memberId);
+    }
+
+    private List<OrderQueryDto> findMemberOrdersOnShard(Long memberId) {
+        List<OrderQueryDto> hot = em.createQuery(
+                "select new jpabook.jpashop2.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " where m.id = :memberId", OrderQueryDto.class)
+                .setParameter("memberId", memberId)
+                .getResultList();
+        setOrderItems(hot, findHotOrderItems(toOrderIds(hot)));
+
+        List<OrderQueryDto> archived = em.createQuery(
+                "select new jpabook.jpashop2.repository.order.query.OrderQueryDto(a.id, m.name, a.orderDate, a.status, d.address)" +
+                        " from OrderArchive a, Member m, DeliveryArchive d" +
+                        " where m.id = a.memberId" +
+                        " and d.id = a.deliveryId" +
+                        " and a.memberId = :memberId", OrderQueryDto.class)
+                .setParameter("memberId", memberId)
+                .getResultList();
+        setOrderItems(archived, findArchivedOrderItems(toOrderIds(archived)));
+
+        List<OrderQueryDto> result = new ArrayList<>(hot);
+        result.addAll(archived);
+        result.sort(Comparator.comparing(OrderQueryDto::getOrderDate, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(OrderQueryDto::getOrderId, Comparator.reverseOrder()));
+
+        return result;
+    }
+
+    private List<OrderItemQueryDto> findHotOrderItems(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+
+        return em.createQuery(
+                "select new jpabook.jpashop2.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                        " from OrderItem oi" +
+                        " join oi.item i" +
+                        " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    private List<OrderItemQueryDto> findArchivedOrderItems(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+
+        return em.createQuery(
+                "select new jpabook.jpashop2.repository.order.query.OrderItemQueryDto(a.orderId, i.name, a.orderPrice, a.count)" +
+                        " from OrderItemArchive a, Item i" +
+                        " where i.id = a.itemId" +
+                        " and a.orderId in :orderIds", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    private void setOrderItems(List<OrderQueryDto> orders, List<OrderItemQueryDto> orderItems) {
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItems.stream()
+                .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId));
+
+        orders.forEach(o -> o.setOrderItems(orderItemMap.getOrDefault(o.getOrderId(), new ArrayList<>())));
+    }
+
+    private List<Long> toOrderIds(List<OrderQueryDto> orders) {
+        return orders.stream()
+                .map(OrderQueryDto::getOrderId)
+                .collect(Collectors.toList());
+    }
+}
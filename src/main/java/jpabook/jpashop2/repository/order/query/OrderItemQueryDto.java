@@ -1,11 +1,18 @@
 package jpabook.jpashop2.repository.order.query;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 @Data
 public class OrderItemQueryDto {
     private Long orderId;
 
+    /**
+     * 상품 정보가 변경되었을 때 캐시된 주문을 찾기 위해 사용하고, 응답에는 포함하지 않는다.
+     * */
+    @JsonIgnore
+    private Long itemId;
+
     private String itemName;
 
     private int orderPrice;
@@ -18,4 +25,9 @@ public class OrderItemQueryDto {
         this.orderPrice = orderPrice;
         this.count = count;
     }
+
+    public OrderItemQueryDto(Long orderId, Long itemId, String itemName, int orderPrice, int count) {
+        this(orderId, itemName, orderPrice, count);
+        this.itemId = itemId;
+    }
 }
@@ -0,0 +1,284 @@
+package jpabook.jpashop2.repository.order.query;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.domain.OrderStatus;
+import jpabook.jpashop2.repository.OrderSimpleQueryDto;
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.Shards;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * DTO 목록을 메모리에 만들지 않고 조회 결과를 한 행씩 JsonGenerator로 바로 출력한다.
+ * 출력되는 json은 OrderSimpleQueryDto, OrderQueryDto를 jackson으로 직렬화한 결과와 같다.
+ * LocalDateTime은 generator에 설정된 ObjectMapper의 직렬화 설정을 그대로 사용한다.
+ * shard를 사용하면 shard마다 주문 id 순으로 SHARD_PAGE_SIZE개씩 읽으면서 주문 id 순으로 합쳐 출력한다.
+ * 메모리에는 shard마다 한 페이지만 올라간다.
+ * */
+@Repository
+@RequiredArgsConstructor
+public class OrderJsonQueryRepository {
+    private static final String ORDER_COLUMNS =
+            "select o.order_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode";
+
+    private static final String ORDER_JOIN =
+            " from orders o" +
+                    " join member m on m.member_id = o.member_id" +
+                    " join delivery d on d.delivery_id = o.delivery_id";
+
+    private static final String ORDER_PAGE = " where o.order_id > ? order by o.order_id limit ?";
+
+    private static final int SHARD_PAGE_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
+
+    /**
+     * /api/v4/simple-orders 와 같은 형식.
+     * */
+    public void writeOrderSimpleRows(JsonGenerator generator) throws IOException {
+        if (shards.isSharded()) {
+            writeMerged(generator, this::findOrderPage, OrderSimpleQueryDto::getOrderId);
+            return;
+        }
+
+        generator.writeStartArray();
+        jdbcTemplate.query(ORDER_COLUMNS + ORDER_JOIN, (RowCallbackHandler) rs -> {
+            try {
+                generator.writeStartObject();
+                writeOrderFields(generator, rs);
+                generator.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.writeEndArray();
+    }
+
+    /**
+     * /api/v5/orders 와 같은 형식.
+     * 주문과 주문상품을 한번에 조회하여 order id 순으로 정렬한 뒤 order id가 바뀌는 시점에 주문을 닫는다.
+     * 주문상품이 없는 주문은 v5와 마찬가지로 orderItems가 null로 출력된다.
+     * */
+    public void writeOrdersWithItems(JsonGenerator generator) throws IOException {
+        if (shards.isSharded()) {
+            writeMerged(generator, this::findOrderWithItemsPage, OrderQueryDto::getOrderId);
+            return;
+        }
+
+        OrderItemsRowWriter writer = new OrderItemsRowWriter(generator);
+
+        generator.writeStartArray();
+        jdbcTemplate.query(ORDER_COLUMNS + ", oi.order_item_id, i.name as item_name, oi.order_price, oi.count" +
+                ORDER_JOIN +
+                " left join order_item oi on oi.order_id = o.order_id" +
+                " left join item i on i.item_id = oi.item_id" +
+                " order by o.order_id, oi.order_item_id", writer);
+        writer.finish();
+        generator.writeEndArray();
+    }
+
+    /**
+     * 각 shard에서 읽은 페이지의 첫 주문 중 id가 가장 작은 주문부터 출력하고, 페이지를 다 쓴 shard는 다음 페이지를 읽는다.
+     * */
+    private <T> void writeMerged(JsonGenerator generator, LongFunction<List<T>> page, Function<T, Long> orderId) throws IOException {
+        PriorityQueue<ShardCursor<T>> heads = new PriorityQueue<>(Comparator.comparing(cursor -> orderId.apply(cursor.current())));
+        for (int shard = 0; shard < shards.count(); shard++) {
+            ShardCursor<T> cursor = new ShardCursor<>(shard, page, orderId);
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+
+        generator.writeStartArray();
+        while (!heads.isEmpty()) {
+            ShardCursor<T> head = heads.poll();
+            generator.writeObject(head.current());
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    private List<OrderSimpleQueryDto> findOrderPage(long afterOrderId) {
+        return jdbcTemplate.query(ORDER_COLUMNS + ORDER_JOIN + ORDER_PAGE, (rs, rowNum) -> new OrderSimpleQueryDto(
+                rs.getLong("order_id"), rs.getString("name"), rs.getObject("order_date", LocalDateTime.class),
+                OrderStatus.valueOf(rs.getString("status")), toAddress(rs)), afterOrderId, SHARD_PAGE_SIZE);
+    }
+
+    /**
+     * 주문상품이 없는 주문은 단일 shard와 마찬가지로 orderItems가 null로 남는다.
+     * */
+    private List<OrderQueryDto> findOrderWithItemsPage(long afterOrderId) {
+        List<OrderQueryDto> orders = jdbcTemplate.query(ORDER_COLUMNS + ORDER_JOIN + ORDER_PAGE, (rs, rowNum) -> new OrderQueryDto(
+                rs.getLong("order_id"), rs.getString("name"), rs.getObject("order_date", LocalDateTime.class),
+                OrderStatus.valueOf(rs.getString("status")), toAddress(rs)), afterOrderId, SHARD_PAGE_SIZE);
+        if (orders.isEmpty()) {
+            return orders;
+        }
+
+        List<Long> orderIds = orders.stream().map(OrderQueryDto::getOrderId).collect(Collectors.toList());
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = new NamedParameterJdbcTemplate(jdbcTemplate).query(
+                "select oi.order_id, i.name as item_name, oi.order_price, oi.count" +
+                        " from order_item oi" +
+                        " join item i on i.item_id = oi.item_id" +
+                        " where oi.order_id in (:orderIds)" +
+                        " order by oi.order_id, oi.order_item_id",
+                new MapSqlParameterSource("orderIds", orderIds),
+                (rs, rowNum) -> new OrderItemQueryDto(rs.getLong("order_id"), rs.getString("item_name"),
+                        rs.getInt("order_price"), rs.getInt("count")))
+                .stream()
+                .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId));
+
+        orders.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+        return orders;
+    }
+
+    private static Address toAddress(ResultSet rs) throws SQLException {
+        String city = rs.getString("city");
+        String street = rs.getString("street");
+        String zipcode = rs.getString("zipcode");
+        return city == null && street == null && zipcode == null ? null : new Address(city, street, zipcode);
+    }
+
+    private static void writeOrderFields(JsonGenerator generator, ResultSet rs) throws SQLException, IOException {
+        generator.writeNumberField("orderId", rs.getLong("order_id"));
+        generator.writeStringField("name", rs.getString("name"));
+        generator.writeFieldName("orderDate");
+        generator.writeObject(rs.getObject("order_date", LocalDateTime.class));
+        generator.writeStringField("orderStatus", rs.getString("status"));
+
+        String city = rs.getString("city");
+        String street = rs.getString("street");
+        String zipcode = rs.getString("zipcode");
+        if (city == null && street == null && zipcode == null) {
+            generator.writeNullField("address");
+        } else {
+            generator.writeObjectFieldStart("address");
+            generator.writeStringField("city", city);
+            generator.writeStringField("street", street);
+            generator.writeStringField("zipcode", zipcode);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * 한 shard의 주문을 id 순으로 한 페이지씩 읽는다. 페이지는 shard의 읽기 전용 트랜잭션 안에서 읽는다.
+     * */
+    private class ShardCursor<T> {
+        private final int shard;
+
+        private final LongFunction<List<T>> page;
+
+        private final Function<T, Long> orderId;
+
+        private Iterator<T> rows = Collections.emptyIterator();
+
+        private T current;
+
+        private long lastOrderId = Long.MIN_VALUE;
+
+        private boolean lastPage;
+
+        ShardCursor(int shard, LongFunction<List<T>> page, Function<T, Long> orderId) {
+            this.shard = shard;
+            this.page = page;
+            this.orderId = orderId;
+        }
+
+        T current() {
+            return current;
+        }
+
+        boolean advance() {
+            if (!rows.hasNext() && !lastPage) {
+                long after = lastOrderId;
+                List<T> next = shardTemplate.executeReadOnly(shard, () -> page.apply(after));
+                lastPage = next.size() < SHARD_PAGE_SIZE;
+                rows = next.iterator();
+            }
+            if (!rows.hasNext()) {
+                return false;
+            }
+
+            current = rows.next();
+            lastOrderId = orderId.apply(current);
+            return true;
+        }
+    }
+
+    private static class OrderItemsRowWriter implements RowCallbackHandler {
+        private final JsonGenerator generator;
+
+        private long currentOrderId = -1;
+
+        private boolean orderOpen;
+
+        private boolean itemsOpen;
+
+        OrderItemsRowWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                long orderId = rs.getLong("order_id");
+                if (!orderOpen || orderId != currentOrderId) {
+                    finish();
+                    generator.writeStartObject();
+                    writeOrderFields(generator, rs);
+                    currentOrderId = orderId;
+                    orderOpen = true;
+                }
+
+                rs.getLong("order_item_id");
+                if (rs.wasNull()) {
+                    generator.writeNullField("orderItems");
+                    return;
+                }
+
+                if (!itemsOpen) {
+                    generator.writeArrayFieldStart("orderItems");
+                    itemsOpen = true;
+                }
+                generator.writeStartObject();
+                generator.writeNumberField("orderId", orderId);
+                generator.writeStringField("itemName", rs.getString("item_name"));
+                generator.writeNumberField("orderPrice", rs.getInt("order_price"));
+                generator.writeNumberField("count", rs.getInt("count"));
+                generator.writeEndObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            if (itemsOpen) {
+                generator.writeEndArray();
+                itemsOpen = false;
+            }
+            if (orderOpen) {
+                generator.writeEndObject();
+                orderOpen = false;
+            }
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package jpabook.jpashop2.repository.order.query;
 
+import jpabook.jpashop2.aop.Coalesce;
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.Shards;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -12,6 +16,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OrderQueryRepository {
     private final EntityManager em;
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
 
 
     public List<OrderQueryDto> findOrderQueryDtos() {
@@ -27,9 +33,22 @@ public class OrderQueryRepository {
 
     /**
      * ~toMany의 데이터를 in 절로 가져온 뒤 메모리 상에서 매칭시켜서 값을 세팅.
+     * 동시에 들어온 요청은 실행 중인 조회 결과를 함께 사용한다.
+     * shard를 사용하면 shard마다 같은 조회를 실행하고 주문 id 순으로 합친다.
      * */
+    @Coalesce
     public List<OrderQueryDto> findAllByDto_optimization() {
+        if (shards.isSharded()) {
+            return shardTemplate.gather(this::findAllByDtoOnShard, Comparator.comparing(OrderQueryDto::getOrderId));
+        }
+        return findAllByDtoOnShard();
+    }
+
+    private List<OrderQueryDto> findAllByDtoOnShard() {
         List<OrderQueryDto> result = findOrders();
+        if (result.isEmpty()) {
+            return result;
+        }
 
         List<Long> orderIds = toOrderIds(result);
 
@@ -93,7 +112,8 @@ public class OrderQueryRepository {
                 "select new jpabook.jpashop2.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
                         " from Order o" +
                         " join o.member m" +
-                        " join o.delivery d", OrderQueryDto.class)
+                        " join o.delivery d" +
+                        " order by o.id", OrderQueryDto.class)
                 .getResultList();
     }
 }
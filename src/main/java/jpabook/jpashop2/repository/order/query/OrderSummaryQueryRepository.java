@@ -0,0 +1,71 @@
+package jpabook.jpashop2.repository.order.query;
+
+import jpabook.jpashop2.readmodel.OrderSummary;
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.Shards;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryQueryRepository {
+    private static final String SELECT_SUMMARY =
+            "select new jpabook.jpashop2.readmodel.OrderSummary(o.id, o.version, m.id, m.version, m.name, o.orderDate, o.status, d.address)" +
+                    " from Order o" +
+                    " join o.member m" +
+                    " join o.delivery d";
+
+    private final EntityManager em;
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
+
+    /**
+     * shard를 사용하면 주문 id를 shard별로 나누어 각 shard에서 조회한다.
+     * */
+    public List<OrderSummary> findSummaries(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+
+        if (shards.isSharded()) {
+            return shardTemplate.gatherByOrderIds(orderIds, this::findSummariesOnShard);
+        }
+        return findSummariesOnShard(orderIds);
+    }
+
+    private List<OrderSummary> findSummariesOnShard(List<Long> orderIds) {
+        return em.createQuery(SELECT_SUMMARY + " where o.id in :orderIds", OrderSummary.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * 읽기 모델과 db를 비교하기 위해 order id 순으로 주문과 회원의 version만 조회한다.
+     * [order id, order version, member version]
+     * shard를 사용하면 각 shard에서 limit 건씩 읽어 order id 순으로 합친 뒤 limit 건만 반환한다.
+     * */
+    public List<Object[]> findVersionPage(long afterOrderId, int limit) {
+        if (shards.isSharded()) {
+            List<Object[]> rows = shardTemplate.gather(() -> findVersionPageOnShard(afterOrderId, limit),
+                    Comparator.comparing(r -> (Long) r[0]));
+            return rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        }
+        return findVersionPageOnShard(afterOrderId, limit);
+    }
+
+    private List<Object[]> findVersionPageOnShard(long afterOrderId, int limit) {
+        return em.createQuery(
+                "select o.id, o.version, m.version from Order o" +
+                        " join o.member m" +
+                        " where o.id > :afterOrderId" +
+                        " order by o.id", Object[].class)
+                .setParameter("afterOrderId", afterOrderId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,32 @@
+package jpabook.jpashop2.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * 검색 결과로 바로 반환할 수 있도록 상품 한건의 정보를 담은 불변 객체.
+ * attributes에는 상품 종류별 필드(author, isbn, artist, etc, director, actor) 중 값이 있는 것만 담는다.
+ * */
+@Getter
+@AllArgsConstructor
+public class ItemDocument {
+    private final Long id;
+
+    private final Long version;
+
+    private final String type;
+
+    private final String name;
+
+    private final int price;
+
+    private final int stockQuantity;
+
+    private final Map<String, String> attributes;
+
+    boolean isOlderThan(ItemDocument other) {
+        return Long.compare(version == null ? -1 : version, other.version == null ? -1 : other.version) < 0;
+    }
+}
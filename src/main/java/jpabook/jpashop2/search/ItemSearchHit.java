@@ -0,0 +1,12 @@
+package jpabook.jpashop2.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ItemSearchHit {
+    private final ItemDocument item;
+
+    private final double score;
+}
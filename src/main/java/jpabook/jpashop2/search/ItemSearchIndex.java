@@ -0,0 +1,212 @@
+package jpabook.jpashop2.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 상품 이름과 종류별 필드로 만든 역색인.
+ * 단어는 정렬된 상태로 보관하기 때문에 접두어로 시작하는 단어를 범위 조회로 바로 찾는다.
+ * 색인 변경은 상품 단위로 이루어지고, 검색과 변경은 락 없이 동시에 실행된다.
+ * */
+@Component
+public class ItemSearchIndex {
+    private static final Map<String, Integer> FIELD_WEIGHTS = Map.of(
+            "name", 3,
+            "author", 2,
+            "artist", 2,
+            "director", 2,
+            "isbn", 1,
+            "actor", 1,
+            "etc", 1);
+
+    private static final double PREFIX_MATCH = 0.5;
+
+    /**
+     * 한 글자 검색어가 접두어로 확장되는 색인 단어의 최대 수.
+     * 한 글자 검색어가 색인 전체의 posting을 합치지 않도록 완전히 일치하는 단어와 상품 수가 많은 단어까지만 사용한다.
+     * 두 글자 이상의 검색어는 제한 없이 확장한다.
+     * */
+    static final int MAX_PREFIX_TERMS = 64;
+
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, ItemDocument> documents = new ConcurrentHashMap<>();
+
+    /**
+     * 이미 더 최신 version이 색인되어 있으면 무시한다.
+     * */
+    public void index(ItemDocument document) {
+        documents.compute(document.getId(), (id, old) -> {
+            if (old != null) {
+                if (document.isOlderThan(old)) {
+                    return old;
+                }
+                terms(old).keySet().forEach(term -> removePosting(term, id));
+            }
+            terms(document).forEach((term, weight) ->
+                    postings.computeIfAbsent(term, t -> new ConcurrentHashMap<>()).put(id, weight));
+            return document;
+        });
+    }
+
+    public void remove(Long itemId) {
+        documents.computeIfPresent(itemId, (id, old) -> {
+            terms(old).keySet().forEach(term -> removePosting(term, id));
+            return null;
+        });
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * 검색어의 모든 단어와 일치하는 상품을 점수 순으로 반환한다.
+     * 단어마다 접두어로 시작하는 색인 단어를 찾고(한 글자 단어는 최대 MAX_PREFIX_TERMS 개), 필드 가중치 * idf 로 점수를 매긴다.
+     * 완전히 일치하는 단어는 항상 포함되고, 접두어로만 일치하는 단어보다 높은 점수를 받는다.
+     * */
+    public ItemSearchResult search(String query, int offset, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (tokens.isEmpty()) {
+            return new ItemSearchResult(0, List.of());
+        }
+
+        List<Map<Long, Double>> tokenScores = new ArrayList<>();
+        for (String token : tokens) {
+            Map<Long, Double> scores = score(token);
+            if (scores.isEmpty()) {
+                return new ItemSearchResult(0, List.of());
+            }
+            tokenScores.add(scores);
+        }
+        tokenScores.sort(Comparator.comparingInt(Map::size));
+
+        Map<Long, Double> matched = new HashMap<>(tokenScores.get(0));
+        for (Map<Long, Double> scores : tokenScores.subList(1, tokenScores.size())) {
+            matched.entrySet().removeIf(e -> !scores.containsKey(e.getKey()));
+            matched.replaceAll((id, score) -> score + scores.get(id));
+        }
+
+        Comparator<Map.Entry<Long, Double>> ranking = Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        int topN = offset + limit;
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(Math.max(1, topN), ranking.reversed());
+        for (Map.Entry<Long, Double> entry : matched.entrySet()) {
+            top.offer(entry);
+            if (top.size() > topN) {
+                top.poll();
+            }
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(top);
+        ranked.sort(ranking);
+
+        List<ItemSearchHit> hits = new ArrayList<>();
+        for (Map.Entry<Long, Double> entry : ranked.subList(Math.min(offset, ranked.size()), ranked.size())) {
+            ItemDocument document = documents.get(entry.getKey());
+            if (document != null) {
+                hits.add(new ItemSearchHit(document, entry.getValue()));
+            }
+        }
+
+        return new ItemSearchResult(matched.size(), hits);
+    }
+
+    private Map<Long, Double> score(String token) {
+        Map<Long, Double> scores = new HashMap<>();
+        double total = Math.max(1, documents.size());
+
+        for (Map.Entry<String, Map<Long, Integer>> entry : expand(token).entrySet()) {
+            Map<Long, Integer> posting = entry.getValue();
+            double idf = Math.log(1 + total / Math.max(1, posting.size()));
+            double match = entry.getKey().equals(token) ? 1 : PREFIX_MATCH;
+
+            posting.forEach((id, weight) -> scores.merge(id, weight * idf * match, Math::max));
+        }
+
+        return scores;
+    }
+
+    /**
+     * 한 글자 검색어는 완전히 일치하는 단어를 먼저 넣고, 나머지는 상품 수가 많은 단어부터(같으면 사전 순) 채운다.
+     * 확장할 단어를 고를 때는 단어와 상품 수만 보기 때문에 posting을 합치는 비용은 MAX_PREFIX_TERMS 개로 제한된다.
+     * */
+    private Map<String, Map<Long, Integer>> expand(String token) {
+        NavigableMap<String, Map<Long, Integer>> terms = postings.subMap(token, token + Character.MAX_VALUE);
+        if (token.codePointCount(0, token.length()) > 1) {
+            return terms;
+        }
+
+        Map<String, Map<Long, Integer>> expanded = new LinkedHashMap<>();
+        Map<String, Integer> documentCounts = new HashMap<>();
+        terms.forEach((term, posting) -> {
+            if (term.equals(token)) {
+                expanded.put(term, posting);
+            } else {
+                documentCounts.put(term, posting.size());
+            }
+        });
+
+        documentCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(MAX_PREFIX_TERMS - expanded.size())
+                .forEach(e -> {
+                    Map<Long, Integer> posting = terms.get(e.getKey());
+                    if (posting != null) {
+                        expanded.put(e.getKey(), posting);
+                    }
+                });
+
+        return expanded;
+    }
+
+    private void removePosting(String term, Long itemId) {
+        postings.computeIfPresent(term, (t, ids) -> {
+            ids.remove(itemId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * 단어별로 가장 높은 필드 가중치.
+     * */
+    private Map<String, Integer> terms(ItemDocument document) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, "name", document.getName());
+        document.getAttributes().forEach((field, value) -> addTerms(terms, field, value));
+        return terms;
+    }
+
+    private void addTerms(Map<String, Integer> terms, String field, String value) {
+        int weight = FIELD_WEIGHTS.getOrDefault(field, 1);
+        for (String token : tokenize(value)) {
+            terms.merge(token, weight, Math::max);
+        }
+
+        // isbn 처럼 '-'로 구분된 값은 붙여 쓴 형태로도 찾을 수 있게 한다.
+        if ("isbn".equals(field) && value != null) {
+            String joined = value.replaceAll("[^\\p{L}\\p{N}]", "").toLowerCase(Locale.ROOT);
+            if (!joined.isEmpty()) {
+                terms.merge(joined, weight, Math::max);
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+
+        return tokens;
+    }
+}
@@ -0,0 +1,118 @@
+package jpabook.jpashop2.search;
+
+import jpabook.jpashop2.event.DomainEvent;
+import jpabook.jpashop2.event.DomainEventHandler;
+import jpabook.jpashop2.event.ItemChangedEvent;
+import jpabook.jpashop2.repository.ItemDocumentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 시작 시 item_id 범위를 나누어 여러 스레드에서 동시에 조회하여 색인을 만들고,
+ * 이후에는 커밋된 상품 변경 이벤트(saveItem, updateItem, 일괄 수정)로 변경된 상품만 다시 색인한다.
+ * 검색 결과에 재고가 포함되기 때문에 주문, 주문 취소로 재고만 변경된 이벤트도 다시 색인한다.
+ * 기동을 막지 않도록 별도 스레드에서 색인을 만들고, 만드는 동안에는 isReady가 false 이다.
+ * */
+@Slf4j
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+public class ItemSearchIndexer implements DomainEventHandler {
+    private static final long RANGE_SIZE = 10_000;
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final ItemSearchIndex index;
+    private final ItemDocumentRepository itemDocumentRepository;
+
+    private volatile boolean ready;
+
+    private Thread loader;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void start() {
+        if (loader != null) {
+            return;
+        }
+
+        loader = new Thread(this::load, "item-search-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        try {
+            rebuild();
+            ready = true;
+        } catch (Exception e) {
+            log.error("item search index build failed.", e);
+        }
+    }
+
+    private void rebuild() throws Exception {
+        long start = System.currentTimeMillis();
+        long[] range = itemDocumentRepository.findIdRange();
+        if (range != null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            AtomicInteger loaded = new AtomicInteger();
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (long from = range[0]; from <= range[1]; from += RANGE_SIZE) {
+                    long fromId = from;
+                    long toId = Math.min(from + RANGE_SIZE - 1, range[1]);
+                    futures.add(executor.submit(() -> {
+                        List<ItemDocument> documents = itemDocumentRepository.findDocumentsBetween(fromId, toId);
+                        documents.forEach(index::index);
+                        loaded.addAndGet(documents.size());
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            log.info("item search index built. items={}, threads={}, {}ms",
+                    loaded.get(), threads, System.currentTimeMillis() - start);
+        }
+    }
+
+    @Override
+    public void handle(List<DomainEvent> events) {
+        Set<Long> itemIds = new LinkedHashSet<>();
+        for (DomainEvent event : events) {
+            if (event instanceof ItemChangedEvent) {
+                itemIds.add(event.getKey());
+            }
+        }
+
+        reindex(new ArrayList<>(itemIds));
+    }
+
+    private void reindex(List<Long> itemIds) {
+        for (int from = 0; from < itemIds.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = itemIds.subList(from, Math.min(from + LOAD_CHUNK_SIZE, itemIds.size()));
+            Set<Long> missing = new HashSet<>(chunk);
+            for (ItemDocument document : itemDocumentRepository.findDocuments(chunk)) {
+                index.index(document);
+                missing.remove(document.getId());
+            }
+            missing.forEach(index::remove);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package jpabook.jpashop2.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class ItemSearchResult {
+    /**
+     * 검색어와 일치하는 전체 상품 수.
+     * */
+    private final int totalCount;
+
+    private final List<ItemSearchHit> hits;
+}
@@ -0,0 +1,35 @@
+package jpabook.jpashop2.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class BulkCancelResult {
+    private final List<Long> canceledOrderIds = new ArrayList<>();
+
+    private final List<Failure> failures = new ArrayList<>();
+
+    void canceled(Long orderId) {
+        canceledOrderIds.add(orderId);
+    }
+
+    void failed(Long orderId, FailureReason reason) {
+        failures.add(new Failure(orderId, reason));
+    }
+
+    public enum FailureReason {
+        NOT_FOUND, ALREADY_CANCELED, DELIVERY_COMPLETED
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Failure {
+        private Long orderId;
+
+        private FailureReason reason;
+    }
+}
@@ -0,0 +1,55 @@
+package jpabook.jpashop2.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class BulkJoinResult {
+    private final List<Long> createdIds = new ArrayList<>();
+
+    private final List<Rejection> rejected = new ArrayList<>();
+
+    /**
+     * 모든 chunk가 커밋되었으면 true. false이면 실패한 chunk부터는 NOT_PROCESSED로 반환된다.
+     * */
+    private boolean completed = true;
+
+    private String error;
+
+    void created(Long memberId) {
+        createdIds.add(memberId);
+    }
+
+    void rejected(String name, RejectReason reason) {
+        rejected.add(new Rejection(name, reason));
+    }
+
+    void failed(String error) {
+        this.completed = false;
+        this.error = error;
+    }
+
+    /**
+     * 커밋된 chunk의 결과를 합친다.
+     * */
+    void addAll(BulkJoinResult chunk) {
+        createdIds.addAll(chunk.createdIds);
+        rejected.addAll(chunk.rejected);
+    }
+
+    public enum RejectReason {
+        INVALID_NAME, DUPLICATE_IN_REQUEST, ALREADY_EXISTS, NOT_PROCESSED
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Rejection {
+        private String name;
+
+        private RejectReason reason;
+    }
+}
@@ -0,0 +1,61 @@
+package jpabook.jpashop2.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop2.delivery.DeliveryProcessor;
+import jpabook.jpashop2.domain.Delivery;
+import jpabook.jpashop2.repository.DeliveryRepository;
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.Shards;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class DeliveryDispatchService {
+    private final DeliveryRepository deliveryRepository;
+    private final ObjectProvider<DeliveryProcessor> deliveryProcessors;
+    private final MeterRegistry meterRegistry;
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
+
+    /**
+     * READY 배송을 최대 batchSize 개 잠그고 처리한 뒤 한번의 update로 완료 처리한다.
+     * 잠금은 커밋 시점에 풀리기 때문에 같은 배송이 두 워커에서 처리되지 않는다.
+     * shard를 사용하면 shard마다 각각의 트랜잭션에서 최대 batchSize 개씩 처리한다.
+     * @return 처리한 배송 수. 0이면 처리할 배송이 없다.
+     * */
+    @Transactional
+    public int dispatchBatch(int batchSize) {
+        if (!shards.isSharded()) {
+            return dispatchOnShard(batchSize);
+        }
+
+        int completed = 0;
+        for (int shard = 0; shard < shards.count(); shard++) {
+            completed += shardTemplate.execute(shard, () -> dispatchOnShard(batchSize));
+        }
+        return completed;
+    }
+
+    private int dispatchOnShard(int batchSize) {
+        List<Delivery> deliveries = deliveryRepository.claimReady(batchSize);
+        if (deliveries.isEmpty()) {
+            return 0;
+        }
+
+        deliveryProcessors.orderedStream().forEach(p -> p.process(deliveries));
+
+        List<Long> deliveryIds = deliveries.stream()
+                .map(Delivery::getId)
+                .collect(Collectors.toList());
+        int completed = deliveryRepository.completeAll(deliveryIds);
+        meterRegistry.counter("delivery.dispatched").increment(completed);
+
+        return completed;
+    }
+}
@@ -0,0 +1,54 @@
+package jpabook.jpashop2.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 대량 import 시에도 메모리 사용량이 일정하도록 성공한 행은 개수만 기록하고,
+ * 실패한 행은 최대 MAX_ERRORS 건까지만 보관한다.
+ * */
+@Getter
+public class ItemImportResult {
+    public static final int MAX_ERRORS = 1000;
+
+    private int processedRows;
+
+    private int updatedRows;
+
+    private int failedRows;
+
+    private int committedChunks;
+
+    private final List<RowError> errors = new ArrayList<>();
+
+    void processed() {
+        processedRows++;
+    }
+
+    void updated(int count) {
+        updatedRows += count;
+    }
+
+    void committed() {
+        committedChunks++;
+    }
+
+    void failed(int line, String message) {
+        failedRows++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private int line;
+
+        private String message;
+    }
+}
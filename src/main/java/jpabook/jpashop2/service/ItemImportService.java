@@ -0,0 +1,148 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.event.DomainEventPublisher;
+import jpabook.jpashop2.event.ItemChangedEvent;
+import jpabook.jpashop2.repository.ItemJdbcRepository;
+import jpabook.jpashop2.repository.ItemPriceStock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * itemId,price,stockQuantity 형식의 CSV를 한 줄씩 읽어 CHUNK_SIZE 단위로 batch update 후 커밋한다.
+ * 파일 전체를 메모리에 올리지 않기 때문에 행의 수와 관계없이 메모리 사용량이 일정하다.
+ * 이미 커밋된 chunk는 이후 chunk에서 오류가 발생해도 롤백되지 않는다.
+ * db 오류로 커밋하지 못한 chunk는 해당 행들을 실패로 기록하고 다음 chunk를 계속 처리한다.
+ * */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ItemImportService {
+    public static final int CHUNK_SIZE = 1000;
+
+    private static final List<String> HEADER = List.of("itemid", "price", "stockquantity");
+
+    private static final char BOM = '\uFEFF';
+
+    private final ItemJdbcRepository itemJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DomainEventPublisher eventPublisher;
+
+    public ItemImportResult importPriceAndStock(Reader csv) throws IOException {
+        ItemImportResult result = new ItemImportResult();
+        List<ItemPriceStock> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        BufferedReader reader = new BufferedReader(csv);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == BOM) {
+                line = line.substring(1);
+            }
+            if (line.isBlank() || (lineNumber == 1 && isHeader(line))) {
+                continue;
+            }
+
+            result.processed();
+            try {
+                chunk.add(parse(lineNumber, line));
+            } catch (IllegalArgumentException e) {
+                result.failed(lineNumber, e.getMessage());
+            }
+
+            if (chunk.size() == CHUNK_SIZE) {
+                flush(chunk, result);
+            }
+        }
+        flush(chunk, result);
+
+        log.info("item import finished. processed={}, updated={}, failed={}",
+                result.getProcessedRows(), result.getUpdatedRows(), result.getFailedRows());
+
+        return result;
+    }
+
+    private void flush(List<ItemPriceStock> chunk, ItemImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        int[] counts;
+        try {
+            counts = transactionTemplate.execute(status -> {
+                int[] updated = itemJdbcRepository.updatePriceAndStock(chunk);
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] != 0) {
+                        eventPublisher.publish(new ItemChangedEvent(chunk.get(i).getItemId()));
+                    }
+                }
+                return updated;
+            });
+        } catch (DataAccessException e) {
+            log.warn("item import chunk failed. lines={}~{}",
+                    chunk.get(0).getLine(), chunk.get(chunk.size() - 1).getLine(), e);
+            for (ItemPriceStock row : chunk) {
+                result.failed(row.getLine(), "db 오류로 반영되지 않았습니다. " + e.getMostSpecificCause().getMessage());
+            }
+            chunk.clear();
+            return;
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                result.failed(chunk.get(i).getLine(), "존재하지 않는 상품입니다. itemId=" + chunk.get(i).getItemId());
+            } else if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                result.updated(1);
+            }
+        }
+        result.committed();
+
+        log.info("item import progress. processed={}, updated={}, failed={}",
+                result.getProcessedRows(), result.getUpdatedRows(), result.getFailedRows());
+
+        chunk.clear();
+    }
+
+    private boolean isHeader(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != HEADER.size()) {
+            return false;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (!HEADER.get(i).equals(columns[i].trim().toLowerCase())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ItemPriceStock parse(int lineNumber, String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != 3) {
+            throw new IllegalArgumentException("컬럼 수가 올바르지 않습니다. (itemId,price,stockQuantity)");
+        }
+
+        try {
+            long itemId = Long.parseLong(columns[0].trim());
+            int price = Integer.parseInt(columns[1].trim());
+            int stockQuantity = Integer.parseInt(columns[2].trim());
+            if (price < 0 || stockQuantity < 0) {
+                throw new IllegalArgumentException("가격과 재고는 0 이상이어야 합니다.");
+            }
+
+            return new ItemPriceStock(lineNumber, itemId, price, stockQuantity);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("숫자 형식이 올바르지 않습니다. " + e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,15 @@
 package jpabook.jpashop2.service;
 
+import jpabook.jpashop2.aop.RetryOnOptimisticLock;
+import jpabook.jpashop2.domain.item.Album;
+import jpabook.jpashop2.domain.item.Book;
 import jpabook.jpashop2.domain.item.Item;
+import jpabook.jpashop2.domain.item.Movie;
+import jpabook.jpashop2.event.DomainEventPublisher;
+import jpabook.jpashop2.event.ItemChangedEvent;
 import jpabook.jpashop2.repository.ItemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,10 +20,83 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ItemService {
     private final ItemRepository itemRepository;
+    private final DomainEventPublisher eventPublisher;
 
     @Transactional
     public void saveItem(Item item) {
         itemRepository.save(item);
+        eventPublisher.publish(new ItemChangedEvent(item.getId()));
+    }
+
+    /**
+     * merge 대신 변경 감지를 사용하여 전달된 값만 수정한다.
+     * DynamicUpdate로 변경된 컬럼만 update 되고, 수정된 엔티티를 그대로 반환하기 때문에 다시 조회할 필요가 없다.
+     * */
+    @RetryOnOptimisticLock
+    @Transactional
+    public Item updateItem(Long itemId, UpdateItemDto dto) {
+        Item item = itemRepository.findOne(itemId);
+        if (item == null) {
+            throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + itemId);
+        }
+        // 화면에서 읽은 이후에 수정된 상품은 다시 시도해도 같은 결과이므로 재시도 대상(OptimisticLockingFailureException)이 아니다.
+        if (dto.getVersion() != null && !dto.getVersion().equals(item.getVersion())) {
+            throw new ConcurrencyFailureException("다른 요청에서 먼저 수정된 상품입니다. itemId=" + itemId);
+        }
+
+        if (dto.getName() != null) {
+            item.setName(dto.getName());
+        }
+        if (dto.getPrice() != null) {
+            item.setPrice(dto.getPrice());
+        }
+        if (dto.getStockQuantity() != null) {
+            item.setStockQuantity(dto.getStockQuantity());
+        }
+        if (item instanceof Book) {
+            rejectFields(item, dto.getArtist(), dto.getEtc(), dto.getDirector(), dto.getActor());
+            Book book = (Book) item;
+            if (dto.getAuthor() != null) {
+                book.setAuthor(dto.getAuthor());
+            }
+            if (dto.getIsbn() != null) {
+                book.setIsbn(dto.getIsbn());
+            }
+        } else if (item instanceof Album) {
+            rejectFields(item, dto.getAuthor(), dto.getIsbn(), dto.getDirector(), dto.getActor());
+            Album album = (Album) item;
+            if (dto.getArtist() != null) {
+                album.setArtist(dto.getArtist());
+            }
+            if (dto.getEtc() != null) {
+                album.setEtc(dto.getEtc());
+            }
+        } else if (item instanceof Movie) {
+            rejectFields(item, dto.getAuthor(), dto.getIsbn(), dto.getArtist(), dto.getEtc());
+            Movie movie = (Movie) item;
+            if (dto.getDirector() != null) {
+                movie.setDirector(dto.getDirector());
+            }
+            if (dto.getActor() != null) {
+                movie.setActor(dto.getActor());
+            }
+        }
+
+        eventPublisher.publish(new ItemChangedEvent(itemId));
+
+        return item;
+    }
+
+    /**
+     * 다른 종류의 상품 필드가 전달되면 무시하지 않고 거부한다.
+     * */
+    private void rejectFields(Item item, String... values) {
+        for (String value : values) {
+            if (value != null) {
+                throw new IllegalArgumentException(item.getClass().getSimpleName()
+                        + "에 없는 필드는 수정할 수 없습니다. itemId=" + item.getId());
+            }
+        }
     }
 
     public List<Item> findItems() {
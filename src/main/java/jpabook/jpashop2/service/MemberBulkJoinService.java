@@ -0,0 +1,96 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.event.DomainEventPublisher;
+import jpabook.jpashop2.event.MemberJoinedEvent;
+import jpabook.jpashop2.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.*;
+
+/**
+ * 회원 여러명을 한번에 가입시킨다.
+ * 요청 안의 중복은 메모리에서, db와의 중복은 CHUNK_SIZE 단위의 in 절 조회 한번으로 확인하고,
+ * insert는 미리 할당받은 id(member_seq)와 jdbc batch로 전송한다.
+ * chunk 마다 커밋하기 때문에 이미 커밋된 chunk는 이후 chunk에서 오류가 발생해도 롤백되지 않는다.
+ * chunk가 실패하면(요청 기한 초과 포함) 나머지는 처리하지 않고, 커밋된 chunk까지의 결과와 처리되지 않은 이름을 반환한다.
+ * */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberBulkJoinService {
+    public static final int CHUNK_SIZE = 1000;
+
+    private static final int FLUSH_SIZE = 100;
+
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DomainEventPublisher eventPublisher;
+    private final EntityManager em;
+
+    public BulkJoinResult joinAll(List<String> names) {
+        BulkJoinResult result = new BulkJoinResult();
+
+        Set<String> seen = new HashSet<>();
+        List<String> candidates = new ArrayList<>();
+        for (String name : names) {
+            if (name == null || name.isBlank()) {
+                result.rejected(name, BulkJoinResult.RejectReason.INVALID_NAME);
+            } else if (!seen.add(name)) {
+                result.rejected(name, BulkJoinResult.RejectReason.DUPLICATE_IN_REQUEST);
+            } else {
+                candidates.add(name);
+            }
+        }
+
+        for (int from = 0; from < candidates.size(); from += CHUNK_SIZE) {
+            List<String> chunk = candidates.subList(from, Math.min(from + CHUNK_SIZE, candidates.size()));
+            BulkJoinResult chunkResult = new BulkJoinResult();
+            try {
+                transactionTemplate.executeWithoutResult(status -> joinChunk(chunk, chunkResult));
+            } catch (RuntimeException e) {
+                log.warn("bulk join chunk failed. committed={}, remaining={}",
+                        result.getCreatedIds().size(), candidates.size() - from, e);
+                candidates.subList(from, candidates.size())
+                        .forEach(name -> result.rejected(name, BulkJoinResult.RejectReason.NOT_PROCESSED));
+                result.failed(e.getMessage());
+                break;
+            }
+            result.addAll(chunkResult);
+        }
+
+        log.info("bulk join finished. requested={}, created={}, rejected={}, completed={}",
+                names.size(), result.getCreatedIds().size(), result.getRejected().size(), result.isCompleted());
+
+        return result;
+    }
+
+    private void joinChunk(List<String> chunk, BulkJoinResult result) {
+        Set<String> existing = new HashSet<>(memberRepository.findExistingNames(chunk));
+
+        int persisted = 0;
+        for (String name : chunk) {
+            if (existing.contains(name)) {
+                result.rejected(name, BulkJoinResult.RejectReason.ALREADY_EXISTS);
+                continue;
+            }
+
+            Member member = new Member();
+            member.setName(name);
+            memberRepository.save(member);
+            result.created(member.getId());
+            eventPublisher.publish(new MemberJoinedEvent(member.getId()));
+
+            if (++persisted % FLUSH_SIZE == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+}
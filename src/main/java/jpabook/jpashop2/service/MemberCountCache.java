@@ -0,0 +1,32 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 회원 수는 목록 조회마다 count 쿼리를 실행하지 않고 TTL 동안 캐시된 근사값을 사용한다.
+ * */
+@Component
+@RequiredArgsConstructor
+public class MemberCountCache {
+    private static final long TTL_MILLIS = 60_000;
+
+    private final MemberRepository memberRepository;
+
+    private volatile long count;
+
+    private volatile long loadedAt;
+
+    @Transactional(readOnly = true)
+    public long approximateCount() {
+        long now = System.currentTimeMillis();
+        if (loadedAt == 0 || now - loadedAt > TTL_MILLIS) {
+            count = memberRepository.count();
+            loadedAt = now;
+        }
+
+        return count;
+    }
+}
@@ -1,11 +1,17 @@
 package jpabook.jpashop2.service;
 
+import jpabook.jpashop2.aop.RetryOnOptimisticLock;
+import jpabook.jpashop2.domain.Address;
 import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.event.DomainEventPublisher;
+import jpabook.jpashop2.event.MemberJoinedEvent;
+import jpabook.jpashop2.event.MemberUpdatedEvent;
 import jpabook.jpashop2.repository.MemberRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.Tuple;
 import java.util.List;
 
 @Service
@@ -13,11 +19,13 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MemberService {
     private final MemberRepository memberRepository;
+    private final DomainEventPublisher eventPublisher;
 
     @Transactional
     public Long join(Member member) {
         validateDuplicateMember(member);
         memberRepository.save(member);
+        eventPublisher.publish(new MemberJoinedEvent(member.getId()));
 
         return member.getId();
     }
@@ -34,13 +42,47 @@ public class MemberService {
         return memberRepository.findAll();
     }
 
+    public List<Tuple> findMemberPage(Long cursor, int limit, List<String> fields) {
+        return memberRepository.findProjectionPage(cursor, limit, fields);
+    }
+
     public Member findOne(Long id) {
         return memberRepository.findOne(id);
     }
 
+    @RetryOnOptimisticLock
     @Transactional
-    public void update(Long id, String name) {
+    public Member update(Long id, String name) {
         Member member = memberRepository.findOne(id);
         member.setName(name);
+        eventPublisher.publish(new MemberUpdatedEvent(id));
+
+        return member;
+    }
+
+    /**
+     * 전달된 값만 변경 감지로 수정한다. Address는 값 타입이기 때문에 기존 값과 합쳐서 새로 생성.
+     * */
+    @RetryOnOptimisticLock
+    @Transactional
+    public Member update(Long id, UpdateMemberDto dto) {
+        Member member = memberRepository.findOne(id);
+        if (member == null) {
+            throw new IllegalArgumentException("존재하지 않는 회원입니다. memberId=" + id);
+        }
+
+        if (dto.getName() != null) {
+            member.setName(dto.getName());
+        }
+        if (dto.getCity() != null || dto.getStreet() != null || dto.getZipcode() != null) {
+            Address old = member.getAddress() != null ? member.getAddress() : new Address(null, null, null);
+            member.setAddress(new Address(
+                    dto.getCity() != null ? dto.getCity() : old.getCity(),
+                    dto.getStreet() != null ? dto.getStreet() : old.getStreet(),
+                    dto.getZipcode() != null ? dto.getZipcode() : old.getZipcode()));
+        }
+        eventPublisher.publish(new MemberUpdatedEvent(id));
+
+        return member;
     }
 }
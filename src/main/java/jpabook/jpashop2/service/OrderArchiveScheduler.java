@@ -0,0 +1,24 @@
+package jpabook.jpashop2.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Lazy(false)
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "shop.archive.enabled", havingValue = "true")
+public class OrderArchiveScheduler {
+    private final OrderArchiveService orderArchiveService;
+
+    @Value("${shop.archive.retention-days}")
+    private int retentionDays;
+
+    @Scheduled(cron = "${shop.archive.cron}")
+    public void archive() {
+        orderArchiveService.archive(retentionDays);
+    }
+}
@@ -0,0 +1,62 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.event.DomainEventPublisher;
+import jpabook.jpashop2.event.OrderArchivedEvent;
+import jpabook.jpashop2.repository.OrderArchiveRepository;
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.Shards;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 오래된 취소/배송완료 주문을 chunk 단위로 보관 테이블로 옮긴다.
+ * chunk 마다 커밋하기 때문에 한번에 많은 행을 잠그거나 긴 트랜잭션을 만들지 않는다.
+ * shard를 사용하면 shard마다 그 shard의 운영 테이블에서 같은 shard의 보관 테이블로 옮긴다.
+ * */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderArchiveService {
+    public static final int CHUNK_SIZE = 500;
+
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DomainEventPublisher eventPublisher;
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
+
+    public int archive(int retentionDays) {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        int total = 0;
+
+        for (int shard = 0; shard < shards.count(); shard++) {
+            while (true) {
+                Integer moved = shards.isSharded()
+                        ? shardTemplate.execute(shard, () -> archiveChunk(cutoff))
+                        : transactionTemplate.execute(status -> archiveChunk(cutoff));
+
+                if (moved == null || moved == 0) {
+                    break;
+                }
+                total += moved;
+            }
+        }
+
+        log.info("order archive finished. cutoff={}, archived={}", cutoff, total);
+        return total;
+    }
+
+    private int archiveChunk(LocalDateTime cutoff) {
+        List<Long> orderIds = orderArchiveRepository.findArchivableOrderIds(cutoff, CHUNK_SIZE);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        orderIds.forEach(id -> eventPublisher.publish(new OrderArchivedEvent(id)));
+        return orderArchiveRepository.moveToArchive(orderIds);
+    }
+}
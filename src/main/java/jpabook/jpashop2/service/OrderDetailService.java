@@ -0,0 +1,52 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.cache.OrderAggregateCache;
+import jpabook.jpashop2.repository.order.query.OrderDetailDto;
+import jpabook.jpashop2.repository.order.query.OrderDetailQueryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderDetailService {
+    private final OrderDetailQueryRepository orderDetailQueryRepository;
+    private final OrderAggregateCache orderAggregateCache;
+
+    /**
+     * 캐시에 없는 주문만 한번에 조회하여 캐시에 넣는다.
+     * 조회하는 동안 제거 이벤트가 처리되었다면 오래된 값일 수 있기 때문에 캐시에 넣지 않는다.
+     * 요청한 순서대로 반환하고, 존재하지 않는 주문은 제외한다.
+     * */
+    public List<OrderDetailDto> findOrders(List<Long> orderIds) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        long ticket = orderAggregateCache.ticket();
+        Map<Long, OrderDetailDto> found = orderAggregateCache.getAll(distinctIds);
+
+        List<Long> missingIds = distinctIds.stream()
+                .filter(id -> !found.containsKey(id))
+                .collect(Collectors.toList());
+        for (OrderDetailDto order : orderDetailQueryRepository.findOrderDetails(missingIds)) {
+            orderAggregateCache.put(order, ticket);
+            found.put(order.getOrderId(), order);
+        }
+
+        return distinctIds.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<OrderDetailDto> findOrder(Long orderId) {
+        return findOrders(List.of(orderId)).stream().findFirst();
+    }
+}
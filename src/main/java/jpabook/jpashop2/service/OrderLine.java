@@ -0,0 +1,15 @@
+package jpabook.jpashop2.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 장바구니 주문의 한 줄
+ * */
+@Data
+@AllArgsConstructor
+public class OrderLine {
+    private Long itemId;
+
+    private int count;
+}
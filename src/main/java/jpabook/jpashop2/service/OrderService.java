@@ -1,19 +1,35 @@
 package jpabook.jpashop2.service;
 
-import jpabook.jpashop2.domain.Delivery;
-import jpabook.jpashop2.domain.Member;
-import jpabook.jpashop2.domain.Order;
-import jpabook.jpashop2.domain.OrderItem;
+import jpabook.jpashop2.aop.RetryOnOptimisticLock;
+import jpabook.jpashop2.domain.*;
 import jpabook.jpashop2.domain.item.Item;
-import jpabook.jpashop2.repository.ItemRepository;
-import jpabook.jpashop2.repository.MemberRepository;
-import jpabook.jpashop2.repository.OrderRepository;
-import jpabook.jpashop2.repository.OrderSearch;
+import jpabook.jpashop2.event.DomainEventPublisher;
+import jpabook.jpashop2.event.ItemChangedEvent;
+import jpabook.jpashop2.event.OrderCancelledEvent;
+import jpabook.jpashop2.event.OrderPlacedEvent;
+import jpabook.jpashop2.exception.NotEnoughStockException;
+import jpabook.jpashop2.repository.*;
+import jpabook.jpashop2.service.BulkCancelResult.FailureReason;
+import jpabook.jpashop2.sharding.HomeStockReservation;
+import jpabook.jpashop2.sharding.ReferenceDataReplicator;
+import jpabook.jpashop2.sharding.ShardBy;
+import jpabook.jpashop2.sharding.ShardKey;
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.Shards;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 @Service
 @RequiredArgsConstructor
@@ -21,27 +37,232 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final ItemJdbcRepository itemJdbcRepository;
+    private final DeliveryRepository deliveryRepository;
+    private final DomainEventPublisher eventPublisher;
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
+    private final HomeStockReservation homeStockReservation;
+    private final ReferenceDataReplicator referenceDataReplicator;
 
+    /**
+     * shard를 사용하면 회원의 shard에서 실행된다. 재고는 home shard에서 먼저 예약하고,
+     * 주문 shard에는 조인에 필요한 회원/상품 행을 복사한 뒤 주문을 저장한다.
+     * */
+    @RetryOnOptimisticLock
+    @ShardBy(ShardKey.MEMBER_ID)
     @Transactional
     public Long order(Long memberId, Long itemId, int count) {
+        String reservationKey = null;
+        if (shards.isSharded()) {
+            reservationKey = homeStockReservation.reserve(itemId, count);
+            referenceDataReplicator.replicate(shards.ofMember(memberId), memberId, List.of(itemId));
+        }
+
         Member member = memberRepository.findOne(memberId);
         Item item = itemRepository.findOne(itemId);
 
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());
+        delivery.setStatus(DeliveryStatus.READY);
 
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        OrderItem orderItem = shards.isSharded()
+                ? OrderItem.createReservedOrderItem(item, item.getPrice(), count)
+                : OrderItem.createOrderItem(item, item.getPrice(), count);
         Order order = Order.createOrder(member, delivery, orderItem);
+        order.setStockReservationKey(reservationKey);
+
+        orderRepository.save(order);
+        eventPublisher.publish(new OrderPlacedEvent(order.getId(), memberId));
+        eventPublisher.publish(ItemChangedEvent.stock(itemId));
+
+        return order.getId();
+    }
+
+    /**
+     * 여러 상품을 하나의 주문으로 생성한다. 같은 상품의 줄은 수량을 합친다.
+     * 재고는 item id 오름차순으로 한번의 batch로 감소시키기 때문에 겹치는 장바구니가 동시에 주문되어도
+     * 행 잠금 순서가 같아 교착 상태가 생기지 않는다. 하나라도 재고가 부족하면 트랜잭션이 롤백되어 모두 취소된다.
+     * 존재하지 않는 상품은 재고를 변경하기 전에 확인하여 재고 부족과 구분한다. 상품은 home shard에만 있으므로 home shard에서 확인한다.
+     * */
+    @ShardBy(ShardKey.MEMBER_ID)
+    @Transactional
+    public Long checkout(Long memberId, List<OrderLine> lines) {
+        Map<Long, Long> quantities = new TreeMap<>();
+        for (OrderLine line : lines) {
+            if (line.getItemId() == null || line.getCount() <= 0) {
+                throw new IllegalArgumentException("주문 상품과 1개 이상의 수량이 필요합니다. itemId=" + line.getItemId());
+            }
+            quantities.merge(line.getItemId(), (long) line.getCount(), Long::sum);
+        }
+        if (quantities.isEmpty()) {
+            throw new IllegalArgumentException("주문할 상품이 없습니다.");
+        }
+
+        Set<Long> missing = shards.isSharded()
+                ? shardTemplate.executeReadOnly(Shards.HOME, () -> itemJdbcRepository.findMissingIds(quantities.keySet()))
+                : itemJdbcRepository.findMissingIds(quantities.keySet());
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + missing);
+        }
+
+        List<ItemStockDto> reservations = quantities.entrySet().stream()
+                .map(e -> new ItemStockDto(e.getKey(), e.getValue()))
+                .collect(toList());
+        String reservationKey = null;
+        if (shards.isSharded()) {
+            reservationKey = homeStockReservation.reserveAll(reservations);
+            referenceDataReplicator.replicate(shards.ofMember(memberId), memberId, quantities.keySet());
+        } else {
+            int[] updated = itemJdbcRepository.removeStocks(reservations);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] < 1) {
+                    throw new NotEnoughStockException("need more stock. itemId=" + reservations.get(i).getItemId());
+                }
+            }
+        }
+
+        Member member = memberRepository.findOne(memberId);
+        if (member == null) {
+            throw new IllegalArgumentException("존재하지 않는 회원입니다. memberId=" + memberId);
+        }
+        Map<Long, Item> items = itemRepository.findByIds(quantities.keySet()).stream()
+                .collect(toMap(Item::getId, Function.identity()));
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        delivery.setStatus(DeliveryStatus.READY);
+
+        OrderItem[] orderItems = reservations.stream()
+                .map(r -> {
+                    Item item = items.get(r.getItemId());
+                    return OrderItem.createReservedOrderItem(item, item.getPrice(), r.getQuantity().intValue());
+                })
+                .toArray(OrderItem[]::new);
+        Order order = Order.createOrder(member, delivery, orderItems);
+        order.setStockReservationKey(reservationKey);
 
         orderRepository.save(order);
+        eventPublisher.publish(new OrderPlacedEvent(order.getId(), memberId));
+        quantities.keySet().forEach(itemId -> eventPublisher.publish(ItemChangedEvent.stock(itemId)));
 
         return order.getId();
     }
 
+    /**
+     * shard를 사용하면 주문 id에 포함된 shard에서 취소하고, 커밋된 뒤 home shard의 재고를 되돌린다.
+     * 주문 shard의 상품은 복사본(home shard에서는 원본)이기 때문에 취소할 때 상품의 재고는 변경하지 않는다.
+     * 배송 상태는 배송 행을 잠근 뒤 확인하기 때문에 처리 중인 배송은 완료될 때까지 기다린다.
+     * */
+    @RetryOnOptimisticLock
+    @ShardBy(ShardKey.ORDER_ID)
     @Transactional
     public void cancelOrder(Long orderId) {
         Order order = orderRepository.findOne(orderId);
-        order.cancel();
+        deliveryRepository.lockForCancel(order.getDelivery());
+        if (shards.isSharded()) {
+            order.cancelReserved();
+            Map<Long, Integer> quantities = order.getOrderItems().stream()
+                    .collect(toMap(oi -> oi.getItem().getId(), OrderItem::getCount, Integer::sum));
+            List<String> previousKeys = order.getStockReservationKey() == null ? List.of() : List.of(order.getStockReservationKey());
+            order.setStockReservationKey(homeStockReservation.restoreAfterCommit(quantities, previousKeys));
+        } else {
+            order.cancel();
+        }
+        eventPublisher.publish(new OrderCancelledEvent(orderId));
+        order.getOrderItems().forEach(oi -> eventPublisher.publish(ItemChangedEvent.stock(oi.getItem().getId())));
+    }
+
+    /**
+     * 주문을 한건씩 조회하여 취소하면 주문마다 주문상품과 상품을 각각 로딩하게 된다.
+     * 배송 상태는 한번의 쿼리로 확인하고, 주문 상태는 벌크 연산으로 변경한 뒤
+     * 재고는 상품별로 수량을 합산하여 상품당 한번의 update로 복구한다.
+     * 취소할 수 없는 주문은 사유와 함께 결과에 포함된다.
+     * shard를 사용하면 주문 id를 shard별로 나누어 각 shard의 트랜잭션에서 취소하고, 커밋된 뒤 home shard의 재고를 되돌린다.
+     * 이 경우 shard 단위로 커밋되기 때문에 뒤의 shard에서 실패해도 앞의 shard의 취소는 유지된다.
+     * */
+    @Transactional
+    public BulkCancelResult cancelOrders(List<Long> orderIds) {
+        BulkCancelResult result = new BulkCancelResult();
+        List<Long> distinctIds = orderIds.stream().distinct().collect(toList());
+        if (distinctIds.isEmpty()) {
+            return result;
+        }
+
+        if (!shards.isSharded()) {
+            cancelOrdersOnShard(distinctIds, result);
+            return result;
+        }
+
+        Map<Integer, List<Long>> idsByShard = distinctIds.stream()
+                .collect(groupingBy(shards::ofOrder, TreeMap::new, toList()));
+        idsByShard.forEach((shard, ids) -> shardTemplate.execute(shard, () -> {
+            cancelOrdersOnShard(ids, result);
+            return null;
+        }));
+
+        return result;
+    }
+
+    private void cancelOrdersOnShard(List<Long> orderIds, BulkCancelResult result) {
+        deliveryRepository.lockByOrderIds(orderIds);
+        Map<Long, OrderCancelStatusDto> statusMap = orderRepository.findCancelStatuses(orderIds).stream()
+                .collect(toMap(OrderCancelStatusDto::getOrderId, Function.identity()));
+
+        List<Long> validIds = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            OrderCancelStatusDto status = statusMap.get(orderId);
+            if (status == null) {
+                result.failed(orderId, FailureReason.NOT_FOUND);
+            } else if (status.getOrderStatus() == OrderStatus.CANCEL) {
+                result.failed(orderId, FailureReason.ALREADY_CANCELED);
+            } else if (status.getDeliveryStatus() == DeliveryStatus.COMP) {
+                result.failed(orderId, FailureReason.DELIVERY_COMPLETED);
+            } else {
+                validIds.add(orderId);
+            }
+        }
+
+        if (validIds.isEmpty()) {
+            return;
+        }
+
+        // 확인한 뒤 다른 요청에서 취소된 주문은 잠그지 못하고, 재고는 실제로 취소한 주문의 수량만 되돌린다.
+        Set<Long> lockedIds = Set.copyOf(orderRepository.lockOrdered(validIds));
+        List<Long> cancelableIds = new ArrayList<>();
+        for (Long orderId : validIds) {
+            if (lockedIds.contains(orderId)) {
+                cancelableIds.add(orderId);
+            } else {
+                result.failed(orderId, FailureReason.ALREADY_CANCELED);
+            }
+        }
+
+        if (cancelableIds.isEmpty()) {
+            return;
+        }
+
+        List<ItemStockDto> quantities = orderRepository.findOrderedQuantities(cancelableIds);
+
+        int canceled = orderRepository.cancelAll(cancelableIds);
+        if (canceled != cancelableIds.size()) {
+            throw new IllegalStateException("잠근 주문 중 취소되지 않은 주문이 있습니다.");
+        }
+
+        if (shards.isSharded()) {
+            Map<Long, Integer> restocks = quantities.stream()
+                    .collect(toMap(ItemStockDto::getItemId, q -> q.getQuantity().intValue()));
+            String reservationKey = homeStockReservation.restoreAfterCommit(restocks, orderRepository.findStockReservationKeys(cancelableIds));
+            orderRepository.updateStockReservationKey(cancelableIds, reservationKey);
+        } else {
+            quantities.forEach(quantity -> itemRepository.addStock(quantity.getItemId(), quantity.getQuantity().intValue()));
+        }
+        quantities.forEach(quantity -> eventPublisher.publish(ItemChangedEvent.stock(quantity.getItemId())));
+
+        for (Long orderId : cancelableIds) {
+            result.canceled(orderId);
+            eventPublisher.publish(new OrderCancelledEvent(orderId));
+        }
     }
 
     public List<Order> findOrder(OrderSearch orderSearch) {
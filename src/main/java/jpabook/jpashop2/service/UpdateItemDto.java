@@ -0,0 +1,36 @@
+package jpabook.jpashop2.service;
+
+import lombok.Data;
+
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.PositiveOrZero;
+
+/**
+ * null인 필드는 변경하지 않는다. version을 전달하면 조회한 상품의 version과 다를 때 수정하지 않는다.
+ * author, isbn은 Book, artist, etc는 Album, director, actor는 Movie에만 사용할 수 있다.
+ * */
+@Data
+public class UpdateItemDto {
+    @Pattern(regexp = ".*\\S.*", message = "이름은 공백일 수 없습니다.")
+    private String name;
+
+    @PositiveOrZero
+    private Integer price;
+
+    @PositiveOrZero
+    private Integer stockQuantity;
+
+    private String author;
+
+    private String isbn;
+
+    private String artist;
+
+    private String etc;
+
+    private String director;
+
+    private String actor;
+
+    private Long version;
+}
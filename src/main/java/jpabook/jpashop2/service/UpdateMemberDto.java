@@ -0,0 +1,20 @@
+package jpabook.jpashop2.service;
+
+import lombok.Data;
+
+import javax.validation.constraints.Pattern;
+
+/**
+ * null인 필드는 변경하지 않는다.
+ * */
+@Data
+public class UpdateMemberDto {
+    @Pattern(regexp = ".*\\S.*", message = "이름은 공백일 수 없습니다.")
+    private String name;
+
+    private String city;
+
+    private String street;
+
+    private String zipcode;
+}
@@ -0,0 +1,152 @@
+package jpabook.jpashop2.sharding;
+
+import jpabook.jpashop2.deadline.RequestDeadline;
+import jpabook.jpashop2.domain.StockReservation;
+import jpabook.jpashop2.exception.NotEnoughStockException;
+import jpabook.jpashop2.repository.ItemJdbcRepository;
+import jpabook.jpashop2.repository.ItemRepository;
+import jpabook.jpashop2.repository.ItemStockDto;
+import jpabook.jpashop2.repository.OrderRepository;
+import jpabook.jpashop2.repository.StockReservationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 재고는 home shard의 상품에서만 관리한다.
+ * 주문 shard의 트랜잭션 안에서 호출되고, home shard의 변경은 별도 트랜잭션으로 먼저 커밋되기 때문에
+ * 재고 변경과 같은 home 트랜잭션에 StockReservation을 남기고, 주문 shard의 트랜잭션이 끝나면 결과에 따라 처리한다.
+ * 반환된 key는 주문의 stockReservationKey로 주문 shard의 트랜잭션과 함께 커밋되어야 한다.
+ * 처리 중 오류가 나거나 서버가 종료되어 남은 예약은 주기적으로 주문 shard에서 key를 확인하여 다시 처리한다.
+ * 트랜잭션이 끝난 뒤의 처리는 요청의 일부가 아니기 때문에 요청 기한(RequestDeadline)이 지났어도 실행한다.
+ * */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HomeStockReservation {
+    private static final int RECONCILE_LIMIT = 100;
+
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
+    private final ShardingProperties properties;
+    private final ItemRepository itemRepository;
+    private final ItemJdbcRepository itemJdbcRepository;
+    private final OrderRepository orderRepository;
+    private final StockReservationRepository stockReservationRepository;
+
+    public String reserve(Long itemId, int count) {
+        String key = UUID.randomUUID().toString();
+        int orderShard = ShardContext.currentOrHome();
+        shardTemplate.execute(Shards.HOME, () -> {
+            if (itemRepository.removeStock(itemId, count) == 0) {
+                throw new NotEnoughStockException("need more stock");
+            }
+            stockReservationRepository.save(StockReservation.create(key, itemId, count, orderShard, false));
+            return null;
+        });
+
+        resolveAfterCompletion(key);
+        return key;
+    }
+
+    /**
+     * 여러 상품의 재고를 home shard의 한 트랜잭션에서 한번의 batch로 예약한다. 하나라도 부족하면 모두 롤백된다.
+     * rows는 item id 오름차순이어야 한다.
+     * */
+    public String reserveAll(List<ItemStockDto> rows) {
+        String key = UUID.randomUUID().toString();
+        int orderShard = ShardContext.currentOrHome();
+        shardTemplate.execute(Shards.HOME, () -> {
+            int[] updated = itemJdbcRepository.removeStocks(rows);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] < 1) {
+                    throw new NotEnoughStockException("need more stock. itemId=" + rows.get(i).getItemId());
+                }
+            }
+            rows.forEach(row -> stockReservationRepository.save(
+                    StockReservation.create(key, row.getItemId(), row.getQuantity().intValue(), orderShard, false)));
+            return null;
+        });
+
+        resolveAfterCompletion(key);
+        return key;
+    }
+
+    /**
+     * 주문 취소가 커밋된 뒤 재고를 되돌린다. 되돌릴 수량은 취소 트랜잭션이 커밋되기 전에 home shard에 기록한다.
+     * 취소하는 주문의 이전 예약이 남아 있다면 주문이 커밋된 것이 확인되었으므로 함께 정리한다.
+     * quantities: item id -> 수량
+     * */
+    public String restoreAfterCommit(Map<Long, Integer> quantities, Collection<String> previousKeys) {
+        String key = UUID.randomUUID().toString();
+        int orderShard = ShardContext.currentOrHome();
+        shardTemplate.execute(Shards.HOME, () -> {
+            if (!previousKeys.isEmpty()) {
+                resolve(previousKeys, true);
+            }
+            quantities.forEach((itemId, count) -> stockReservationRepository.save(
+                    StockReservation.create(key, itemId, count, orderShard, true)));
+            return null;
+        });
+
+        resolveAfterCompletion(key);
+        return key;
+    }
+
+    /**
+     * 주문 shard의 트랜잭션보다 오래 남아 있는 예약을 주문 shard에서 확인하여 처리한다.
+     * */
+    @Scheduled(fixedDelayString = "${shop.sharding.reservation-check-millis:60000}")
+    public void reconcile() {
+        if (!shards.isSharded()) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(properties.getReservationTimeoutMillis() * 1_000_000);
+        List<Object[]> pending = shardTemplate.executeReadOnly(Shards.HOME,
+                () -> stockReservationRepository.findPendingKeys(cutoff, RECONCILE_LIMIT));
+        for (Object[] row : pending) {
+            String key = (String) row[0];
+            int orderShard = (Integer) row[1];
+            try {
+                boolean committed = shardTemplate.executeReadOnly(orderShard, () -> orderRepository.existsByStockReservationKey(key));
+                shardTemplate.execute(Shards.HOME, () -> resolve(List.of(key), committed));
+            } catch (RuntimeException e) {
+                log.warn("stock reservation reconcile failed. key={}", key, e);
+            }
+        }
+    }
+
+    private void resolveAfterCompletion(String key) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    RequestDeadline.callWith(null,
+                            () -> shardTemplate.execute(Shards.HOME, () -> resolve(List.of(key), status == STATUS_COMMITTED)));
+                } catch (RuntimeException e) {
+                    log.warn("stock reservation will be retried by reconcile. key={}", key, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 예약을 삭제하고, 차감한 재고는 롤백된 경우에, 되돌릴 재고는 커밋된 경우에 상품에 더한다.
+     * 다른 트랜잭션이 먼저 삭제한 예약은 건너뛴다. home shard의 트랜잭션 안에서 호출되어야 한다.
+     * */
+    private Void resolve(Collection<String> keys, boolean committed) {
+        for (StockReservation reservation : stockReservationRepository.findByKeys(keys)) {
+            if (stockReservationRepository.delete(reservation.getId()) == 1 && reservation.isRestock() == committed) {
+                itemRepository.addStock(reservation.getItemId(), reservation.getQuantity());
+            }
+        }
+        return null;
+    }
+}
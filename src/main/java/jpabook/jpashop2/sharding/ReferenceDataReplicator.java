@@ -0,0 +1,109 @@
+package jpabook.jpashop2.sharding;
+
+import jpabook.jpashop2.event.DomainEvent;
+import jpabook.jpashop2.event.DomainEventHandler;
+import jpabook.jpashop2.event.ItemChangedEvent;
+import jpabook.jpashop2.event.MemberUpdatedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 회원과 상품의 원본은 home shard에 있고, 주문이 저장되는 shard에는 조인을 위한 복사본을 둔다.
+ * 주문을 저장하기 전에 필요한 회원/상품 행을 복사하고, 이후 변경은 이벤트로 이미 복사된 행에만 반영한다.
+ * 복사본의 재고는 사용하지 않는다. 재고는 home shard에서만 변경한다(HomeStockReservation).
+ * */
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataReplicator implements DomainEventHandler {
+    private final Shards shards;
+    private final ShardTemplate shardTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    public void replicate(int shard, Long memberId, Collection<Long> itemIds) {
+        if (shard == Shards.HOME) {
+            return;
+        }
+
+        List<Map<String, Object>> members = shardTemplate.executeReadOnly(Shards.HOME, () -> findRows("member", "member_id", List.of(memberId)));
+        List<Map<String, Object>> items = shardTemplate.executeReadOnly(Shards.HOME, () -> findRows("item", "item_id", itemIds));
+
+        shardTemplate.execute(shard, () -> {
+            members.forEach(row -> upsert("member", "member_id", row, true));
+            items.forEach(row -> upsert("item", "item_id", row, true));
+            return null;
+        });
+    }
+
+    @Override
+    public void handle(List<DomainEvent> events) {
+        if (!shards.isSharded()) {
+            return;
+        }
+
+        Set<Long> memberIds = new LinkedHashSet<>();
+        Set<Long> itemIds = new LinkedHashSet<>();
+        for (DomainEvent event : events) {
+            if (event instanceof MemberUpdatedEvent) {
+                memberIds.add(event.getKey());
+            } else if (event instanceof ItemChangedEvent) {
+                itemIds.add(event.getKey());
+            }
+        }
+        if (memberIds.isEmpty() && itemIds.isEmpty()) {
+            return;
+        }
+
+        List<Map<String, Object>> members = shardTemplate.executeReadOnly(Shards.HOME, () -> findRows("member", "member_id", memberIds));
+        List<Map<String, Object>> items = shardTemplate.executeReadOnly(Shards.HOME, () -> findRows("item", "item_id", itemIds));
+
+        for (int shard = Shards.HOME + 1; shard < shards.count(); shard++) {
+            shardTemplate.execute(shard, () -> {
+                members.forEach(row -> upsert("member", "member_id", row, false));
+                items.forEach(row -> upsert("item", "item_id", row, false));
+                return null;
+            });
+        }
+    }
+
+    private List<Map<String, Object>> findRows(String table, String idColumn, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        return new NamedParameterJdbcTemplate(jdbcTemplate).queryForList(
+                "select * from " + table + " where " + idColumn + " in (:ids)", new MapSqlParameterSource("ids", ids));
+    }
+
+    /**
+     * id로 update 하고, 행이 없으면 insertMissing 일 때만 insert 한다.
+     * */
+    private void upsert(String table, String idColumn, Map<String, Object> row, boolean insertMissing) {
+        List<String> columns = row.keySet().stream()
+                .filter(c -> !c.equalsIgnoreCase(idColumn))
+                .collect(Collectors.toList());
+        Object id = row.entrySet().stream()
+                .filter(e -> e.getKey().equalsIgnoreCase(idColumn))
+                .findFirst()
+                .orElseThrow()
+                .getValue();
+
+        List<Object> updateArgs = columns.stream().map(row::get).collect(Collectors.toCollection(ArrayList::new));
+        updateArgs.add(id);
+        int updated = jdbcTemplate.update("update " + table + " set " +
+                        columns.stream().map(c -> c + " = ?").collect(Collectors.joining(", ")) +
+                        " where " + idColumn + " = ?",
+                updateArgs.toArray());
+
+        if (updated == 0 && insertMissing) {
+            jdbcTemplate.update("insert into " + table + " (" + String.join(", ", row.keySet()) + ")" +
+                            " values (" + row.keySet().stream().map(c -> "?").collect(Collectors.joining(", ")) + ")",
+                    row.values().toArray());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package jpabook.jpashop2.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 첫번째 파라미터(Long)를 shard key로 사용하여 메서드 전체를 해당 shard에서 실행한다.
+ * 트랜잭션이 시작되기 전에 shard가 정해져야 하기 때문에 @Transactional 메서드에 함께 선언한다.
+ * */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardBy {
+    ShardKey value();
+}
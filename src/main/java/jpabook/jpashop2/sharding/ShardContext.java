@@ -0,0 +1,49 @@
+package jpabook.jpashop2.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * 현재 스레드가 사용할 shard. 트랜잭션이 시작되어 커넥션을 얻기 전에 설정되어야 한다.
+ * 설정되지 않았으면 home shard를 사용한다.
+ * */
+public final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public static int currentOrHome() {
+        Integer shard = CURRENT.get();
+        return shard == null ? Shards.HOME : shard;
+    }
+
+    public static <T> T callOn(int shard, Supplier<T> task) {
+        Integer previous = enter(shard);
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * shard를 설정하고 이전 값을 반환한다. 반드시 restore로 되돌려야 한다.
+     * */
+    static Integer enter(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
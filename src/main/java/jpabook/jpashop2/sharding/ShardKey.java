@@ -0,0 +1,5 @@
+package jpabook.jpashop2.sharding;
+
+public enum ShardKey {
+    MEMBER_ID, ORDER_ID
+}
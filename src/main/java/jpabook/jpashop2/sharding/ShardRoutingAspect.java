@@ -0,0 +1,52 @@
+package jpabook.jpashop2.sharding;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 트랜잭션 advisor와 낙관적 락 재시도(LOWEST_PRECEDENCE - 1)보다 먼저 실행되어
+ * 재시도를 포함한 모든 트랜잭션이 같은 shard의 커넥션을 사용하게 한다.
+ * OSIV로 요청에 묶인 EntityManager는 이미 다른 shard의 커넥션을 가지고 있을 수 있기 때문에 호출 동안 분리해 둔다.
+ * */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 2)
+@RequiredArgsConstructor
+public class ShardRoutingAspect {
+    private final Shards shards;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Around("@annotation(shardBy)")
+    public Object route(ProceedingJoinPoint joinPoint, ShardBy shardBy) throws Throwable {
+        if (!shards.isSharded()) {
+            return joinPoint.proceed();
+        }
+
+        Long key = (Long) joinPoint.getArgs()[0];
+        int shard = shardBy.value() == ShardKey.MEMBER_ID ? shards.ofMember(key) : shards.ofOrder(key);
+
+        if (TransactionSynchronizationManager.isActualTransactionActive() && ShardContext.currentOrHome() != shard) {
+            throw new IllegalStateException("다른 shard의 트랜잭션 안에서 호출할 수 없습니다. shard=" + shard);
+        }
+
+        Object openInView = TransactionSynchronizationManager.isActualTransactionActive()
+                ? null : TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+        Integer previous = ShardContext.enter(shard);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ShardContext.restore(previous);
+            if (openInView != null) {
+                TransactionSynchronizationManager.bindResource(entityManagerFactory, openInView);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package jpabook.jpashop2.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * 커넥션을 얻는 시점의 ShardContext로 shard의 DataSource를 선택한다.
+ * */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.currentOrHome();
+    }
+
+    /**
+     * 빈이 종료될 때 각 shard의 커넥션 풀을 닫는다.
+     * */
+    public void close() throws Exception {
+        for (DataSource dataSource : getResolvedDataSources().values()) {
+            if (dataSource instanceof AutoCloseable) {
+                ((AutoCloseable) dataSource).close();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package jpabook.jpashop2.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.hbm2ddl.SchemaExport;
+import org.hibernate.tool.schema.TargetType;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.util.EnumSet;
+
+/**
+ * ddl-auto(create)는 home shard에만 적용되기 때문에 같은 매핑으로 나머지 shard의 스키마도 생성한다.
+ * 운영 환경처럼 ddl-auto를 사용하지 않으면 각 shard의 스키마는 별도로 준비해야 한다.
+ * */
+@Slf4j
+public class ShardSchemaExporter implements Integrator, SmartInitializingSingleton {
+    private final Shards shards;
+
+    private final String ddlAuto;
+
+    private volatile Metadata metadata;
+
+    public ShardSchemaExporter(Shards shards, String ddlAuto) {
+        this.shards = shards;
+        this.ddlAuto = ddlAuto;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        this.metadata = metadata;
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (metadata == null || !ddlAuto.startsWith("create")) {
+            return;
+        }
+
+        for (int shard = Shards.HOME + 1; shard < shards.count(); shard++) {
+            ShardContext.callOn(shard, () -> {
+                new SchemaExport().create(EnumSet.of(TargetType.DATABASE), metadata);
+                return null;
+            });
+            log.info("shard schema created. shard={}", shard);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package jpabook.jpashop2.sharding;
+
+import jpabook.jpashop2.deadline.RequestDeadline;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 지정한 shard에서 새 트랜잭션으로 작업을 실행한다.
+ * 트랜잭션 밖(OSIV)에서 호출되면 요청에 묶인 EntityManager가 다른 shard의 커넥션을 사용하지 않도록 실행 동안 분리해 둔다.
+ * gather는 모든 shard에서 같은 조회를 동시에 실행한 뒤, 각 shard에서 정렬된 결과를 하나의 정렬된 목록으로 합친다.
+ * */
+@Component
+@RequiredArgsConstructor
+public class ShardTemplate {
+    private final Shards shards;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private ExecutorService executor;
+
+    public <T> T execute(int shard, Supplier<T> task) {
+        return execute(shard, false, task);
+    }
+
+    public <T> T executeReadOnly(int shard, Supplier<T> task) {
+        return execute(shard, true, task);
+    }
+
+    /**
+     * 조회 결과는 shard의 트랜잭션이 끝난 뒤 반환되기 때문에 엔티티를 조회한다면 필요한 연관관계를 query 안에서 초기화해야 한다.
+     * 요청의 처리 기한은 각 shard의 조회에도 그대로 적용된다.
+     * */
+    public <T> List<T> gather(Supplier<List<T>> query, Comparator<? super T> order) {
+        RequestDeadline deadline = RequestDeadline.current();
+        List<Future<List<T>>> futures = new ArrayList<>();
+        for (int shard = 0; shard < shards.count(); shard++) {
+            int target = shard;
+            futures.add(executor().submit(() -> RequestDeadline.callWith(deadline, () -> executeReadOnly(target, query))));
+        }
+
+        List<List<T>> results = new ArrayList<>();
+        try {
+            for (Future<List<T>> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("shard 조회가 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+
+        return merge(results, order);
+    }
+
+    /**
+     * 주문 id를 저장된 shard별로 나누어 각 shard에서 조회한 결과를 합친다. 결과는 shard 순서로 이어진다.
+     * */
+    public <T> List<T> gatherByOrderIds(Collection<Long> orderIds, Function<List<Long>, List<T>> query) {
+        Map<Integer, List<Long>> idsByShard = new TreeMap<>();
+        for (Long orderId : orderIds) {
+            idsByShard.computeIfAbsent(shards.ofOrder(orderId), s -> new ArrayList<>()).add(orderId);
+        }
+
+        List<T> results = new ArrayList<>();
+        idsByShard.forEach((shard, ids) -> results.addAll(executeReadOnly(shard, () -> query.apply(ids))));
+        return results;
+    }
+
+    static <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> order) {
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>((a, b) -> order.compare(a.current(), b.current()));
+        int size = 0;
+        for (List<T> list : sortedLists) {
+            size += list.size();
+            if (!list.isEmpty()) {
+                heads.add(new Cursor<>(list));
+            }
+        }
+
+        List<T> merged = new ArrayList<>(size);
+        while (!heads.isEmpty()) {
+            Cursor<T> head = heads.poll();
+            merged.add(head.current());
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+
+        return merged;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> T execute(int shard, boolean readOnly, Supplier<T> task) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(readOnly);
+
+        Object openInView = TransactionSynchronizationManager.isActualTransactionActive()
+                ? null : TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+        try {
+            return ShardContext.callOn(shard, () -> transactionTemplate.execute(status -> task.get()));
+        } finally {
+            if (openInView != null) {
+                TransactionSynchronizationManager.bindResource(entityManagerFactory, openInView);
+            }
+        }
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(shards.count(), r -> {
+                Thread thread = new Thread(r, "shard-gather");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return executor;
+    }
+
+    private static class Cursor<T> {
+        private final List<T> list;
+
+        private int index;
+
+        Cursor(List<T> list) {
+            this.list = list;
+        }
+
+        T current() {
+            return list.get(index);
+        }
+
+        boolean advance() {
+            return ++index < list.size();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package jpabook.jpashop2.sharding;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+/**
+ * shard 마다 시퀀스가 따로 있기 때문에 시퀀스 값 * MAX_SHARDS + shard 번호를 id로 사용한다.
+ * shard 간에 id가 겹치지 않고, id만으로 주문이 저장된 shard를 알 수 있다.
+ * shard를 사용하지 않으면 시퀀스 값을 그대로 사용한다.
+ * */
+public class ShardedSequenceGenerator extends SequenceStyleGenerator {
+    public static final String SHARD_COUNT = "jpashop.sharding.shard_count";
+
+    private boolean sharded;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        super.configure(type, params, serviceRegistry);
+        Object shardCount = serviceRegistry.getService(ConfigurationService.class).getSettings().get(SHARD_COUNT);
+        sharded = shardCount != null && Integer.parseInt(shardCount.toString()) > 1;
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        Long value = (Long) super.generate(session, object);
+        if (!sharded) {
+            return value;
+        }
+
+        return value * Shards.MAX_SHARDS + ShardContext.currentOrHome();
+    }
+}
@@ -0,0 +1,58 @@
+package jpabook.jpashop2.sharding;
+
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * shop.sharding.enabled=true 이면 spring.datasource 대신 shop.sharding.shards의 DataSource를 ShardContext로 선택한다.
+ * */
+@Configuration
+@ConditionalOnProperty(name = "shop.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+    @Bean
+    public DataSource dataSource(ShardingProperties properties) {
+        List<ShardingProperties.Shard> shards = properties.getShards();
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("shop.sharding.shards가 설정되지 않았습니다.");
+        }
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            ShardingProperties.Shard shard = shards.get(i);
+            targets.put(i, DataSourceBuilder.create()
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build());
+        }
+
+        ShardRoutingDataSource dataSource = new ShardRoutingDataSource();
+        dataSource.setTargetDataSources(targets);
+        dataSource.setDefaultTargetDataSource(targets.get(Shards.HOME));
+        return dataSource;
+    }
+
+    @Bean
+    public ShardSchemaExporter shardSchemaExporter(Shards shards,
+                                                   @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto) {
+        return new ShardSchemaExporter(shards, ddlAuto);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardingHibernateProperties(Shards shards, ShardSchemaExporter shardSchemaExporter) {
+        return properties -> {
+            properties.put(ShardedSequenceGenerator.SHARD_COUNT, shards.count());
+            properties.put("hibernate.integrator_provider", (IntegratorProvider) () -> List.of(shardSchemaExporter));
+        };
+    }
+}
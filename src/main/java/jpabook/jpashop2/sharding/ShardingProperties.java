@@ -0,0 +1,42 @@
+package jpabook.jpashop2.sharding;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shop.sharding")
+public class ShardingProperties {
+    /**
+     * false 이면 spring.datasource 하나만 사용한다.
+     * */
+    private boolean enabled = false;
+
+    /**
+     * 첫번째 shard가 회원/상품의 원본과 재고를 보관하는 home shard.
+     * shard 수는 최대 Shards.MAX_SHARDS 까지이고, 주문이 저장된 뒤에는 변경할 수 없다.
+     * */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * 이 시간보다 오래 남아 있는 재고 예약은 주문 트랜잭션이 끝난 것으로 보고 주문 shard에서 확인하여 처리한다.
+     * 주문 트랜잭션의 최대 실행 시간보다 길어야 한다.
+     * */
+    private long reservationTimeoutMillis = 60_000;
+
+    @Getter
+    @Setter
+    public static class Shard {
+        private String url;
+
+        private String username;
+
+        private String password;
+    }
+}
@@ -0,0 +1,39 @@
+package jpabook.jpashop2.sharding;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 회원 id의 hash로 주문이 저장될 shard를 정한다.
+ * 주문 id에는 생성된 shard 번호가 포함되어 있어(ShardedSequenceGenerator) 주문 id만으로 shard를 찾는다.
+ * */
+@Component
+public class Shards {
+    public static final int HOME = 0;
+
+    public static final int MAX_SHARDS = 64;
+
+    private final int count;
+
+    public Shards(ShardingProperties properties) {
+        this.count = properties.isEnabled() ? Math.max(1, properties.getShards().size()) : 1;
+        if (count > MAX_SHARDS) {
+            throw new IllegalArgumentException("shard는 최대 " + MAX_SHARDS + "개 까지 설정할 수 있습니다.");
+        }
+    }
+
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int ofMember(Long memberId) {
+        return Math.floorMod(Long.hashCode(memberId * 0x9E3779B97F4A7C15L), count);
+    }
+
+    public int ofOrder(Long orderId) {
+        return isSharded() ? (int) Math.floorMod(orderId, (long) MAX_SHARDS) : HOME;
+    }
+}
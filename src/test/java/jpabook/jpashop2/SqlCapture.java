@@ -0,0 +1,46 @@
+package jpabook.jpashop2;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 테스트에서 실행된 SQL을 기록하여 쿼리 수와 update 되는 컬럼을 검증하기 위해 사용한다.
+ * test/resources/application.yml의 hibernate.session_factory.statement_inspector로 등록.
+ * */
+public class SqlCapture implements StatementInspector {
+    private static final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public String inspect(String sql) {
+        statements.add(sql);
+        return sql;
+    }
+
+    public static void clear() {
+        statements.clear();
+    }
+
+    public static List<String> statements() {
+        synchronized (statements) {
+            return new ArrayList<>(statements);
+        }
+    }
+
+    public static long count(String prefix) {
+        return statements().stream()
+                .filter(sql -> sql.trim().toLowerCase().startsWith(prefix))
+                .count();
+    }
+
+    /**
+     * update 문의 set 절에 포함된 컬럼 수.
+     * */
+    public static int updatedColumns(String sql) {
+        String lower = sql.toLowerCase();
+        String set = lower.substring(lower.indexOf(" set ") + 5, lower.indexOf(" where "));
+        return set.split(",").length;
+    }
+}
@@ -0,0 +1,102 @@
+package jpabook.jpashop2.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest(properties = {
+        "shop.admission.enabled=true",
+        "shop.admission.bucket-capacity=40",
+        "shop.admission.refill-per-second=0.01"
+})
+@AutoConfigureMockMvc
+class AdmissionControlInterceptorTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void rateLimitPerClient() throws Exception {
+        Assertions.assertEquals(200, call("/api/v4/orders", "10.0.0.1", null).getStatus());
+        Assertions.assertEquals(200, call("/api/v4/orders", "10.0.0.1", null).getStatus());
+
+        MockHttpServletResponse rejected = call("/api/v4/orders", "10.0.0.1", null);
+        Assertions.assertEquals(429, rejected.getStatus());
+        Assertions.assertNotNull(rejected.getHeader("Retry-After"));
+        Assertions.assertEquals(429, call("/api/orders/history?memberId=1", "10.0.0.1", null).getStatus());
+
+        Assertions.assertEquals(200, call("/api/orders/history?memberId=1", "10.0.0.2", null).getStatus());
+        Assertions.assertTrue(meterRegistry.counter("admission.rejected", "class", "expensive", "reason", "rate_limit").count() >= 1);
+    }
+
+    @Test
+    public void rotatingClientHeaderDoesNotResetBucket() throws Exception {
+        Assertions.assertEquals(200, call("/api/v4/orders", "10.0.0.3", "a").getStatus());
+        Assertions.assertEquals(200, call("/api/v4/orders", "10.0.0.3", "b").getStatus());
+        Assertions.assertEquals(429, call("/api/v4/orders", "10.0.0.3", "c").getStatus());
+    }
+
+    @Test
+    public void tokensAreRefundedWhenConcurrencyLimitRejects() throws Exception {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setBucketCapacity(2);
+        properties.setRefillPerSecond(0.0001);
+        properties.setClasses(Map.of(CostClass.CHEAP, new AdmissionProperties.ClassLimit(1d, 1, 0, 0L)));
+        AdmissionControlInterceptor interceptor = new AdmissionControlInterceptor(properties, new SimpleMeterRegistry());
+        HandlerMethod handler = new HandlerMethod(new Object(), Object.class.getMethod("toString"));
+
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        Assertions.assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), handler));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        Assertions.assertFalse(interceptor.preHandle(new MockHttpServletRequest(), rejected, handler));
+        Assertions.assertEquals(429, rejected.getStatus());
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), handler, null);
+        Assertions.assertTrue(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handler));
+    }
+
+    @Test
+    public void partialClassLimitUsesDefaults() throws Exception {
+        AdmissionProperties.ClassLimit partial = new AdmissionProperties.ClassLimit();
+        partial.setTokens(2d);
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setClasses(Map.of(CostClass.CHEAP, partial));
+
+        AdmissionProperties.ClassLimit limit = properties.limitOf(CostClass.CHEAP);
+
+        Assertions.assertEquals(2d, limit.getTokens());
+        Assertions.assertEquals(200, limit.getMaxConcurrent());
+        Assertions.assertEquals(100, limit.getQueueSize());
+        Assertions.assertEquals(4, properties.limitOf(CostClass.EXPENSIVE).getMaxConcurrent());
+
+        partial.setMaxConcurrent(0);
+        Assertions.assertThrows(IllegalStateException.class, () -> properties.limitOf(CostClass.CHEAP));
+    }
+
+    private MockHttpServletResponse call(String url, String remoteAddr, String clientHeader) throws Exception {
+        return mockMvc.perform(get(url)
+                        .with(request -> {
+                            request.setRemoteAddr(remoteAddr);
+                            if (clientHeader != null) {
+                                request.addHeader("X-Client-Id", clientHeader);
+                            }
+                            return request;
+                        }))
+                .andReturn().getResponse();
+    }
+}
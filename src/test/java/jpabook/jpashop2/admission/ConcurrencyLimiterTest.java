@@ -0,0 +1,61 @@
+package jpabook.jpashop2.admission;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ConcurrencyLimiterTest {
+    @Test
+    public void rejectWhenQueueFull() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1000);
+        Assertions.assertEquals(ConcurrencyLimiter.Result.ADMITTED, limiter.acquire());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<ConcurrencyLimiter.Result> queued = executor.submit(limiter::acquire);
+            while (limiter.queueDepth() == 0) {
+                Thread.sleep(1);
+            }
+
+            long start = System.nanoTime();
+            Assertions.assertEquals(ConcurrencyLimiter.Result.QUEUE_FULL, limiter.acquire());
+            Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+
+            limiter.release();
+            Assertions.assertEquals(ConcurrencyLimiter.Result.ADMITTED, queued.get(1, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, limiter.inFlight());
+            Assertions.assertEquals(0, limiter.queueDepth());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void rejectAfterQueueTimeout() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 10, 10);
+        limiter.acquire();
+
+        Assertions.assertEquals(ConcurrencyLimiter.Result.QUEUE_TIMEOUT, limiter.acquire());
+        Assertions.assertEquals(0, limiter.queueDepth());
+    }
+
+    @Test
+    public void tokenBucketRefill() throws Exception {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(10, 2, now::get);
+
+        Assertions.assertTrue(bucket.tryConsume(10));
+        Assertions.assertFalse(bucket.tryConsume(1));
+        Assertions.assertEquals(3, bucket.secondsUntil(5));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        Assertions.assertTrue(bucket.tryConsume(5));
+        Assertions.assertFalse(bucket.tryConsume(2));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(100));
+        Assertions.assertTrue(bucket.tryConsume(10));
+        Assertions.assertFalse(bucket.tryConsume(1));
+    }
+}
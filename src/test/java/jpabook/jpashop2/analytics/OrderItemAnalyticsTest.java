@@ -0,0 +1,133 @@
+package jpabook.jpashop2.analytics;
+
+import jpabook.jpashop2.domain.OrderStatus;
+import jpabook.jpashop2.event.OrderCancelledEvent;
+import jpabook.jpashop2.repository.OrderItemFactRepository;
+import jpabook.jpashop2.sharding.ShardTemplate;
+import jpabook.jpashop2.sharding.ShardingProperties;
+import jpabook.jpashop2.sharding.Shards;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+class OrderItemAnalyticsTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Test
+    public void groupAndFilter() throws Exception {
+        OrderItemStore store = new OrderItemStore();
+        int seoul = store.cityCode("서울");
+        int busan = store.cityCode("부산");
+
+        // 주문마다 상품 2개, 한 시간 간격. 20만 행이 넘도록 만들어 fork-join으로 나누어 집계되게 한다.
+        int orders = 100_000;
+        OrderItemColumns columns = new OrderItemColumns();
+        for (long orderId = 1; orderId <= orders; orderId++) {
+            long time = OrderItemAnalytics.epochSecond(BASE.plusHours(orderId - 1));
+            int city = orderId % 2 == 0 ? seoul : busan;
+            columns.add(orderId, 1, orderId % 10, 1000, 1, time, (byte) OrderStatus.ORDER.ordinal(), city);
+            columns.add(orderId, 2, orderId % 10, 500, 2, time, (byte) OrderStatus.ORDER.ordinal(), city);
+        }
+        Assertions.assertEquals(orders * 2, store.append(columns));
+
+        OrderItemAnalytics analytics = new OrderItemAnalytics(store);
+
+        OrderItemQuery all = new OrderItemQuery();
+        OrderItemQueryResult total = analytics.query(all);
+        Assertions.assertEquals(orders * 2, total.getMatchedRows());
+        Assertions.assertEquals(orders * 2000L, total.getGroups().get(0).getRevenue());
+
+        OrderItemQuery byItem = new OrderItemQuery();
+        byItem.setGroupBy(GroupBy.ITEM);
+        List<OrderItemAggregate> items = analytics.query(byItem).getGroups();
+        Assertions.assertEquals(List.of("1", "2"), keys(items));
+        Assertions.assertEquals(orders, items.get(0).getQuantity());
+        Assertions.assertEquals(orders * 2L, items.get(1).getQuantity());
+
+        OrderItemQuery byCity = new OrderItemQuery();
+        byCity.setGroupBy(GroupBy.CITY);
+        byCity.setFrom(BASE);
+        byCity.setTo(BASE.plusHours(10));
+        List<OrderItemAggregate> cities = analytics.query(byCity).getGroups();
+        Assertions.assertEquals(List.of("부산", "서울"), keys(cities));
+        Assertions.assertEquals(5 * 2000L, cities.get(0).getRevenue());
+
+        OrderItemQuery byHour = new OrderItemQuery();
+        byHour.setGroupBy(GroupBy.HOUR);
+        byHour.setMemberId(3L);
+        byHour.setItemId(2L);
+        List<OrderItemAggregate> hours = analytics.query(byHour).getGroups();
+        Assertions.assertEquals(12, hours.size());
+        Assertions.assertEquals(orders / 10, hours.stream().mapToLong(OrderItemAggregate::getLines).sum());
+    }
+
+    @Test
+    public void appendOnceAndCancel() throws Exception {
+        OrderItemStore store = new OrderItemStore();
+        OrderItemColumns columns = new OrderItemColumns();
+        long time = OrderItemAnalytics.epochSecond(BASE);
+        columns.add(1, 1, 1, 1000, 1, time, (byte) OrderStatus.ORDER.ordinal(), -1);
+        columns.add(1, 2, 1, 2000, 1, time, (byte) OrderStatus.ORDER.ordinal(), -1);
+        columns.add(2, 1, 2, 1000, 3, time, (byte) OrderStatus.ORDER.ordinal(), -1);
+
+        Assertions.assertEquals(3, store.append(columns));
+        Assertions.assertEquals(0, store.append(columns));
+        Assertions.assertTrue(store.updateStatus(1, OrderStatus.CANCEL));
+        Assertions.assertFalse(store.updateStatus(3, OrderStatus.CANCEL));
+
+        OrderItemQuery query = new OrderItemQuery();
+        query.setStatus(OrderStatus.ORDER);
+        query.setGroupBy(GroupBy.MEMBER);
+        OrderItemQueryResult result = new OrderItemAnalytics(store).query(query);
+
+        Assertions.assertEquals(3, result.getScannedRows());
+        Assertions.assertEquals(List.of("2"), keys(result.getGroups()));
+        Assertions.assertEquals(3000L, result.getGroups().get(0).getRevenue());
+    }
+
+    /**
+     * 취소 이벤트의 주문을 다시 읽는 사이에 적재 스레드가 취소 전에 읽은 행을 먼저 추가해도 취소 상태가 남는다.
+     * */
+    @Test
+    public void cancelDuringLoadIsNotLost() throws Exception {
+        OrderItemStore store = new OrderItemStore();
+        long time = OrderItemAnalytics.epochSecond(BASE);
+        OrderItemFactRepository facts = new OrderItemFactRepository(null) {
+            @Override
+            public OrderItemColumns findByOrderIds(List<Long> orderIds, ToIntFunction<String> cityCodes) {
+                OrderItemColumns loaded = new OrderItemColumns();
+                loaded.add(1, 1, 1, 1000, 1, time, (byte) OrderStatus.ORDER.ordinal(), -1);
+                store.append(loaded);
+
+                OrderItemColumns reread = new OrderItemColumns();
+                reread.add(1, 1, 1, 1000, 1, time, (byte) OrderStatus.CANCEL.ordinal(), -1);
+                return reread;
+            }
+        };
+        Shards shards = new Shards(new ShardingProperties());
+        ShardTemplate shardTemplate = new ShardTemplate(shards, null, null) {
+            @Override
+            public <T> T executeReadOnly(int shard, Supplier<T> task) {
+                return task.get();
+            }
+        };
+
+        new OrderItemAnalyticsLoader(store, facts, shards, shardTemplate).handle(List.of(new OrderCancelledEvent(1L)));
+
+        OrderItemQuery query = new OrderItemQuery();
+        query.setStatus(OrderStatus.CANCEL);
+        OrderItemQueryResult result = new OrderItemAnalytics(store).query(query);
+
+        Assertions.assertEquals(1, result.getScannedRows());
+        Assertions.assertEquals(1, result.getMatchedRows());
+    }
+
+    private static List<String> keys(List<OrderItemAggregate> groups) {
+        return groups.stream().map(OrderItemAggregate::getKey).collect(Collectors.toList());
+    }
+}
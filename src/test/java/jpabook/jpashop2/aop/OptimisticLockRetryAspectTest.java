@@ -0,0 +1,77 @@
+package jpabook.jpashop2.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SpringBootTest
+class OptimisticLockRetryAspectTest {
+    @Autowired
+    ConflictingService conflictingService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void retryUntilSuccess() throws Exception {
+        conflictingService.reset(2);
+        double before = retries();
+
+        Assertions.assertEquals(3, conflictingService.update());
+        Assertions.assertEquals(2, retries() - before);
+    }
+
+    @Test
+    public void retryExhausted() throws Exception {
+        conflictingService.reset(5);
+
+        Assertions.assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> conflictingService.update());
+        Assertions.assertEquals(3, conflictingService.attempts.get());
+    }
+
+    private double retries() {
+        return meterRegistry.find("optimistic.lock.retries").counters().stream()
+                .filter(c -> c.getId().getTag("method").contains("ConflictingService.update"))
+                .mapToDouble(c -> c.count())
+                .sum();
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ConflictingService conflictingService() {
+            return new ConflictingService();
+        }
+    }
+
+    static class ConflictingService {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        int conflicts;
+
+        void reset(int conflicts) {
+            this.conflicts = conflicts;
+            attempts.set(0);
+        }
+
+        @RetryOnOptimisticLock(backoffMillis = 1)
+        @Transactional
+        public int update() {
+            int attempt = attempts.incrementAndGet();
+            if (attempt <= conflicts) {
+                throw new ObjectOptimisticLockingFailureException(Object.class, 1L);
+            }
+
+            return attempt;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package jpabook.jpashop2.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop2.deadline.RequestDeadline;
+import jpabook.jpashop2.deadline.RequestDeadlines;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@SpringBootTest
+class SingleFlightAspectTest {
+    private static final int CALLERS = 8;
+
+    @Autowired
+    SlowQuery slowQuery;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    RequestDeadlines requestDeadlines;
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        slowQuery.reset();
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> slowQuery.find("a")));
+            }
+            while (slowQuery.started.get() == 0) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(100);
+            slowQuery.release.countDown();
+
+            for (Future<Integer> result : results) {
+                Assertions.assertEquals(1, result.get(5, TimeUnit.SECONDS));
+            }
+            Assertions.assertEquals(1, slowQuery.executions.get());
+            Assertions.assertTrue(meterRegistry.find("singleflight.coalescing.ratio").gauges().stream()
+                    .filter(g -> g.getId().getTag("method").contains("SlowQuery.find"))
+                    .anyMatch(g -> g.value() > 0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void differentParametersRunSeparately() throws Exception {
+        slowQuery.reset();
+        slowQuery.release.countDown();
+
+        slowQuery.find("a");
+        slowQuery.find("b");
+        slowQuery.find("a");
+
+        Assertions.assertEquals(3, slowQuery.executions.get());
+    }
+
+    @Test
+    public void reuseWithinTtl() throws Exception {
+        slowQuery.reset();
+        slowQuery.release.countDown();
+
+        slowQuery.findCached("a");
+        slowQuery.findCached("a");
+
+        Assertions.assertEquals(1, slowQuery.executions.get());
+    }
+
+    @Test
+    public void sharedListIsUnmodifiable() throws Exception {
+        slowQuery.reset();
+        slowQuery.release.countDown();
+
+        List<String> first = slowQuery.findList("a");
+        List<String> second = slowQuery.findList("a");
+
+        Assertions.assertSame(first, second);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> first.add("b"));
+        Assertions.assertEquals(List.of("a"), slowQuery.findList("a"));
+    }
+
+    @Test
+    public void interruptedWaiterKeepsInterruptFlag() throws Exception {
+        slowQuery.reset();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> leader = executor.submit(() -> slowQuery.find("c"));
+            while (slowQuery.started.get() == 0) {
+                Thread.sleep(1);
+            }
+
+            Future<Boolean> waiter = executor.submit(() -> {
+                Thread.currentThread().interrupt();
+                try {
+                    slowQuery.find("c");
+                    return false;
+                } catch (IllegalStateException e) {
+                    return Thread.currentThread().isInterrupted();
+                }
+            });
+
+            Assertions.assertTrue(waiter.get(5, TimeUnit.SECONDS));
+            slowQuery.release.countDown();
+            Assertions.assertEquals(1, leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void clientDeadlineDoesNotLeadSharedExecution() throws Exception {
+        slowQuery.reset();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> shortClient = executor.submit(() -> {
+                RequestDeadline deadline = requestDeadlines.start("GET /test/short", "client", 5_000);
+                try {
+                    return slowQuery.find("d");
+                } finally {
+                    requestDeadlines.finish(deadline);
+                }
+            });
+            while (slowQuery.started.get() == 0) {
+                Thread.sleep(1);
+            }
+
+            Future<Integer> other = executor.submit(() -> slowQuery.find("d"));
+            while (slowQuery.started.get() < 2) {
+                Thread.sleep(1);
+            }
+            slowQuery.release.countDown();
+
+            shortClient.get(5, TimeUnit.SECONDS);
+            other.get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(2, slowQuery.executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void waiterStopsAtOwnDeadline() throws Exception {
+        slowQuery.reset();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> leader = executor.submit(() -> slowQuery.find("e"));
+            while (slowQuery.started.get() == 0) {
+                Thread.sleep(1);
+            }
+
+            Future<Long> waiter = executor.submit(() -> {
+                long start = System.currentTimeMillis();
+                RequestDeadline deadline = requestDeadlines.start("GET /test/waiter", "endpoint", 100);
+                try {
+                    Assertions.assertThrows(QueryTimeoutException.class, () -> slowQuery.find("e"));
+                } finally {
+                    requestDeadlines.finish(deadline);
+                }
+                return System.currentTimeMillis() - start;
+            });
+
+            Assertions.assertTrue(waiter.get(5, TimeUnit.SECONDS) < 2_000);
+            slowQuery.release.countDown();
+            Assertions.assertEquals(1, leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        SlowQuery slowQuery() {
+            return new SlowQuery();
+        }
+    }
+
+    static class SlowQuery {
+        final AtomicInteger started = new AtomicInteger();
+
+        final AtomicInteger executions = new AtomicInteger();
+
+        volatile CountDownLatch release;
+
+        void reset() {
+            started.set(0);
+            executions.set(0);
+            release = new CountDownLatch(1);
+        }
+
+        @Coalesce
+        public int find(String param) throws InterruptedException {
+            started.incrementAndGet();
+            release.await();
+            return executions.incrementAndGet();
+        }
+
+        @Coalesce(ttlMillis = 60_000)
+        public List<String> findList(String param) {
+            executions.incrementAndGet();
+            return new ArrayList<>(List.of(param));
+        }
+
+        @Coalesce(ttlMillis = 60_000)
+        public int findCached(String param) throws InterruptedException {
+            return find(param);
+        }
+    }
+}
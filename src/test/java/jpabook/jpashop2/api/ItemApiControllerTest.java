@@ -0,0 +1,86 @@
+package jpabook.jpashop2.api;
+
+import jpabook.jpashop2.domain.item.Album;
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.domain.item.Item;
+import jpabook.jpashop2.search.ItemSearchIndex;
+import jpabook.jpashop2.search.ItemSearchIndexer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.EntityManager;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class ItemApiControllerTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void patchBlankNameIsBadRequest() throws Exception {
+        Long id = persist(new Book());
+
+        mockMvc.perform(patch("/api/items/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \" \"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void patchFieldOfOtherItemTypeIsBadRequest() throws Exception {
+        Long id = persist(new Book());
+
+        mockMvc.perform(patch("/api/items/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"director\": \"kim\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void patchAlbum() throws Exception {
+        Long id = persist(new Album());
+
+        mockMvc.perform(patch("/api/items/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"artist\": \"kim\", \"price\": 2000}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.artist").value("kim"))
+                .andExpect(jsonPath("$.price").value(2000));
+    }
+
+    @Test
+    public void searchWhileIndexingIsUnavailable() throws Exception {
+        ItemApiController controller = new ItemApiController(null, null, new ItemSearchIndex(),
+                new ItemSearchIndexer(new ItemSearchIndex(), null));
+
+        ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+                () -> controller.searchItems("jpa", 0, 20));
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+    }
+
+    private Long persist(Item item) {
+        item.setName("item");
+        item.setPrice(1000);
+        item.setStockQuantity(10);
+        em.persist(item);
+        em.flush();
+        em.clear();
+        return item.getId();
+    }
+}
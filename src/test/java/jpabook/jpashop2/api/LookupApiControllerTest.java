@@ -0,0 +1,51 @@
+package jpabook.jpashop2.api;
+
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.lookup.OrderFormLookup;
+import jpabook.jpashop2.service.MemberService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class LookupApiControllerTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    OrderFormLookup orderFormLookup;
+
+    @Test
+    public void membersByPrefix() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Member member = new Member();
+            member.setName("lookup api " + i);
+            memberService.join(member);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (orderFormLookup.findMembers("lookup api", 10).size() < 3 && System.currentTimeMillis() < deadline) {
+            orderFormLookup.refresh();
+            Thread.sleep(10);
+        }
+
+        mockMvc.perform(get("/api/lookup/members").param("prefix", "LOOKUP API").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name").value("lookup api 0"));
+
+        mockMvc.perform(get("/api/lookup/items").param("prefix", "no such item"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+}
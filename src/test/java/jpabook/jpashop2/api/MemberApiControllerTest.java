@@ -0,0 +1,29 @@
+package jpabook.jpashop2.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberApiControllerTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void unknownFieldIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v3/members").param("fields", "name,password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void knownFields() throws Exception {
+        mockMvc.perform(get("/api/v3/members").param("fields", "name, city"))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,23 @@
+package jpabook.jpashop2.api;
+
+import jpabook.jpashop2.analytics.OrderItemAnalytics;
+import jpabook.jpashop2.analytics.OrderItemAnalyticsLoader;
+import jpabook.jpashop2.analytics.OrderItemQuery;
+import jpabook.jpashop2.analytics.OrderItemStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+class OrderAnalyticsApiControllerTest {
+    @Test
+    public void queryWhileLoadingIsUnavailable() throws Exception {
+        OrderItemStore store = new OrderItemStore();
+        OrderAnalyticsApiController controller = new OrderAnalyticsApiController(new OrderItemAnalytics(store),
+                new OrderItemAnalyticsLoader(store, null, null, null));
+
+        ResponseStatusException e = Assertions.assertThrows(ResponseStatusException.class,
+                () -> controller.orderItems(new OrderItemQuery()));
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+    }
+}
@@ -0,0 +1,67 @@
+package jpabook.jpashop2.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderApiControllerTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void halfCursorIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/members/1/orders").param("cursorId", "10"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/members/1/orders").param("cursorDate", "2026-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void unknownFieldIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v7/orders").param("fields", "status,member.password"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v7/orders").param("fields", "orderItems.item.stockQuantity"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v7/orders").param("fields", "id,status,orderItems.item.name"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void unknownOrderIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/orders/{orderId}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void unknownOrderHistoryIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/orders/history/{orderId}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void tooManyIdsIsBadRequest() throws Exception {
+        String ids = LongStream.rangeClosed(1, 1001)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+        mockMvc.perform(get("/api/orders").param("ids", ids))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void fullCursor() throws Exception {
+        mockMvc.perform(get("/api/members/1/orders")
+                        .param("cursorDate", "2026-01-01T00:00:00")
+                        .param("cursorId", "10"))
+                .andExpect(status().isOk());
+    }
+}
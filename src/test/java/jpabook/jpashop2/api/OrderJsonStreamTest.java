@@ -0,0 +1,69 @@
+package jpabook.jpashop2.api;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.lang.management.ManagementFactory;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 스트리밍 출력이 기존 DTO 응답과 바이트 단위로 같은지 확인하고, 요청 당 할당량과 응답 시간을 기록한다.
+ * */
+@Slf4j
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderJsonStreamTest {
+    private static final int ROUNDS = 200;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void simpleOrdersSameAsV4() throws Exception {
+        assertSameBody("/api/v4/simple-orders", "/api/v4.1/simple-orders");
+    }
+
+    @Test
+    public void ordersSameAsV5() throws Exception {
+        assertSameBody("/api/v5/orders", "/api/v5.1/orders");
+    }
+
+    private void assertSameBody(String dtoUrl, String streamUrl) throws Exception {
+        byte[] expected = body(dtoUrl);
+        byte[] actual = body(streamUrl);
+        Assertions.assertArrayEquals(expected, actual, new String(actual));
+
+        measure(dtoUrl);
+        measure(streamUrl);
+    }
+
+    private void measure(String url) throws Exception {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < ROUNDS; i++) {
+            body(url);
+        }
+
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            body(url);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        log.info("{}: {} us/request, {} bytes allocated/request", url, elapsed / ROUNDS / 1000, allocated / ROUNDS);
+    }
+
+    private byte[] body(String url) throws Exception {
+        return mockMvc.perform(get(url)).andReturn().getResponse().getContentAsByteArray();
+    }
+}
@@ -0,0 +1,76 @@
+package jpabook.jpashop2.cache;
+
+import jpabook.jpashop2.event.ItemChangedEvent;
+import jpabook.jpashop2.event.MemberUpdatedEvent;
+import jpabook.jpashop2.event.OrderCancelledEvent;
+import jpabook.jpashop2.repository.order.query.OrderDetailDto;
+import jpabook.jpashop2.repository.order.query.OrderItemQueryDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class OrderAggregateCacheTest {
+
+    @Test
+    public void stalePutAfterEvictionIsRejected() throws Exception {
+        OrderAggregateCache cache = new OrderAggregateCache(100);
+
+        long ticket = cache.ticket();
+        cache.handle(List.of(new OrderCancelledEvent(1L)));
+        cache.put(order(1L, 0L, 10L, 100L), ticket);
+        Assertions.assertEquals(0, cache.size());
+
+        cache.put(order(1L, 1L, 10L, 100L), cache.ticket());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void stalePutAfterMemberUpdateIsRejected() throws Exception {
+        OrderAggregateCache cache = new OrderAggregateCache(100);
+
+        long ticket = cache.ticket();
+        cache.handle(List.of(new MemberUpdatedEvent(10L)));
+        cache.put(order(1L, 0L, 10L, 100L), ticket);
+        cache.put(order(2L, 0L, 20L, 100L), ticket);
+
+        Assertions.assertTrue(cache.getAll(List.of(1L)).isEmpty());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void itemChangeEvictsOrdersContainingItem() throws Exception {
+        OrderAggregateCache cache = new OrderAggregateCache(100);
+        cache.put(order(1L, 0L, 10L, 100L), cache.ticket());
+        cache.put(order(2L, 0L, 10L, 200L), cache.ticket());
+
+        cache.handle(List.of(ItemChangedEvent.stock(100L)));
+        Assertions.assertEquals(2, cache.size());
+
+        long ticket = cache.ticket();
+        cache.handle(List.of(new ItemChangedEvent(100L)));
+        Assertions.assertEquals(List.of(2L), List.copyOf(cache.getAll(List.of(1L, 2L)).keySet()));
+
+        cache.put(order(1L, 0L, 10L, 100L), ticket);
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void overflowedTombstonesRejectOlderTickets() throws Exception {
+        OrderAggregateCache cache = new OrderAggregateCache(2);
+
+        long ticket = cache.ticket();
+        cache.handle(List.of(new OrderCancelledEvent(1L), new OrderCancelledEvent(2L), new OrderCancelledEvent(3L)));
+        cache.put(order(1L, 0L, 10L, 100L), ticket);
+        Assertions.assertEquals(0, cache.size());
+
+        cache.put(order(1L, 0L, 10L, 100L), cache.ticket());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    private OrderDetailDto order(Long orderId, Long version, Long memberId, Long itemId) {
+        OrderDetailDto order = new OrderDetailDto(orderId, version, memberId, "member", null, null, null);
+        order.setOrderItems(List.of(new OrderItemQueryDto(orderId, itemId, "item", 1000, 1)));
+        return order;
+    }
+}
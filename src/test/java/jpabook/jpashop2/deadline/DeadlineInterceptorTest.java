@@ -0,0 +1,90 @@
+package jpabook.jpashop2.deadline;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class DeadlineInterceptorTest {
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void endpointDeadlineReturns503() throws Exception {
+        mockMvc.perform(get("/api/test/deadline/slow"))
+                .andExpect(status().isServiceUnavailable());
+
+        Assertions.assertEquals(1.0, meterRegistry.counter("deadline.exceeded",
+                "endpoint", "GET /api/test/deadline/slow", "source", "endpoint").count());
+        Assertions.assertNull(RequestDeadline.current());
+    }
+
+    @Test
+    public void clientTimeoutHeaderShortensDeadline() throws Exception {
+        mockMvc.perform(get("/api/test/deadline/fast").header("X-Request-Timeout", "1"))
+                .andExpect(status().isServiceUnavailable());
+        mockMvc.perform(get("/api/test/deadline/fast"))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * 기한이 남아 있는 요청의 예외는 처리하지 않고 넘긴다. MockMvc에서는 처리되지 않은 예외가 그대로 던져진다.
+     * */
+    @Test
+    public void otherErrorsAreNotTurnedInto503() throws Exception {
+        Assertions.assertThrows(Exception.class, () -> mockMvc.perform(get("/api/test/deadline/bad-sql")));
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        DeadlineTestController deadlineTestController(JdbcTemplate jdbcTemplate) {
+            return new DeadlineTestController(jdbcTemplate);
+        }
+    }
+
+    @RestController
+    static class DeadlineTestController {
+        private final JdbcTemplate jdbcTemplate;
+
+        DeadlineTestController(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Deadline(millis = 300)
+        @GetMapping("/api/test/deadline/slow")
+        public Long slow() {
+            return jdbcTemplate.queryForObject("select sum(x) from system_range(1, 100000000000)", Long.class);
+        }
+
+        /**
+         * 1ms 기한은 쿼리를 시작하기 전에 지나도록 잠시 기다린다.
+         * */
+        @GetMapping("/api/test/deadline/fast")
+        public Integer fast() throws InterruptedException {
+            Thread.sleep(20);
+            return jdbcTemplate.queryForObject("select 1", Integer.class);
+        }
+
+        @GetMapping("/api/test/deadline/bad-sql")
+        public Integer badSql() {
+            return jdbcTemplate.queryForObject("select no_such_column from dual", Integer.class);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package jpabook.jpashop2.deadline;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+class RequestDeadlinesTest {
+    @Autowired
+    RequestDeadlines requestDeadlines;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    public void cancelRunningQuery() throws Exception {
+        RequestDeadline deadline = requestDeadlines.start("GET /test/slow", "endpoint", 300);
+        long start = System.currentTimeMillis();
+        try {
+            Assertions.assertThrows(DataAccessException.class, () ->
+                    jdbcTemplate.queryForObject("select sum(x) from system_range(1, 100000000000)", Long.class));
+        } finally {
+            requestDeadlines.finish(deadline);
+        }
+
+        Assertions.assertTrue(System.currentTimeMillis() - start < 5000);
+        Assertions.assertTrue(deadline.isExpired());
+        Assertions.assertEquals(1.0, meterRegistry.counter("deadline.statements.cancelled",
+                "endpoint", "GET /test/slow", "source", "endpoint").count());
+        Assertions.assertEquals(1.0, meterRegistry.counter("deadline.exceeded",
+                "endpoint", "GET /test/slow", "source", "endpoint").count());
+        Assertions.assertNull(RequestDeadline.current());
+    }
+
+    @Test
+    public void rejectAfterDeadline() throws Exception {
+        RequestDeadline deadline = requestDeadlines.start("GET /test/expired", "client", 1);
+        try {
+            Thread.sleep(20);
+
+            Assertions.assertThrows(DataAccessException.class, () ->
+                    jdbcTemplate.queryForObject("select 1", Integer.class));
+        } finally {
+            requestDeadlines.finish(deadline);
+        }
+
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject("select 1", Integer.class));
+    }
+}
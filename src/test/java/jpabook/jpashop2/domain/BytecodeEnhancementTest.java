@@ -0,0 +1,93 @@
+package jpabook.jpashop2.domain;
+
+import jpabook.jpashop2.SqlCapture;
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.domain.item.Item;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 바이트코드 향상 적용 여부와, 많은 엔티티가 로딩된 영속성 컨텍스트에서 변경된 필드만 추적되어 update 되는지 확인한다.
+ * */
+@SpringBootTest
+@Transactional
+class BytecodeEnhancementTest {
+    private static final int ENTITIES = 5_000;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void entitiesAreEnhanced() throws Exception {
+        Assertions.assertTrue(SelfDirtinessTracker.class.isAssignableFrom(Order.class));
+        Assertions.assertTrue(SelfDirtinessTracker.class.isAssignableFrom(Delivery.class));
+        Assertions.assertTrue(SelfDirtinessTracker.class.isAssignableFrom(Book.class));
+    }
+
+    @Test
+    public void inverseOneToOneIsLazy() throws Exception {
+        Member member = new Member();
+        member.setName("lazy");
+        em.persist(member);
+        Delivery delivery = new Delivery();
+        delivery.setStatus(DeliveryStatus.READY);
+        Order order = Order.createOrder(member, delivery);
+        em.persist(order);
+        em.flush();
+        em.clear();
+
+        Delivery findDelivery = em.find(Delivery.class, delivery.getId());
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+
+        Assertions.assertFalse(util.isLoaded(findDelivery, "order"));
+    }
+
+    /**
+     * 변경된 필드는 엔티티가 직접 기록하기 때문에 flush는 로딩된 엔티티의 스냅샷을 비교하지 않고
+     * 변경된 엔티티의 변경된 컬럼만 update 한다.
+     * */
+    @Test
+    public void flushWritesOnlyTrackedChanges() throws Exception {
+        for (int i = 0; i < ENTITIES; i++) {
+            Book book = new Book();
+            book.setName("book" + i);
+            book.setPrice(1000);
+            book.setStockQuantity(10);
+            em.persist(book);
+        }
+        em.flush();
+        em.clear();
+
+        List<Item> items = em.createQuery("select i from Item i", Item.class).getResultList();
+        Item changed = items.get(items.size() / 2);
+        changed.addStock(1);
+
+        for (Item item : items) {
+            SelfDirtinessTracker tracker = (SelfDirtinessTracker) item;
+            if (item == changed) {
+                Assertions.assertArrayEquals(new String[]{"stockQuantity"}, tracker.$$_hibernate_getDirtyAttributes());
+            } else {
+                Assertions.assertFalse(tracker.$$_hibernate_hasDirtyAttributes());
+            }
+        }
+
+        SqlCapture.clear();
+        em.flush();
+        List<String> updates = SqlCapture.statements().stream()
+                .filter(sql -> sql.trim().toLowerCase().startsWith("update item"))
+                .collect(Collectors.toList());
+
+        Assertions.assertEquals(1, updates.size());
+        Assertions.assertEquals(2, SqlCapture.updatedColumns(updates.get(0)));
+        Assertions.assertFalse(((SelfDirtinessTracker) changed).$$_hibernate_hasDirtyAttributes());
+    }
+}
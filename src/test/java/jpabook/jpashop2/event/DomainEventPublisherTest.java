@@ -0,0 +1,123 @@
+package jpabook.jpashop2.event;
+
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.service.MemberService;
+import jpabook.jpashop2.service.OrderLine;
+import jpabook.jpashop2.service.OrderService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest
+class DomainEventPublisherTest {
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    DomainEventPublisher eventPublisher;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    RecordingHandler recordingHandler;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    public void deliveredAfterCommit() throws Exception {
+        Member member = new Member();
+        member.setName("event1");
+
+        Long memberId = memberService.join(member);
+
+        Assertions.assertTrue(recordingHandler.await(e -> e instanceof MemberJoinedEvent
+                && memberId.equals(e.getKey())));
+    }
+
+    @Test
+    public void discardedOnRollback() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            eventPublisher.publish(new ItemChangedEvent(-100L));
+            status.setRollbackOnly();
+        });
+        eventPublisher.publish(new ItemChangedEvent(-200L));
+
+        Assertions.assertTrue(recordingHandler.await(e -> Long.valueOf(-200L).equals(e.getKey())));
+        Assertions.assertTrue(recordingHandler.events.stream().noneMatch(e -> Long.valueOf(-100L).equals(e.getKey())));
+    }
+
+    @Test
+    public void stockChangesPublishItemChanged() throws Exception {
+        Long[] ids = transactionTemplate.execute(status -> {
+            Member member = new Member();
+            member.setName("event2");
+            em.persist(member);
+
+            Book book = new Book();
+            book.setName("event book");
+            book.setPrice(1000);
+            book.setStockQuantity(10);
+            em.persist(book);
+            return new Long[]{member.getId(), book.getId()};
+        });
+        Long itemId = ids[1];
+
+        Long orderId = orderService.order(ids[0], itemId, 1);
+        Assertions.assertTrue(recordingHandler.await(e -> e instanceof ItemChangedEvent && itemId.equals(e.getKey())));
+
+        recordingHandler.events.clear();
+        orderService.cancelOrder(orderId);
+        Assertions.assertTrue(recordingHandler.await(e -> e instanceof ItemChangedEvent && itemId.equals(e.getKey())));
+
+        recordingHandler.events.clear();
+        Long checkoutId = orderService.checkout(ids[0], List.of(new OrderLine(itemId, 2)));
+        Assertions.assertTrue(recordingHandler.await(e -> e instanceof ItemChangedEvent && itemId.equals(e.getKey())));
+
+        recordingHandler.events.clear();
+        orderService.cancelOrders(List.of(checkoutId));
+        Assertions.assertTrue(recordingHandler.await(e -> e instanceof ItemChangedEvent && itemId.equals(e.getKey())));
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        RecordingHandler recordingHandler() {
+            return new RecordingHandler();
+        }
+    }
+
+    static class RecordingHandler implements DomainEventHandler {
+        final List<DomainEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void handle(List<DomainEvent> batch) {
+            events.addAll(batch);
+        }
+
+        boolean await(java.util.function.Predicate<DomainEvent> condition) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (System.nanoTime() < deadline) {
+                if (events.stream().anyMatch(condition)) {
+                    return true;
+                }
+                Thread.sleep(10);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package jpabook.jpashop2.event;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+class RingBufferTest {
+
+    @Test
+    public void offerFailsWhenFull() throws Exception {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(ring.offer(i));
+        }
+
+        Assertions.assertFalse(ring.offer(4));
+        Assertions.assertEquals(0, ring.poll());
+        Assertions.assertTrue(ring.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        Assertions.assertEquals(4, ring.drainTo(drained, 10));
+        Assertions.assertEquals(List.of(1, 2, 3, 4), drained);
+        Assertions.assertNull(ring.poll());
+    }
+
+    @Test
+    public void concurrentProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        RingBuffer<Integer> ring = new RingBuffer<>(1024);
+        ConcurrentHashMap<Integer, Boolean> received = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        while (received.size() < producers * perProducer) {
+            Integer value = ring.poll();
+            if (value != null) {
+                Assertions.assertNull(received.put(value, true));
+            }
+        }
+
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assertions.assertNull(ring.poll());
+    }
+}
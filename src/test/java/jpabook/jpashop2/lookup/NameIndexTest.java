@@ -0,0 +1,48 @@
+package jpabook.jpashop2.lookup;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+class NameIndexTest {
+    @Test
+    public void prefixLookup() throws Exception {
+        NameIndex index = NameIndex.of(List.of(
+                new Object[]{3L, "spring"},
+                new Object[]{1L, "JPA"},
+                new Object[]{2L, "jpa"},
+                new Object[]{4L, "Java"},
+                new Object[]{5L, null},
+                new Object[]{6L, "김영한"}));
+
+        Assertions.assertEquals(List.of(1L, 2L), ids(index.findByPrefix("jp", 10)));
+        Assertions.assertEquals(List.of(4L, 1L, 2L), ids(index.findByPrefix("J", 10)));
+        Assertions.assertEquals(List.of(4L), ids(index.findByPrefix("j", 1)));
+        Assertions.assertEquals(List.of(6L), ids(index.findByPrefix("김", 10)));
+        Assertions.assertEquals(5, index.findByPrefix("", 10).size());
+        Assertions.assertTrue(index.findByPrefix("x", 10).isEmpty());
+        Assertions.assertTrue(NameIndex.EMPTY.findByPrefix("a", 10).isEmpty());
+    }
+
+    @Test
+    public void patchOnlyChangedEntries() throws Exception {
+        NameIndex index = NameIndex.of(List.of(
+                new Object[]{1L, "jpa"},
+                new Object[]{2L, "spring"},
+                new Object[]{3L, "java"}));
+
+        Assertions.assertSame(index, index.patch(List.of(1L, 2L), List.of(new Object[]{1L, "jpa"}, new Object[]{2L, "spring"})));
+
+        NameIndex patched = index.patch(List.of(1L, 2L, 4L), List.of(new Object[]{2L, "jpa2"}, new Object[]{4L, "kotlin"}));
+        Assertions.assertEquals(List.of(3L, 2L), ids(patched.findByPrefix("j", 10)));
+        Assertions.assertEquals(List.of(4L), ids(patched.findByPrefix("k", 10)));
+        Assertions.assertTrue(patched.findByPrefix("spring", 10).isEmpty());
+        Assertions.assertEquals(3, index.size());
+    }
+
+    private List<Long> ids(List<LookupEntry> entries) {
+        return entries.stream().map(LookupEntry::getId).collect(Collectors.toList());
+    }
+}
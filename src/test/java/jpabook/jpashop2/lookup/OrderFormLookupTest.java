@@ -0,0 +1,74 @@
+package jpabook.jpashop2.lookup;
+
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.service.ItemService;
+import jpabook.jpashop2.service.MemberService;
+import jpabook.jpashop2.service.OrderService;
+import jpabook.jpashop2.service.UpdateItemDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+@SpringBootTest(properties = "shop.order-form.refresh-millis=50")
+class OrderFormLookupTest {
+    @Autowired
+    OrderFormLookup orderFormLookup;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Test
+    public void itemFollowsStockAndName() throws Exception {
+        Member member = new Member();
+        member.setName("lookup member");
+        Long memberId = memberService.join(member);
+        Assertions.assertTrue(await(() -> found("lookup member", memberId, true)));
+
+        Book book = new Book();
+        book.setName("lookup book");
+        book.setPrice(1000);
+        book.setStockQuantity(1);
+        itemService.saveItem(book);
+        Long itemId = book.getId();
+        Assertions.assertTrue(await(() -> found("lookup book", itemId, false)));
+
+        Long orderId = orderService.order(memberId, itemId, 1);
+        Assertions.assertTrue(await(() -> !found("lookup book", itemId, false)));
+
+        orderService.cancelOrder(orderId);
+        Assertions.assertTrue(await(() -> found("lookup book", itemId, false)));
+
+        UpdateItemDto dto = new UpdateItemDto();
+        dto.setName("lookup renamed");
+        itemService.updateItem(itemId, dto);
+        Assertions.assertTrue(await(() -> found("lookup renamed", itemId, false)));
+        Assertions.assertFalse(found("lookup book", itemId, false));
+    }
+
+    private boolean found(String prefix, Long id, boolean member) {
+        return (member ? orderFormLookup.findMembers(prefix, 100) : orderFormLookup.findItems(prefix, 100)).stream()
+                .anyMatch(e -> e.getId() == id);
+    }
+
+    private boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+}
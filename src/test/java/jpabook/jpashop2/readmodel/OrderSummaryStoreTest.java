@@ -0,0 +1,61 @@
+package jpabook.jpashop2.readmodel;
+
+import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.domain.OrderStatus;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+class OrderSummaryStoreTest {
+
+    @Test
+    public void findByIndexes() throws Exception {
+        OrderSummaryStore store = new OrderSummaryStore();
+        store.upsert(summary(1L, 0L, 10L, OrderStatus.ORDER));
+        store.upsert(summary(2L, 0L, 10L, OrderStatus.ORDER));
+        store.upsert(summary(3L, 0L, 20L, OrderStatus.ORDER));
+        store.upsert(summary(2L, 1L, 10L, OrderStatus.CANCEL));
+
+        Assertions.assertEquals(List.of(1L, 2L), ids(store.find(10L, null)));
+        Assertions.assertEquals(List.of(1L, 3L), ids(store.find(null, OrderStatus.ORDER)));
+        Assertions.assertEquals(List.of(2L), ids(store.find(10L, OrderStatus.CANCEL)));
+
+        store.upsert(summary(2L, 0L, 10L, OrderStatus.ORDER));
+        Assertions.assertEquals(OrderStatus.CANCEL, store.get(2L).getOrderStatus());
+
+        store.remove(1L);
+        Assertions.assertEquals(List.of(2L), ids(store.find(10L, null)));
+    }
+
+    @Test
+    public void snapshotRoundTrip(@TempDir Path dir) throws Exception {
+        Path path = dir.resolve("order-summary.snapshot");
+        OrderSummary withNulls = new OrderSummary(2L, null, 20L, null, null, null, null, null);
+        OrderSummarySnapshot.write(path, List.of(summary(1L, 3L, 10L, OrderStatus.CANCEL), withNulls));
+
+        List<OrderSummary> read = OrderSummarySnapshot.read(path);
+
+        Assertions.assertEquals(2, read.size());
+        OrderSummary first = read.get(0);
+        Assertions.assertEquals(3L, first.getOrderVersion());
+        Assertions.assertEquals("userA", first.getName());
+        Assertions.assertEquals(LocalDateTime.of(2022, 3, 1, 10, 30, 0, 123456000), first.getOrderDate());
+        Assertions.assertEquals(OrderStatus.CANCEL, first.getOrderStatus());
+        Assertions.assertEquals("서울", first.getAddress().getCity());
+        Assertions.assertNull(read.get(1).getAddress());
+        Assertions.assertNull(read.get(1).getOrderStatus());
+    }
+
+    private OrderSummary summary(Long orderId, Long version, Long memberId, OrderStatus status) {
+        return new OrderSummary(orderId, version, memberId, 0L, "userA",
+                LocalDateTime.of(2022, 3, 1, 10, 30, 0, 123456000), status, new Address("서울", "1", "1111"));
+    }
+
+    private List<Long> ids(List<OrderSummary> summaries) {
+        return summaries.stream().map(OrderSummary::getOrderId).collect(java.util.stream.Collectors.toList());
+    }
+}
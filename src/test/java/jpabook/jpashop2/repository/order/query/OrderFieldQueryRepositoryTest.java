@@ -0,0 +1,94 @@
+package jpabook.jpashop2.repository.order.query;
+
+import jpabook.jpashop2.SqlCapture;
+import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.domain.OrderStatus;
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.service.OrderService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+
+@SpringBootTest
+@Transactional
+class OrderFieldQueryRepositoryTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderFieldQueryRepository orderFieldQueryRepository;
+
+    @Test
+    public void onlyRequestedFields() throws Exception {
+        Long orderId = createOrder();
+        em.flush();
+        em.clear();
+
+        SqlCapture.clear();
+        Map<String, Object> order = find(List.of("status"), orderId);
+
+        Assertions.assertEquals(Map.of("id", orderId, "status", OrderStatus.ORDER), order);
+        Assertions.assertEquals(1, SqlCapture.count("select"));
+        Assertions.assertFalse(SqlCapture.statements().get(0).toLowerCase().contains("join"));
+    }
+
+    @Test
+    public void nestedFields() throws Exception {
+        Long orderId = createOrder();
+        em.flush();
+        em.clear();
+
+        SqlCapture.clear();
+        Map<String, Object> order = find(List.of("member.name", "delivery.city", "orderItems.count", "orderItems.item.name"), orderId);
+
+        Assertions.assertEquals(Map.of("name", "fields-member"), order.get("member"));
+        Assertions.assertEquals(Map.of("city", "서울"), order.get("delivery"));
+        Assertions.assertEquals(List.of(Map.of("count", 2, "item", Map.of("name", "fields JPA"))), order.get("orderItems"));
+        Assertions.assertEquals(2, SqlCapture.count("select"));
+    }
+
+    @Test
+    public void cachePerFieldSet() throws Exception {
+        orderFieldQueryRepository.findPage(List.of("status", "member.id"), 0, 10);
+        int cached = orderFieldQueryRepository.cachedPlans();
+
+        orderFieldQueryRepository.findPage(List.of("member.id", "status", "id"), 0, 10);
+        Assertions.assertEquals(cached, orderFieldQueryRepository.cachedPlans());
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> orderFieldQueryRepository.findPage(List.of("member.password"), 0, 10));
+        Assertions.assertEquals(cached, orderFieldQueryRepository.cachedPlans());
+    }
+
+    private Map<String, Object> find(List<String> fields, Long orderId) {
+        return orderFieldQueryRepository.findPage(fields, 0, 1000).stream()
+                .filter(o -> orderId.equals(o.get("id")))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private Long createOrder() {
+        Member member = new Member();
+        member.setName("fields-member");
+        member.setAddress(new Address("서울", "경기", "123-123"));
+        em.persist(member);
+
+        Book book = new Book();
+        book.setName("fields JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+
+        return orderService.order(member.getId(), book.getId(), 2);
+    }
+}
@@ -0,0 +1,117 @@
+package jpabook.jpashop2.search;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+class ItemSearchIndexTest {
+    @Test
+    public void prefixAndRanking() throws Exception {
+        ItemSearchIndex index = new ItemSearchIndex();
+        index.index(book(1L, 0L, "자바 ORM 표준 JPA 프로그래밍", "김영한", "978-89-6077-784-0"));
+        index.index(book(2L, 0L, "토비의 스프링", "이일민", "978-89-6077-099-5"));
+        index.index(movie(3L, "JPAs Movie", "kim"));
+        index.index(movie(4L, "Spring Boot", "Kim"));
+
+        Assertions.assertEquals(List.of(1L), ids(index.search("김영", 0, 10)));
+        Assertions.assertEquals(List.of(1L), ids(index.search("9788960777840", 0, 10)));
+        Assertions.assertEquals(List.of(2L), ids(index.search("스프링", 0, 10)));
+        Assertions.assertEquals(List.of(3L, 1L), ids(index.search("jpa", 0, 10)));
+        Assertions.assertEquals(List.of(1L), ids(index.search("jp 김", 0, 10)));
+        Assertions.assertEquals(0, index.search("없는", 0, 10).getTotalCount());
+    }
+
+    @Test
+    public void pagination() throws Exception {
+        ItemSearchIndex index = new ItemSearchIndex();
+        for (long id = 1; id <= 25; id++) {
+            index.index(book(id, 0L, "jpa book " + id, "author", null));
+        }
+
+        ItemSearchResult page = index.search("jpa", 20, 10);
+        Assertions.assertEquals(25, page.getTotalCount());
+        Assertions.assertEquals(List.of(21L, 22L, 23L, 24L, 25L), ids(page));
+    }
+
+    @Test
+    public void reindexReplacesTerms() throws Exception {
+        ItemSearchIndex index = new ItemSearchIndex();
+        index.index(book(1L, 0L, "old title", "author", null));
+        index.index(book(1L, 1L, "new title", "author", null));
+        index.index(book(1L, 0L, "stale title", "author", null));
+
+        Assertions.assertEquals(0, index.search("old", 0, 10).getTotalCount());
+        Assertions.assertEquals(0, index.search("stale", 0, 10).getTotalCount());
+        Assertions.assertEquals(List.of(1L), ids(index.search("new", 0, 10)));
+
+        index.remove(1L);
+        Assertions.assertEquals(0, index.search("title", 0, 10).getTotalCount());
+        Assertions.assertEquals(0, index.size());
+    }
+
+    @Test
+    public void prefixExpansionIsCapped() throws Exception {
+        ItemSearchIndex index = new ItemSearchIndex();
+        for (long id = 1; id <= ItemSearchIndex.MAX_PREFIX_TERMS * 2; id++) {
+            index.index(book(id, 0L, String.format("a%03d", id), "kim", null));
+        }
+        index.index(book(1000L, 0L, "a", "kim", null));
+
+        ItemSearchResult result = index.search("a", 0, 10);
+
+        Assertions.assertEquals(ItemSearchIndex.MAX_PREFIX_TERMS, result.getTotalCount());
+        Assertions.assertEquals(1000L, ids(result).get(0));
+    }
+
+    /**
+     * 한 글자 검색어는 사전 순이 아니라 상품 수가 많은 단어를 사용한다.
+     * */
+    @Test
+    public void singleCharacterPrefixKeepsMostFrequentTerms() throws Exception {
+        ItemSearchIndex index = new ItemSearchIndex();
+        for (long id = 1; id <= ItemSearchIndex.MAX_PREFIX_TERMS * 2; id++) {
+            index.index(book(id, 0L, String.format("a%03d", id), "kim", null));
+        }
+        for (long id = 1001; id <= 1003; id++) {
+            index.index(book(id, 0L, "azure", "kim", null));
+        }
+
+        ItemSearchResult result = index.search("a", 0, 10);
+
+        Assertions.assertEquals(ItemSearchIndex.MAX_PREFIX_TERMS + 2, result.getTotalCount());
+        Assertions.assertTrue(ids(index.search("a", 0, 100)).containsAll(List.of(1001L, 1002L, 1003L)));
+    }
+
+    @Test
+    public void longerPrefixIsNotCapped() throws Exception {
+        ItemSearchIndex index = new ItemSearchIndex();
+        int books = ItemSearchIndex.MAX_PREFIX_TERMS * 2;
+        for (long id = 1; id <= books; id++) {
+            index.index(book(id, 0L, String.format("harry potter%03d", id), "rowling", null));
+        }
+
+        ItemSearchResult result = index.search("harry pot", 0, 10);
+
+        Assertions.assertEquals(books, result.getTotalCount());
+        Assertions.assertEquals(books, index.search("pot", books - 1, 10).getTotalCount());
+        Assertions.assertEquals(List.of((long) books), ids(index.search("pot", books - 1, 10)));
+    }
+
+    private List<Long> ids(ItemSearchResult result) {
+        return result.getHits().stream()
+                .map(h -> h.getItem().getId())
+                .collect(Collectors.toList());
+    }
+
+    private ItemDocument book(Long id, Long version, String name, String author, String isbn) {
+        Map<String, String> attributes = isbn == null ? Map.of("author", author) : Map.of("author", author, "isbn", isbn);
+        return new ItemDocument(id, version, "BOOK", name, 10000, 10, attributes);
+    }
+
+    private ItemDocument movie(Long id, String name, String director) {
+        return new ItemDocument(id, 0L, "MOVIE", name, 10000, 10, Map.of("director", director));
+    }
+}
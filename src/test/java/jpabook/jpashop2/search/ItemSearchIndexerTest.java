@@ -0,0 +1,100 @@
+package jpabook.jpashop2.search;
+
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.service.ItemService;
+import jpabook.jpashop2.service.OrderService;
+import jpabook.jpashop2.service.UpdateItemDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ItemSearchIndexerTest {
+    @Autowired
+    ItemSearchIndexer itemSearchIndexer;
+
+    @Autowired
+    ItemSearchIndex itemSearchIndex;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    public void reindexOnItemAndStockChanges() throws Exception {
+        Assertions.assertTrue(await(itemSearchIndexer::isReady));
+
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member();
+            member.setName("search1");
+            em.persist(member);
+            return member.getId();
+        });
+        Book book = new Book();
+        book.setName("indexer book");
+        book.setPrice(1000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        Long itemId = book.getId();
+        Assertions.assertTrue(await(() -> stockOf("indexer", itemId) == 10));
+
+        orderService.order(memberId, itemId, 3);
+        Assertions.assertTrue(await(() -> stockOf("indexer", itemId) == 7));
+
+        UpdateItemDto dto = new UpdateItemDto();
+        dto.setName("renamed book");
+        itemService.updateItem(itemId, dto);
+        Assertions.assertTrue(await(() -> stockOf("renamed", itemId) == 7));
+        Assertions.assertEquals(-1, stockOf("indexer", itemId));
+
+        mockMvc.perform(get("/api/items/search").param("q", "renamed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hits[0].item.id").value(itemId));
+    }
+
+    /**
+     * 검색 결과에 상품이 없으면 -1.
+     * */
+    private int stockOf(String query, Long itemId) {
+        return itemSearchIndex.search(query, 0, 100).getHits().stream()
+                .filter(h -> itemId.equals(h.getItem().getId()))
+                .mapToInt(h -> h.getItem().getStockQuantity())
+                .findFirst().orElse(-1);
+    }
+
+    private boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,228 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.delivery.DeliveryProcessor;
+import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.domain.Delivery;
+import jpabook.jpashop2.domain.DeliveryStatus;
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.domain.OrderStatus;
+import jpabook.jpashop2.domain.item.Book;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * H2 1.4는 skip locked를 지원하지 않기 때문에 로컬 PostgreSQL 컨테이너로 검증한다.
+ * docker를 사용할 수 없는 환경에서는 건너뛴다.
+ * */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class DeliveryDispatchServiceTest {
+    private static final int ORDERS = 500;
+    private static final int WORKERS = 8;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:14-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", postgres::getDriverClassName);
+    }
+
+    @Autowired
+    DeliveryDispatchService deliveryDispatchService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    RecordingProcessor recordingProcessor;
+
+    @BeforeEach
+    public void clearRecords() {
+        recordingProcessor.processed.clear();
+        recordingProcessor.threads.clear();
+    }
+
+    @Test
+    public void workersNeverProcessSameDelivery() throws Exception {
+        Long[] ids = saveMemberAndBook("dispatch", ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            orderService.order(ids[0], ids[1], 1);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+        AtomicInteger dispatched = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < WORKERS; i++) {
+            futures.add(executor.submit(() -> {
+                int count;
+                while ((count = deliveryDispatchService.dispatchBatch(10)) > 0) {
+                    dispatched.addAndGet(count);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Long ready = transactionTemplate.execute(status -> em.createQuery(
+                "select count(d) from Delivery d where d.status = :ready", Long.class)
+                .setParameter("ready", DeliveryStatus.READY)
+                .getSingleResult());
+
+        Assertions.assertEquals(0L, ready);
+        Assertions.assertEquals(dispatched.get(), recordingProcessor.processed.size());
+        Assertions.assertEquals(recordingProcessor.processed.size(), Set.copyOf(recordingProcessor.processed).size());
+        Assertions.assertTrue(recordingProcessor.threads.size() > 1);
+    }
+
+    @Test
+    public void cancelWaitsForClaimedDeliveryAndFails() throws Exception {
+        Long[] ids = saveMemberAndBook("cancel during dispatch", 1);
+        Long orderId = orderService.order(ids[0], ids[1], 1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> dispatch = claimAndHold(executor);
+            Future<?> cancel = executor.submit(() -> orderService.cancelOrder(orderId));
+            Thread.sleep(300);
+            Assertions.assertFalse(cancel.isDone());
+
+            recordingProcessor.release.countDown();
+            dispatch.get(10, TimeUnit.SECONDS);
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> cancel.get(10, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof IllegalStateException);
+        } finally {
+            recordingProcessor.release = null;
+            executor.shutdownNow();
+        }
+
+        assertStatuses(orderId, OrderStatus.ORDER, DeliveryStatus.COMP);
+    }
+
+    @Test
+    public void bulkCancelWaitsForClaimedDelivery() throws Exception {
+        Long[] ids = saveMemberAndBook("bulk cancel during dispatch", 1);
+        Long orderId = orderService.order(ids[0], ids[1], 1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        BulkCancelResult result;
+        try {
+            Future<Integer> dispatch = claimAndHold(executor);
+            Future<BulkCancelResult> cancel = executor.submit(() -> orderService.cancelOrders(List.of(orderId)));
+            Thread.sleep(300);
+            Assertions.assertFalse(cancel.isDone());
+
+            recordingProcessor.release.countDown();
+            dispatch.get(10, TimeUnit.SECONDS);
+            result = cancel.get(10, TimeUnit.SECONDS);
+        } finally {
+            recordingProcessor.release = null;
+            executor.shutdownNow();
+        }
+
+        Assertions.assertTrue(result.getCanceledOrderIds().isEmpty());
+        Assertions.assertEquals(List.of(new BulkCancelResult.Failure(orderId, BulkCancelResult.FailureReason.DELIVERY_COMPLETED)),
+                result.getFailures());
+        assertStatuses(orderId, OrderStatus.ORDER, DeliveryStatus.COMP);
+    }
+
+    /**
+     * 워커가 배송을 잠근 채 처리 중인 상태에서 멈춰 둔다. recordingProcessor.release로 처리를 계속한다.
+     * */
+    private Future<Integer> claimAndHold(ExecutorService executor) throws InterruptedException {
+        recordingProcessor.claimed = new CountDownLatch(1);
+        recordingProcessor.release = new CountDownLatch(1);
+        Future<Integer> dispatch = executor.submit(() -> deliveryDispatchService.dispatchBatch(10));
+        Assertions.assertTrue(recordingProcessor.claimed.await(10, TimeUnit.SECONDS));
+        return dispatch;
+    }
+
+    private void assertStatuses(Long orderId, OrderStatus orderStatus, DeliveryStatus deliveryStatus) {
+        Object[] statuses = transactionTemplate.execute(status -> em.createQuery(
+                "select o.status, d.status from Order o join o.delivery d where o.id = :orderId", Object[].class)
+                .setParameter("orderId", orderId)
+                .getSingleResult());
+
+        Assertions.assertEquals(orderStatus, statuses[0]);
+        Assertions.assertEquals(deliveryStatus, statuses[1]);
+    }
+
+    private Long[] saveMemberAndBook(String name, int stockQuantity) {
+        return transactionTemplate.execute(status -> {
+            Member member = new Member();
+            member.setName(name);
+            member.setAddress(new Address("서울", "1", "1111"));
+            em.persist(member);
+
+            Book book = new Book();
+            book.setName(name + " book");
+            book.setPrice(1000);
+            book.setStockQuantity(stockQuantity);
+            em.persist(book);
+            return new Long[]{member.getId(), book.getId()};
+        });
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        RecordingProcessor recordingProcessor() {
+            return new RecordingProcessor();
+        }
+    }
+
+    static class RecordingProcessor implements DeliveryProcessor {
+        final List<Long> processed = new CopyOnWriteArrayList<>();
+
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        volatile CountDownLatch claimed;
+
+        volatile CountDownLatch release;
+
+        @Override
+        public void process(List<Delivery> deliveries) {
+            threads.add(Thread.currentThread().getName());
+            deliveries.forEach(d -> processed.add(d.getId()));
+
+            CountDownLatch release = this.release;
+            if (release != null) {
+                claimed.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.domain.item.Item;
+import jpabook.jpashop2.repository.ItemJdbcRepository;
+import jpabook.jpashop2.repository.ItemPriceStock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * chunk 단위 커밋을 확인하기 위해 테스트 트랜잭션 없이 실행하고, 생성한 상품은 테스트 후 삭제한다.
+ * */
+@SpringBootTest
+class ItemImportServiceTest {
+    /** 이 id를 포함한 chunk는 db 오류로 실패한다. */
+    static final long FAILING_ITEM_ID = Long.MAX_VALUE;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ItemImportService itemImportService;
+
+    final List<Long> itemIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> itemIds.forEach(id -> em.remove(em.find(Item.class, id))));
+    }
+
+    @Test
+    public void importPriceAndStock() throws Exception {
+        Long itemId = createBook();
+
+        String csv = "itemId,price,stockQuantity\n" +
+                itemId + ",12000,30\n" +
+                "abc,1000,1\n" +
+                "-1,1000,1\n";
+
+        ItemImportResult result = itemImportService.importPriceAndStock(new StringReader(csv));
+
+        Item findItem = findItem(itemId);
+        Assertions.assertEquals(12000, findItem.getPrice());
+        Assertions.assertEquals(30, findItem.getStockQuantity());
+        Assertions.assertEquals(3, result.getProcessedRows());
+        Assertions.assertEquals(1, result.getUpdatedRows());
+        Assertions.assertEquals(2, result.getFailedRows());
+        Assertions.assertEquals(3, result.getErrors().get(0).getLine());
+    }
+
+    @Test
+    public void headerWithBom() throws Exception {
+        Long itemId = createBook();
+
+        String csv = "\uFEFFitemId, price, stockQuantity\n" + itemId + ",12000,30\n";
+
+        ItemImportResult result = itemImportService.importPriceAndStock(new StringReader(csv));
+
+        Assertions.assertEquals(1, result.getProcessedRows());
+        Assertions.assertEquals(1, result.getUpdatedRows());
+        Assertions.assertEquals(12000, findItem(itemId).getPrice());
+    }
+
+    @Test
+    public void firstDataRowIsNotDroppedAsHeader() throws Exception {
+        Long itemId = createBook();
+
+        String bom = "\uFEFF" + itemId + ",12000,30\n";
+        ItemImportResult bomResult = itemImportService.importPriceAndStock(new StringReader(bom));
+
+        Assertions.assertEquals(1, bomResult.getUpdatedRows());
+        Assertions.assertEquals(12000, findItem(itemId).getPrice());
+
+        String nonDigit = "book,12000,30\n";
+        ItemImportResult nonDigitResult = itemImportService.importPriceAndStock(new StringReader(nonDigit));
+
+        Assertions.assertEquals(1, nonDigitResult.getProcessedRows());
+        Assertions.assertEquals(1, nonDigitResult.getFailedRows());
+        Assertions.assertEquals(1, nonDigitResult.getErrors().get(0).getLine());
+    }
+
+    @Test
+    public void failedChunkIsReportedAndEarlierChunksStayCommitted() throws Exception {
+        Long itemId = createBook();
+
+        StringBuilder csv = new StringBuilder("itemId,price,stockQuantity\n");
+        for (int i = 0; i < ItemImportService.CHUNK_SIZE; i++) {
+            csv.append(itemId).append(",12000,30\n");
+        }
+        csv.append(itemId).append(",20000,1\n");
+        csv.append(FAILING_ITEM_ID).append(",1000,1\n");
+
+        ItemImportResult result = itemImportService.importPriceAndStock(new StringReader(csv.toString()));
+
+        Item findItem = findItem(itemId);
+        Assertions.assertEquals(12000, findItem.getPrice());
+        Assertions.assertEquals(30, findItem.getStockQuantity());
+        Assertions.assertEquals(ItemImportService.CHUNK_SIZE + 2, result.getProcessedRows());
+        Assertions.assertEquals(ItemImportService.CHUNK_SIZE, result.getUpdatedRows());
+        Assertions.assertEquals(1, result.getCommittedChunks());
+        Assertions.assertEquals(2, result.getFailedRows());
+        Assertions.assertEquals(ItemImportService.CHUNK_SIZE + 2, result.getErrors().get(0).getLine());
+        Assertions.assertEquals(ItemImportService.CHUNK_SIZE + 3, result.getErrors().get(1).getLine());
+    }
+
+    private Long createBook() {
+        Long id = transactionTemplate.execute(status -> {
+            Item book = new Book();
+            book.setName("시골 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(10);
+            em.persist(book);
+            return book.getId();
+        });
+        itemIds.add(id);
+        return id;
+    }
+
+    private Item findItem(Long id) {
+        return transactionTemplate.execute(status -> em.find(Item.class, id));
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        @Primary
+        ItemJdbcRepository failingItemJdbcRepository(JdbcTemplate jdbcTemplate) {
+            return new ItemJdbcRepository(jdbcTemplate) {
+                @Override
+                public int[] updatePriceAndStock(List<ItemPriceStock> rows) {
+                    if (rows.stream().anyMatch(row -> row.getItemId() == FAILING_ITEM_ID)) {
+                        throw new DataAccessResourceFailureException("connection reset");
+                    }
+                    return super.updatePriceAndStock(rows);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.SqlCapture;
+import jpabook.jpashop2.domain.item.Book;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.OptimisticLockException;
+import java.util.List;
+
+@Slf4j
+@SpringBootTest
+@Transactional
+class ItemServiceTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    ItemService itemService;
+
+    /**
+     * merge(기존 수정 방식)와 변경 감지(PATCH) 방식에서 실행된 SQL을 캡처하여 update 되는 컬럼 수를 비교한다.
+     * 실행 시간을 측정하는 벤치마크가 아니라 SQL 캡처 검증이다.
+     * */
+    @Test
+    public void updateItemWritesOnlyChangedColumns() throws Exception {
+        Long mergeId = createBook();
+        Long patchId = createBook();
+        Long version = em.find(Book.class, mergeId).getVersion();
+        em.clear();
+
+        SqlCapture.clear();
+        Book detached = new Book();
+        detached.setId(mergeId);
+        detached.setVersion(version);
+        detached.setName("시골 JPA");
+        detached.setPrice(20000);
+        itemService.saveItem(detached);
+        em.flush();
+        em.clear();
+        List<String> mergeSql = SqlCapture.statements();
+
+        SqlCapture.clear();
+        UpdateItemDto dto = new UpdateItemDto();
+        dto.setPrice(20000);
+        itemService.updateItem(patchId, dto);
+        em.flush();
+        em.clear();
+        List<String> patchSql = SqlCapture.statements();
+
+        String mergeUpdate = findUpdate(mergeSql);
+        String patchUpdate = findUpdate(patchSql);
+        log.info("merge: statements={}, updated columns={}", mergeSql.size(), SqlCapture.updatedColumns(mergeUpdate));
+        log.info("patch: statements={}, updated columns={}", patchSql.size(), SqlCapture.updatedColumns(patchUpdate));
+
+        // 변경된 price와 @Version 컬럼만 update 된다.
+        Assertions.assertEquals(2, SqlCapture.updatedColumns(patchUpdate));
+        Assertions.assertTrue(SqlCapture.updatedColumns(mergeUpdate) > SqlCapture.updatedColumns(patchUpdate));
+        Assertions.assertNull(em.find(Book.class, mergeId).getIsbn());
+        Assertions.assertTrue(mergeSql.stream().noneMatch(sql -> sql.trim().toLowerCase().startsWith("insert")));
+        Assertions.assertEquals("1234", em.find(Book.class, patchId).getIsbn());
+    }
+
+    @Test
+    public void staleOrMissingVersionIsRejected() throws Exception {
+        Long id = createBook();
+        Long version = em.find(Book.class, id).getVersion();
+        em.clear();
+
+        UpdateItemDto dto = new UpdateItemDto();
+        dto.setPrice(30000);
+        dto.setVersion(version);
+        itemService.updateItem(id, dto);
+        em.flush();
+        em.clear();
+
+        UpdateItemDto stale = new UpdateItemDto();
+        stale.setPrice(40000);
+        stale.setVersion(version);
+        Assertions.assertThrows(ConcurrencyFailureException.class, () -> itemService.updateItem(id, stale));
+        em.clear();
+
+        Book withoutVersion = new Book();
+        withoutVersion.setId(id);
+        withoutVersion.setName("버전 없음");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> itemService.saveItem(withoutVersion));
+        em.clear();
+
+        Book detached = new Book();
+        detached.setId(id);
+        detached.setName("이전 화면");
+        detached.setVersion(version);
+        RuntimeException e = Assertions.assertThrows(RuntimeException.class, () -> {
+            itemService.saveItem(detached);
+            em.flush();
+        });
+        Assertions.assertTrue(e instanceof OptimisticLockingFailureException || e instanceof OptimisticLockException, e.toString());
+    }
+
+    private String findUpdate(List<String> statements) {
+        return statements.stream()
+                .filter(sql -> sql.trim().toLowerCase().startsWith("update"))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("시골 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        book.setAuthor("kim");
+        book.setIsbn("1234");
+        em.persist(book);
+        em.flush();
+        em.clear();
+        return book.getId();
+    }
+}
@@ -0,0 +1,119 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.SqlCapture;
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.repository.MemberRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * chunk 단위 커밋과 jdbc batch를 확인하기 위해 테스트 트랜잭션 없이 batch 설정을 켜고 실행한다.
+ * 별도의 컨텍스트(db)를 사용하기 때문에 생성한 회원은 삭제하지 않는다.
+ * */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=100",
+        "spring.jpa.properties.hibernate.order_inserts=true"
+})
+class MemberBulkJoinServiceTest {
+    /** 이 이름을 포함한 chunk는 db 오류로 실패한다. */
+    static final String FAILING_NAME = "bulk-fail";
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberBulkJoinService memberBulkJoinService;
+
+    @Test
+    public void joinAll() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            Member existing = new Member();
+            existing.setName("bulk-existing");
+            em.persist(existing);
+        });
+
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < MemberBulkJoinService.CHUNK_SIZE + 10; i++) {
+            names.add("bulk-" + i);
+        }
+        names.addAll(Arrays.asList("bulk-0", "bulk-existing", " ", null));
+
+        SqlCapture.clear();
+        BulkJoinResult result = memberBulkJoinService.joinAll(names);
+
+        Assertions.assertTrue(result.isCompleted());
+        Assertions.assertEquals(MemberBulkJoinService.CHUNK_SIZE + 10, result.getCreatedIds().size());
+        Assertions.assertEquals(result.getCreatedIds().size(), result.getCreatedIds().stream().distinct().count());
+        Assertions.assertEquals("bulk-0", findName(result.getCreatedIds().get(0)));
+        Assertions.assertEquals(List.of(
+                BulkJoinResult.RejectReason.DUPLICATE_IN_REQUEST,
+                BulkJoinResult.RejectReason.INVALID_NAME,
+                BulkJoinResult.RejectReason.INVALID_NAME,
+                BulkJoinResult.RejectReason.ALREADY_EXISTS),
+                result.getRejected().stream().map(BulkJoinResult.Rejection::getReason).collect(Collectors.toList()));
+        // batch로 전송되면 insert statement는 batch 마다 한번만 준비된다.
+        Assertions.assertTrue(SqlCapture.count("insert into member") < result.getCreatedIds().size() / 10);
+    }
+
+    @Test
+    public void failedChunkKeepsEarlierChunks() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < MemberBulkJoinService.CHUNK_SIZE; i++) {
+            names.add("partial-" + i);
+        }
+        names.add("partial-last");
+        names.add(FAILING_NAME);
+
+        BulkJoinResult result = memberBulkJoinService.joinAll(names);
+
+        Assertions.assertFalse(result.isCompleted());
+        Assertions.assertNotNull(result.getError());
+        Assertions.assertEquals(MemberBulkJoinService.CHUNK_SIZE, result.getCreatedIds().size());
+        Assertions.assertEquals("partial-0", findName(result.getCreatedIds().get(0)));
+        Assertions.assertEquals(List.of("partial-last", FAILING_NAME),
+                result.getRejected().stream().map(BulkJoinResult.Rejection::getName).collect(Collectors.toList()));
+        Assertions.assertTrue(result.getRejected().stream()
+                .allMatch(r -> r.getReason() == BulkJoinResult.RejectReason.NOT_PROCESSED));
+        Assertions.assertEquals(0L, transactionTemplate.execute(status -> em.createQuery(
+                        "select count(m) from Member m where m.name = 'partial-last'", Long.class)
+                .getSingleResult()));
+    }
+
+    private String findName(Long memberId) {
+        return transactionTemplate.execute(status -> em.find(Member.class, memberId).getName());
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        @Primary
+        MemberRepository failingMemberRepository(EntityManager em) {
+            return new MemberRepository(em) {
+                @Override
+                public List<String> findExistingNames(Collection<String> names) {
+                    if (names.contains(FAILING_NAME)) {
+                        throw new QueryTimeoutException("요청 처리 시간이 초과되었습니다.");
+                    }
+                    return super.findExistingNames(names);
+                }
+            };
+        }
+    }
+}
@@ -8,6 +8,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.Tuple;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -47,4 +50,23 @@ class MemberServiceTest {
         fail("예외가 발생해야 한다.");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void findMemberPage() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Member member = new Member();
+            member.setName("page" + i);
+            memberService.join(member);
+        }
+        Long cursor = memberService.findMemberPage(null, 100, List.of()).stream()
+                .map(t -> (Long) t.get("id"))
+                .filter(id -> memberRepository.findOne(id).getName().equals("page1"))
+                .findFirst()
+                .orElseThrow();
+
+        List<Tuple> page = memberService.findMemberPage(cursor, 2, List.of("name"));
+
+        assertEquals(2, page.size());
+        assertEquals("page2", page.get(0).get("name"));
+        assertEquals("page3", page.get(1).get("name"));
+    }
+}
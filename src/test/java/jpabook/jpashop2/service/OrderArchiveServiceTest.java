@@ -0,0 +1,83 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.domain.Order;
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.repository.OrderItemFactRepository;
+import jpabook.jpashop2.repository.OrderRepository;
+import jpabook.jpashop2.repository.order.query.OrderHistoryQueryRepository;
+import jpabook.jpashop2.repository.order.query.OrderQueryDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@SpringBootTest
+@Transactional
+class OrderArchiveServiceTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderArchiveService orderArchiveService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    OrderHistoryQueryRepository orderHistoryQueryRepository;
+
+    @Autowired
+    OrderItemFactRepository orderItemFactRepository;
+
+    @Test
+    public void archiveOldCanceledOrders() throws Exception {
+        Member member = new Member();
+        member.setName("archive");
+        member.setAddress(new Address("서울", "1", "1111"));
+        em.persist(member);
+
+        Book book = new Book();
+        book.setName("시골 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+
+        Long oldId = orderService.order(member.getId(), book.getId(), 1);
+        Long recentId = orderService.order(member.getId(), book.getId(), 1);
+        orderService.cancelOrder(oldId);
+        orderService.cancelOrder(recentId);
+        orderRepository.findOne(oldId).setOrderDate(LocalDateTime.now().minusDays(100));
+        em.flush();
+        em.clear();
+
+        int archived = orderArchiveService.archive(90);
+        em.clear();
+
+        Assertions.assertEquals(1, archived);
+        Assertions.assertNull(orderRepository.findOne(oldId));
+        Assertions.assertNotNull(orderRepository.findOne(recentId));
+
+        OrderQueryDto history = orderHistoryQueryRepository.findOrder(oldId).orElseThrow();
+        Assertions.assertEquals("archive", history.getName());
+        Assertions.assertEquals(1, history.getOrderItems().size());
+
+        List<OrderQueryDto> memberOrders = orderHistoryQueryRepository.findMemberOrders(member.getId());
+        Assertions.assertEquals(List.of(recentId, oldId), List.of(memberOrders.get(0).getOrderId(), memberOrders.get(1).getOrderId()));
+
+        // 보관된 주문도 분석용 주문상품으로 적재된다.
+        long[] range = orderItemFactRepository.findOrderIdRange();
+        Assertions.assertTrue(range[0] <= oldId && oldId <= range[1]);
+        Assertions.assertEquals(1, orderItemFactRepository.findBetween(oldId, oldId, city -> 0).size());
+        Assertions.assertEquals(2, orderItemFactRepository.findByOrderIds(List.of(oldId, recentId), city -> 0).size());
+    }
+}
@@ -0,0 +1,116 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.domain.item.Item;
+import jpabook.jpashop2.exception.NotEnoughStockException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 서로 겹치는 상품을 다른 순서로 담은 장바구니를 동시에 주문해도 교착 상태 없이 끝나고,
+ * 주문된 수량만큼만 재고가 감소하는지 확인한다. 트랜잭션을 커밋해야 하기 때문에 테스트 트랜잭션을 사용하지 않는다.
+ * 커밋된 회원/상품/주문이 다른 테스트에 보이지 않도록 별도의 db를 사용하고 끝나면 컨텍스트를 닫는다.
+ * */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:checkout-${random.uuid}")
+@DirtiesContext
+class OrderCheckoutConcurrencyTest {
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void overlappingCarts() throws Exception {
+        int stock = 300;
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Book book = new Book();
+            book.setName("checkout-" + i);
+            book.setPrice(1000);
+            book.setStockQuantity(stock);
+            itemService.saveItem(book);
+            items.add(book);
+        }
+        Member member = new Member();
+        member.setName("checkout-member");
+        Long memberId = memberService.join(member);
+
+        Long a = items.get(0).getId();
+        Long b = items.get(1).getId();
+        Long c = items.get(2).getId();
+        Long d = items.get(3).getId();
+        List<List<OrderLine>> carts = List.of(
+                List.of(new OrderLine(d, 1), new OrderLine(a, 2), new OrderLine(c, 1)),
+                List.of(new OrderLine(a, 1), new OrderLine(b, 1), new OrderLine(c, 1), new OrderLine(d, 1)),
+                List.of(new OrderLine(c, 2), new OrderLine(b, 1)),
+                List.of(new OrderLine(b, 1), new OrderLine(d, 2), new OrderLine(a, 1)));
+
+        int threads = 8;
+        int checkoutsPerThread = 60;
+        Map<Long, AtomicInteger> ordered = new ConcurrentHashMap<>();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < checkoutsPerThread; i++) {
+                    List<OrderLine> cart = carts.get((offset + i) % carts.size());
+                    try {
+                        orderService.checkout(memberId, cart);
+                        succeeded.incrementAndGet();
+                        cart.forEach(line -> ordered.computeIfAbsent(line.getItemId(), id -> new AtomicInteger()).addAndGet(line.getCount()));
+                    } catch (NotEnoughStockException e) {
+                        outOfStock.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(threads * checkoutsPerThread, succeeded.get() + outOfStock.get());
+        Assertions.assertTrue(outOfStock.get() > 0);
+        for (Item item : items) {
+            int remaining = jdbcTemplate.queryForObject(
+                    "select stock_quantity from item where item_id = ?", Integer.class, item.getId());
+            int orderedCount = ordered.getOrDefault(item.getId(), new AtomicInteger()).get();
+
+            Assertions.assertTrue(remaining >= 0);
+            Assertions.assertEquals(stock - orderedCount, remaining);
+        }
+        Assertions.assertEquals((long) succeeded.get(), jdbcTemplate.queryForObject(
+                "select count(*) from orders where member_id = ?", Long.class, memberId));
+    }
+}
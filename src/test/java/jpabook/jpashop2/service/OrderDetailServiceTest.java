@@ -0,0 +1,70 @@
+package jpabook.jpashop2.service;
+
+import jpabook.jpashop2.SqlCapture;
+import jpabook.jpashop2.cache.OrderAggregateCache;
+import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.event.OrderCancelledEvent;
+import jpabook.jpashop2.repository.order.query.OrderDetailDto;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest
+@Transactional
+class OrderDetailServiceTest {
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderDetailService orderDetailService;
+
+    @Autowired
+    OrderAggregateCache orderAggregateCache;
+
+    @Test
+    public void multiGetLoadsMissesInBatch() throws Exception {
+        Member member = new Member();
+        member.setName("detail");
+        member.setAddress(new Address("서울", "1", "1111"));
+        em.persist(member);
+        Book book = new Book();
+        book.setName("시골 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(1000);
+        em.persist(book);
+
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            orderIds.add(orderService.order(member.getId(), book.getId(), 1));
+        }
+        em.flush();
+        em.clear();
+
+        SqlCapture.clear();
+        List<OrderDetailDto> orders = orderDetailService.findOrders(orderIds);
+        Assertions.assertEquals(100, orders.size());
+        Assertions.assertEquals(orderIds.get(0), orders.get(0).getOrderId());
+        Assertions.assertEquals(1, orders.get(0).getOrderItems().size());
+        Assertions.assertEquals(2, SqlCapture.count("select"));
+
+        SqlCapture.clear();
+        orderDetailService.findOrders(orderIds);
+        Assertions.assertEquals(0, SqlCapture.count("select"));
+
+        orderAggregateCache.handle(List.of(new OrderCancelledEvent(orderIds.get(0))));
+        SqlCapture.clear();
+        orderDetailService.findOrder(orderIds.get(0));
+        Assertions.assertEquals(2, SqlCapture.count("select"));
+    }
+}
@@ -1,6 +1,8 @@
 package jpabook.jpashop2.service;
 
+import jpabook.jpashop2.SqlCapture;
 import jpabook.jpashop2.domain.Address;
+import jpabook.jpashop2.domain.DeliveryStatus;
 import jpabook.jpashop2.domain.Member;
 import jpabook.jpashop2.domain.Order;
 import jpabook.jpashop2.domain.OrderStatus;
@@ -15,6 +17,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.List;
 
 @SpringBootTest
 @Transactional
@@ -60,6 +63,58 @@ class OrderServiceTest {
 
     }
 
+    @Test
+    public void checkout() throws Exception {
+        Member member = createMember();
+        Item jpa = createBook(10000, 10, "시골 JPA");
+        Item spring = createBook(20000, 5, "스프링");
+        em.flush();
+
+        Long orderId = orderService.checkout(member.getId(), List.of(
+                new OrderLine(spring.getId(), 2),
+                new OrderLine(jpa.getId(), 1),
+                new OrderLine(spring.getId(), 1)));
+
+        Order getOrder = orderRepository.findOne(orderId);
+        em.refresh(jpa);
+        em.refresh(spring);
+
+        Assertions.assertEquals(2, getOrder.getOrderItems().size());
+        Assertions.assertEquals(10000 + 20000 * 3, getOrder.getTotalPrice());
+        Assertions.assertEquals(9, jpa.getStockQuantity());
+        Assertions.assertEquals(2, spring.getStockQuantity());
+    }
+
+    @Test
+    public void checkoutQuantityError() throws Exception {
+        Member member = createMember();
+        Item jpa = createBook(10000, 10, "시골 JPA");
+        Item spring = createBook(20000, 5, "스프링");
+        em.flush();
+
+        Assertions.assertThrows(NotEnoughStockException.class, () -> {
+            orderService.checkout(member.getId(), List.of(
+                    new OrderLine(jpa.getId(), 1),
+                    new OrderLine(spring.getId(), 6)));
+        });
+    }
+
+    @Test
+    public void checkoutUnknownItem() throws Exception {
+        Member member = createMember();
+        Item jpa = createBook(10000, 10, "시골 JPA");
+        em.flush();
+
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            orderService.checkout(member.getId(), List.of(
+                    new OrderLine(jpa.getId(), 1),
+                    new OrderLine(Long.MAX_VALUE, 1)));
+        });
+        Assertions.assertTrue(e.getMessage().contains(String.valueOf(Long.MAX_VALUE)));
+        em.refresh(jpa);
+        Assertions.assertEquals(10, jpa.getStockQuantity());
+    }
+
     @Test
     public void cancel() throws Exception {
         Member member = createMember();
@@ -76,6 +131,99 @@ class OrderServiceTest {
         Assertions.assertEquals(10, book.getStockQuantity());
     }
 
+    @Test
+    public void bulkCancel() throws Exception {
+        Member member = createMember();
+        Item book = createBook(10000, 10, "시골 JPA");
+
+        Long orderId1 = orderService.order(member.getId(), book.getId(), 2);
+        Long orderId2 = orderService.order(member.getId(), book.getId(), 3);
+        Long completedId = orderService.order(member.getId(), book.getId(), 1);
+        orderRepository.findOne(completedId).getDelivery().setStatus(DeliveryStatus.COMP);
+        em.flush();
+
+        BulkCancelResult result = orderService.cancelOrders(List.of(orderId1, orderId2, completedId, -1L));
+        em.clear();
+
+        Assertions.assertEquals(List.of(orderId1, orderId2), result.getCanceledOrderIds());
+        Assertions.assertEquals(2, result.getFailures().size());
+        Assertions.assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderId1).getStatus());
+        Assertions.assertEquals(OrderStatus.ORDER, orderRepository.findOne(completedId).getStatus());
+        Assertions.assertEquals(9, em.find(Item.class, book.getId()).getStockQuantity());
+    }
+
+    /**
+     * 주문 목록은 연관관계의 주인이 아니기 때문에 주문을 추가해도 회원을 update 하거나 version을 올리지 않고,
+     * 이력이 많은 회원이어도 주문 목록을 로딩하지 않는다.
+     * 변경 전에는 주문 목록에 추가하면서 회원의 version이 올라가 update member 문이 실행되기 때문에 실패한다.
+     * */
+    @Test
+    public void orderDoesNotTouchMemberHistory() throws Exception {
+        Item book = createBook(10000, 1000, "시골 JPA");
+        Member longTimeMember = createMember();
+        for (int i = 0; i < 50; i++) {
+            orderService.order(longTimeMember.getId(), book.getId(), 1);
+        }
+        em.flush();
+        em.clear();
+        Long version = em.find(Member.class, longTimeMember.getId()).getVersion();
+        em.clear();
+
+        SqlCapture.clear();
+        orderService.order(longTimeMember.getId(), book.getId(), 1);
+        em.flush();
+
+        Member findMember = em.find(Member.class, longTimeMember.getId());
+        Assertions.assertEquals(0, SqlCapture.count("update member"));
+        Assertions.assertEquals(version, findMember.getVersion());
+        Assertions.assertFalse(em.getEntityManagerFactory().getPersistenceUnitUtil()
+                .isLoaded(findMember, "orders"));
+    }
+
+    @Test
+    public void orderAddedToLoadedHistory() throws Exception {
+        Item book = createBook(10000, 1000, "시골 JPA");
+        Member member = createMember();
+        orderService.order(member.getId(), book.getId(), 1);
+        em.flush();
+        em.clear();
+
+        Member findMember = em.find(Member.class, member.getId());
+        Long version = findMember.getVersion();
+        Assertions.assertEquals(1, findMember.getOrders().size());
+
+        SqlCapture.clear();
+        orderService.order(member.getId(), book.getId(), 1);
+        em.flush();
+
+        Assertions.assertEquals(2, findMember.getOrders().size());
+        Assertions.assertEquals(0, SqlCapture.count("update member"));
+        Assertions.assertEquals(version, findMember.getVersion());
+    }
+
+    @Test
+    public void memberOrderPage() throws Exception {
+        Member member = createMember();
+        Member other = createMember();
+        Item book = createBook(10000, 100, "시골 JPA");
+        for (int i = 0; i < 5; i++) {
+            orderService.order(member.getId(), book.getId(), 1);
+            orderService.order(other.getId(), book.getId(), 1);
+        }
+        em.flush();
+        em.clear();
+
+        List<Order> first = orderRepository.findMemberOrderPage(member.getId(), null, null, 3);
+        Order last = first.get(first.size() - 1);
+        List<Order> second = orderRepository.findMemberOrderPage(member.getId(), last.getOrderDate(), last.getId(), 3);
+
+        Assertions.assertEquals(3, first.size());
+        Assertions.assertEquals(2, second.size());
+        Assertions.assertTrue(first.get(0).getId() > second.get(0).getId());
+        Assertions.assertTrue(second.stream().allMatch(o -> o.getMember().getId().equals(member.getId())));
+        Assertions.assertEquals(1, second.get(0).getOrderItems().size());
+    }
+
     @Test
     public void countError() throws Exception {
 
@@ -0,0 +1,290 @@
+package jpabook.jpashop2.sharding;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop2.deadline.RequestDeadline;
+import jpabook.jpashop2.deadline.RequestDeadlines;
+import jpabook.jpashop2.domain.Member;
+import jpabook.jpashop2.domain.Order;
+import jpabook.jpashop2.domain.OrderStatus;
+import jpabook.jpashop2.domain.item.Book;
+import jpabook.jpashop2.repository.OrderRepository;
+import jpabook.jpashop2.repository.StockReservationRepository;
+import jpabook.jpashop2.repository.order.query.OrderDetailDto;
+import jpabook.jpashop2.repository.order.query.OrderHistoryQueryRepository;
+import jpabook.jpashop2.repository.order.query.OrderJsonQueryRepository;
+import jpabook.jpashop2.repository.order.query.OrderQueryDto;
+import jpabook.jpashop2.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop2.service.BulkCancelResult;
+import jpabook.jpashop2.service.DeliveryDispatchService;
+import jpabook.jpashop2.service.ItemService;
+import jpabook.jpashop2.service.MemberService;
+import jpabook.jpashop2.service.OrderDetailService;
+import jpabook.jpashop2.service.OrderService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@SpringBootTest(properties = {
+        "shop.init-db.enabled=false",
+        "shop.sharding.enabled=true",
+        "shop.sharding.shards[0].url=jdbc:h2:mem:shard0-${random.uuid};DB_CLOSE_DELAY=-1",
+        "shop.sharding.shards[0].username=sa",
+        "shop.sharding.shards[1].url=jdbc:h2:mem:shard1-${random.uuid};DB_CLOSE_DELAY=-1",
+        "shop.sharding.shards[1].username=sa",
+        "shop.sharding.shards[2].url=jdbc:h2:mem:shard2-${random.uuid};DB_CLOSE_DELAY=-1",
+        "shop.sharding.shards[2].username=sa"
+})
+class ShardingTest {
+    @Autowired
+    Shards shards;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    OrderQueryRepository orderQueryRepository;
+
+    @Autowired
+    OrderHistoryQueryRepository orderHistoryQueryRepository;
+
+    @Autowired
+    OrderDetailService orderDetailService;
+
+    @Autowired
+    OrderJsonQueryRepository orderJsonQueryRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    DeliveryDispatchService deliveryDispatchService;
+
+    @Autowired
+    ShardTemplate shardTemplate;
+
+    @Autowired
+    StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    HomeStockReservation homeStockReservation;
+
+    @Autowired
+    RequestDeadlines requestDeadlines;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    public void orderOnMemberShard() throws Exception {
+        Book book = new Book();
+        book.setName("sharded JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        itemService.saveItem(book);
+
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Member member = new Member();
+            member.setName("shard-member-" + i);
+            Long memberId = memberService.join(member);
+
+            Long orderId = orderService.order(memberId, book.getId(), 2);
+            Assertions.assertEquals(shards.ofMember(memberId), shards.ofOrder(orderId));
+            orderIds.add(orderId);
+        }
+
+        Assertions.assertEquals(3, orderIds.stream().map(shards::ofOrder).distinct().count());
+        Assertions.assertEquals(100 - 12 * 2, itemService.findItem(book.getId()).getStockQuantity());
+
+        List<Order> orders = orderRepository.findAllWithMemberDelivery();
+        List<Long> sorted = orderIds.stream().sorted().collect(Collectors.toList());
+        Assertions.assertEquals(sorted, orders.stream().map(Order::getId).collect(Collectors.toList()));
+        Assertions.assertTrue(orders.stream().allMatch(o -> o.getMember().getName().startsWith("shard-member-")));
+
+        Assertions.assertEquals(sorted.subList(5, 9),
+                orderRepository.findAllWithMemberDelivery(5, 4).stream().map(Order::getId).collect(Collectors.toList()));
+
+        List<OrderQueryDto> dtos = orderQueryRepository.findAllByDto_optimization();
+        Assertions.assertEquals(sorted, dtos.stream().map(OrderQueryDto::getOrderId).collect(Collectors.toList()));
+        Assertions.assertTrue(dtos.stream().allMatch(d -> d.getOrderItems().size() == 1));
+
+        orderService.cancelOrder(orderIds.get(0));
+
+        Order cancelled = orderRepository.findAllWithMemberDelivery().stream()
+                .filter(o -> o.getId().equals(orderIds.get(0)))
+                .findFirst()
+                .orElseThrow();
+        Assertions.assertEquals(OrderStatus.CANCEL, cancelled.getStatus());
+        Assertions.assertEquals(100 - 11 * 2, itemService.findItem(book.getId()).getStockQuantity());
+    }
+
+    @Test
+    public void byIdAndByMemberReadsUseOwningShard() throws Exception {
+        Book book = new Book();
+        book.setName("routed JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        itemService.saveItem(book);
+
+        List<Long> memberIds = new ArrayList<>();
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Member member = new Member();
+            member.setName("routed-member-" + i);
+            Long memberId = memberService.join(member);
+            memberIds.add(memberId);
+            orderIds.add(orderService.order(memberId, book.getId(), 1));
+        }
+        Assertions.assertTrue(orderIds.stream().map(shards::ofOrder).distinct().count() > 1);
+
+        for (int i = 0; i < memberIds.size(); i++) {
+            Long orderId = orderIds.get(i);
+            Assertions.assertEquals(List.of(orderId), orderRepository.findMemberOrderPage(memberIds.get(i), null, null, 10)
+                    .stream().map(Order::getId).collect(Collectors.toList()));
+            Assertions.assertEquals(List.of(orderId), orderHistoryQueryRepository.findMemberOrders(memberIds.get(i))
+                    .stream().map(OrderQueryDto::getOrderId).collect(Collectors.toList()));
+            Assertions.assertEquals("routed-member-" + i, orderHistoryQueryRepository.findOrder(orderId).orElseThrow().getName());
+        }
+        Assertions.assertEquals(orderIds, orderDetailService.findOrders(orderIds).stream()
+                .map(OrderDetailDto::getOrderId).collect(Collectors.toList()));
+
+        BulkCancelResult result = orderService.cancelOrders(orderIds.subList(0, 3));
+        Assertions.assertEquals(3, result.getCanceledOrderIds().size());
+        Assertions.assertEquals(100 - 3, itemService.findItem(book.getId()).getStockQuantity());
+
+        Assertions.assertTrue(deliveryDispatchService.dispatchBatch(100) >= 3);
+        Assertions.assertEquals(0, deliveryDispatchService.dispatchBatch(100));
+    }
+
+    @Test
+    public void streamedOrdersAreMergedFromEveryShard() throws Exception {
+        Book book = new Book();
+        book.setName("streamed JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        itemService.saveItem(book);
+
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; orderIds.stream().map(shards::ofOrder).distinct().count() < shards.count() || orderIds.size() < 6; i++) {
+            Member member = new Member();
+            member.setName("streamed-member-" + i);
+            orderIds.add(orderService.order(memberService.join(member), book.getId(), 1));
+        }
+
+        StringWriter simple = new StringWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(simple)) {
+            orderJsonQueryRepository.writeOrderSimpleRows(generator);
+        }
+        List<Long> simpleOrderIds = orderIdsOf(objectMapper.readTree(simple.toString()));
+        Assertions.assertTrue(simpleOrderIds.containsAll(orderIds));
+        Assertions.assertEquals(simpleOrderIds.stream().sorted().distinct().collect(Collectors.toList()), simpleOrderIds);
+
+        StringWriter withItems = new StringWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(withItems)) {
+            orderJsonQueryRepository.writeOrdersWithItems(generator);
+        }
+        JsonNode orders = objectMapper.readTree(withItems.toString());
+        Assertions.assertEquals(simpleOrderIds, orderIdsOf(orders));
+        for (JsonNode order : orders) {
+            if (orderIds.contains(order.get("orderId").asLong())) {
+                Assertions.assertTrue(order.get("name").asText().startsWith("streamed-member-"));
+                Assertions.assertEquals(1, order.get("orderItems").size());
+                Assertions.assertEquals("streamed JPA", order.get("orderItems").get(0).get("itemName").asText());
+            }
+        }
+    }
+
+    @Test
+    public void stockIsRestoredOnceOnEveryShard() throws Exception {
+        Book book = new Book();
+        book.setName("reserved JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        itemService.saveItem(book);
+
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; orderIds.stream().map(shards::ofOrder).distinct().count() < shards.count() || orderIds.size() < 6; i++) {
+            Member member = new Member();
+            member.setName("reserved-member-" + i);
+            orderIds.add(orderService.order(memberService.join(member), book.getId(), 2));
+        }
+        Assertions.assertEquals(100 - orderIds.size() * 2, itemService.findItem(book.getId()).getStockQuantity());
+
+        // 존재하지 않는 회원의 주문은 재고를 예약한 뒤 롤백되어 예약한 재고가 되돌려진다.
+        Assertions.assertThrows(RuntimeException.class, () -> orderService.order(Long.MAX_VALUE - 64, book.getId(), 5));
+        Assertions.assertEquals(100 - orderIds.size() * 2, itemService.findItem(book.getId()).getStockQuantity());
+
+        // home shard의 주문도 상품 재고는 home shard의 예약으로 한번만 되돌려진다.
+        for (Long orderId : orderIds.subList(0, 3)) {
+            orderService.cancelOrder(orderId);
+        }
+        orderService.cancelOrders(orderIds.subList(3, orderIds.size()));
+
+        Assertions.assertEquals(100, itemService.findItem(book.getId()).getStockQuantity());
+        Assertions.assertTrue(shardTemplate.executeReadOnly(Shards.HOME,
+                () -> stockReservationRepository.findPendingKeys(LocalDateTime.now().plusDays(1), 100)).isEmpty());
+    }
+
+    @Test
+    public void stockIsRestoredAfterDeadlineExpiredRollback() throws Exception {
+        Book book = new Book();
+        book.setName("deadline JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(100);
+        itemService.saveItem(book);
+
+        RequestDeadline deadline = requestDeadlines.start("POST /test/order", "client", 100);
+        try {
+            ShardContext.callOn(1, () -> transactionTemplate.execute(status -> {
+                homeStockReservation.reserve(book.getId(), 5);
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                Assertions.assertTrue(deadline.isExpired());
+                status.setRollbackOnly();
+                return null;
+            }));
+        } finally {
+            requestDeadlines.finish(deadline);
+        }
+
+        Assertions.assertEquals(100, itemService.findItem(book.getId()).getStockQuantity());
+        Assertions.assertTrue(shardTemplate.executeReadOnly(Shards.HOME,
+                () -> stockReservationRepository.findPendingKeys(LocalDateTime.now().plusDays(1), 100)).isEmpty());
+    }
+
+    @Test
+    public void merge() throws Exception {
+        List<Integer> merged = ShardTemplate.merge(List.of(List.of(1, 4, 9), List.of(), List.of(2, 3, 10)), Comparator.naturalOrder());
+
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 9, 10), merged);
+    }
+
+    private static List<Long> orderIdsOf(JsonNode rows) {
+        List<Long> orderIds = new ArrayList<>();
+        rows.forEach(row -> orderIds.add(row.get("orderId").asLong()));
+        return orderIds;
+    }
+}